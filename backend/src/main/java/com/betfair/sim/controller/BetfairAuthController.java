@@ -3,6 +3,7 @@ package com.betfair.sim.controller;
 import com.betfair.sim.service.BetfairAuthService;
 import com.betfair.sim.service.BetfairApiClient;
 import com.betfair.sim.service.BetfairSessionStore;
+import com.betfair.sim.service.BetfairStreamClient;
 import java.time.Instant;
 import java.util.Map;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -16,14 +17,17 @@ public class BetfairAuthController {
   private final BetfairAuthService betfairAuthService;
   private final BetfairSessionStore sessionStore;
   private final BetfairApiClient betfairApiClient;
+  private final BetfairStreamClient betfairStreamClient;
 
   public BetfairAuthController(
       BetfairAuthService betfairAuthService,
       BetfairSessionStore sessionStore,
-      BetfairApiClient betfairApiClient) {
+      BetfairApiClient betfairApiClient,
+      BetfairStreamClient betfairStreamClient) {
     this.betfairAuthService = betfairAuthService;
     this.sessionStore = sessionStore;
     this.betfairApiClient = betfairApiClient;
+    this.betfairStreamClient = betfairStreamClient;
   }
 
   @PostMapping("/api/betfair/login")
@@ -46,4 +50,16 @@ public class BetfairAuthController {
         "sessionTokenPresent", String.valueOf(betfairApiClient.hasSessionToken()),
         "lastUpdated", sessionStore.getLastUpdated().toString());
   }
+
+  @GetMapping("/api/betfair/stream/status")
+  public Map<String, Object> streamStatus() {
+    return betfairStreamClient.stats();
+  }
+
+  @GetMapping("/api/betfair/cache-stats")
+  public Map<String, Object> cacheStats() {
+    return Map.of(
+        "catalogue", betfairApiClient.getCatalogueCacheStats(),
+        "singleFlight", betfairApiClient.getSingleFlightStats());
+  }
 }
@@ -17,6 +17,9 @@ import java.io.UncheckedIOException;
 import com.betfair.sim.service.GameService;
 import com.betfair.sim.service.InPlayStatusEntry;
 import com.betfair.sim.service.BestStrategyService;
+import com.betfair.sim.service.SelectedGamesOddsCaptureService;
+import com.betfair.sim.service.TickDayCompactor;
+import com.betfair.sim.service.TickFileConverter;
 import com.betfair.sim.service.SimulationBetService;
 import com.betfair.sim.service.StrategyService;
 import java.time.LocalDate;
@@ -37,16 +40,25 @@ public class TradeController {
   private final BestStrategyService bestStrategyService;
   private final StrategyService strategyService;
   private final SimulationBetService simulationBetService;
+  private final SelectedGamesOddsCaptureService oddsCaptureService;
+  private final TickFileConverter tickFileConverter;
+  private final TickDayCompactor tickDayCompactor;
 
   public TradeController(
       GameService gameService,
       BestStrategyService bestStrategyService,
       StrategyService strategyService,
-      SimulationBetService simulationBetService) {
+      SimulationBetService simulationBetService,
+      SelectedGamesOddsCaptureService oddsCaptureService,
+      TickFileConverter tickFileConverter,
+      TickDayCompactor tickDayCompactor) {
     this.gameService = gameService;
     this.bestStrategyService = bestStrategyService;
     this.strategyService = strategyService;
     this.simulationBetService = simulationBetService;
+    this.oddsCaptureService = oddsCaptureService;
+    this.tickFileConverter = tickFileConverter;
+    this.tickDayCompactor = tickDayCompactor;
   }
 
   @GetMapping("/api/games")
@@ -195,6 +207,53 @@ public class TradeController {
     return bestStrategyService.loadMonitorEntries(date);
   }
 
+  @GetMapping("/api/betfair/capture/stats")
+  public Map<String, Object> captureStats() {
+    return oddsCaptureService.getCaptureStats();
+  }
+
+  @GetMapping("/api/betfair/capture/latency")
+  public Map<String, Object> captureLatency() {
+    return oddsCaptureService.getLatencyStats();
+  }
+
+  @GetMapping("/api/betfair/capture/recent")
+  public Map<String, Object> recentCapturedTicks(
+      @RequestParam(name = "marketId") String marketId,
+      @RequestParam(name = "minutes", defaultValue = "0") long minutes) {
+    return oddsCaptureService.getRecentTicks(marketId, minutes);
+  }
+
+  @PostMapping("/api/betfair/capture/convert")
+  public Map<String, Object> convertCapturedTicks(
+      @RequestParam(name = "date") String date,
+      @RequestParam(name = "format", defaultValue = "binary") String format,
+      @RequestParam(name = "deleteSource", defaultValue = "false") boolean deleteSource) {
+    try {
+      return tickFileConverter.convertDay(date, format, deleteSource);
+    } catch (UncheckedIOException | IllegalArgumentException ex) {
+      return Map.of("status", "FAILED", "message", ex.getMessage());
+    }
+  }
+
+  @PostMapping("/api/betfair/capture/compact")
+  public Map<String, Object> compactCapturedTicks(@RequestParam(name = "date") String date) {
+    try {
+      return tickDayCompactor.compactDay(date);
+    } catch (UncheckedIOException ex) {
+      return Map.of("status", "FAILED", "message", ex.getMessage());
+    }
+  }
+
+  @PostMapping("/api/betfair/capture/manifest/rebuild")
+  public Map<String, Object> rebuildCaptureManifest(@RequestParam(name = "date") String date) {
+    try {
+      return gameService.rebuildAnalyticsManifest(date);
+    } catch (UncheckedIOException ex) {
+      return Map.of("status", "FAILED", "message", ex.getMessage());
+    }
+  }
+
   @PostMapping("/api/betfair/lay-matches-report")
   public Map<String, Object> saveLayMatchesReport(@RequestBody SelectedGamesRequest request) {
     List<String> entries =
@@ -228,6 +287,12 @@ public class TradeController {
     return gameService.analyticsGamesByDate(date);
   }
 
+  @GetMapping("/api/betfair/analytics/files")
+  public List<Map<String, Object>> analyticsFiles(
+      @RequestParam(name = "date", required = false) String date) {
+    return gameService.analyticsFilesByDate(date);
+  }
+
   @GetMapping("/api/betfair/analytics/goals")
   public AnalyticsGoalsEstimate analyticsGoals(
       @RequestParam(name = "date", required = false) String date,
@@ -235,6 +300,25 @@ public class TradeController {
     return gameService.analyticsGoalsForGame(date, gameKey);
   }
 
+  @GetMapping("/api/betfair/analytics/snapshot")
+  public Map<String, Object> analyticsSnapshot(
+      @RequestParam(name = "date", required = false) String date,
+      @RequestParam(name = "gameKey") String gameKey,
+      @RequestParam(name = "marketType") String marketType,
+      @RequestParam(name = "minute") long minute) {
+    return gameService.analyticsSnapshotAtMinute(date, gameKey, marketType, minute);
+  }
+
+  @GetMapping("/api/betfair/analytics/cache")
+  public Map<String, Object> analyticsCacheStats() {
+    return gameService.getAnalyticsCacheStats();
+  }
+
+  @GetMapping("/api/betfair/analytics/stats")
+  public Map<String, Object> analyticsStats() {
+    return gameService.getAnalyticsStats();
+  }
+
   @PostMapping("/api/strategies/simulate")
   public List<SimulationResult> simulate(@RequestBody SimulationRequest request) {
     String resolvedDate =
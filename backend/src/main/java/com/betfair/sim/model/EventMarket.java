@@ -9,6 +9,9 @@ public class EventMarket {
   private String marketType;
   private String startTime;
   private String marketStatus;
+  private Long publishTime;
+  private String publishSource;
+  private Long lastMatchTime;
   private List<EventSelection> selections = new ArrayList<>();
 
   public EventMarket() {}
@@ -67,4 +70,34 @@ public class EventMarket {
   public void setMarketStatus(String marketStatus) {
     this.marketStatus = marketStatus;
   }
+
+  /**
+   * Exchange publish time (stream) or the time the listMarketBook request was sent (polled) of the
+   * prices, in epoch millis; {@link #getPublishSource()} tells which.
+   */
+  public Long getPublishTime() {
+    return publishTime;
+  }
+
+  public void setPublishTime(Long publishTime) {
+    this.publishTime = publishTime;
+  }
+
+  /** {@code "stream"} or {@code "polled"}: where the prices and their publish time came from. */
+  public String getPublishSource() {
+    return publishSource;
+  }
+
+  public void setPublishSource(String publishSource) {
+    this.publishSource = publishSource;
+  }
+
+  /** Time of the market's last match in epoch millis (polled books only). */
+  public Long getLastMatchTime() {
+    return lastMatchTime;
+  }
+
+  public void setLastMatchTime(Long lastMatchTime) {
+    this.lastMatchTime = lastMatchTime;
+  }
 }
@@ -0,0 +1,97 @@
+package com.betfair.sim.service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs analytics work on its own fork-join pool ({@code analytics.parallelism} daemon threads
+ * named {@code analytics-N}), away from the common pool and the request threads. Tasks may fork
+ * further tasks into the same pool (games fan out to their market files) and join them without
+ * tying up a worker. Results always come back in task order, and each stage's duration is kept
+ * in a histogram for {@link #stats()}.
+ */
+@Component
+public class AnalyticsExecutor {
+  static final String STAGE_LIST = "list";
+  static final String STAGE_GAMES = "games";
+  static final String STAGE_FILE = "file";
+  static final String STAGE_MERGE = "merge";
+
+  private final ForkJoinPool pool;
+  private final Map<String, LatencyHistogram> stages = new ConcurrentHashMap<>();
+
+  public AnalyticsExecutor(@Value("${analytics.parallelism:0}") int parallelism) {
+    int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    AtomicInteger threadCount = new AtomicInteger();
+    this.pool =
+        new ForkJoinPool(
+            threads,
+            forkJoinPool -> {
+              ForkJoinWorkerThread thread =
+                  ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+              thread.setName("analytics-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            },
+            null,
+            false);
+  }
+
+  /** Runs {@code tasks} in parallel and returns their results in the same order. */
+  <T> List<T> invokeAll(List<Callable<T>> tasks) {
+    List<ForkJoinTask<T>> forked = new ArrayList<>();
+    for (Callable<T> task : tasks) {
+      forked.add(ForkJoinTask.adapt(task));
+    }
+    if (forked.size() > 1 && ForkJoinTask.getPool() == pool) {
+      ForkJoinTask.invokeAll(forked);
+    } else if (forked.size() > 1) {
+      pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(forked)));
+    } else if (forked.size() == 1) {
+      forked.get(0).invoke();
+    }
+    List<T> results = new ArrayList<>();
+    for (ForkJoinTask<T> task : forked) {
+      results.add(task.join());
+    }
+    return results;
+  }
+
+  /** Records the time since {@code startedNanos} ({@link System#nanoTime()}) under {@code stage}. */
+  void record(String stage, long startedNanos) {
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    stages.computeIfAbsent(stage, key -> new LatencyHistogram()).record(elapsedMs);
+  }
+
+  public Map<String, Object> stats() {
+    Map<String, Object> stageStats = new LinkedHashMap<>();
+    new TreeMap<>(stages).forEach((stage, histogram) -> stageStats.put(stage, histogram.snapshot()));
+    Map<String, Object> poolStats = new LinkedHashMap<>();
+    poolStats.put("parallelism", pool.getParallelism());
+    poolStats.put("activeThreads", pool.getActiveThreadCount());
+    poolStats.put("queuedTasks", pool.getQueuedTaskCount());
+    poolStats.put("steals", pool.getStealCount());
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("pool", poolStats);
+    stats.put("stages", stageStats);
+    return stats;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    pool.shutdownNow();
+  }
+}
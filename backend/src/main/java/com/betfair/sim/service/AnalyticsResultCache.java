@@ -0,0 +1,254 @@
+package com.betfair.sim.service;
+
+import com.betfair.sim.model.AnalyticsGoalsEstimate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Goals estimates per game, keyed by day folder and game and validated against a fingerprint of
+ * the game's goal-line files (name, size and modification time of each). A closed day is answered
+ * from memory; in today's folder only games whose files changed since the last request are
+ * recomputed. Entries are evicted least recently used first once their estimated size exceeds
+ * {@code analytics.cache.max-kb}, and the cache is saved to {@code analytics.cache.file} (inside
+ * the followed games folder) every {@code analytics.cache.flush-ms} and on shutdown.
+ */
+@Component
+public class AnalyticsResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AnalyticsResultCache.class);
+  private static final String FILE_HEADER = "# analytics-cache v1";
+  private static final String LINE_SEPARATOR = "|";
+
+  private final boolean enabled;
+  private final long maxBytes;
+  private final Path cacheFile;
+  private final Map<String, CachedEstimate> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private long usedBytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private boolean dirty;
+
+  public AnalyticsResultCache(
+      @Value("${betfair.followed-games.dir:backend/data}") String followedGamesDir,
+      @Value("${analytics.cache.enabled:true}") boolean enabled,
+      @Value("${analytics.cache.max-kb:4096}") long maxKb,
+      @Value("${analytics.cache.file:analytics-cache.txt}") String cacheFile) {
+    this.enabled = enabled;
+    this.maxBytes = Math.max(1L, maxKb) * 1024L;
+    this.cacheFile =
+        cacheFile == null || cacheFile.isBlank()
+            ? null
+            : FollowedGamesPathResolver.resolve(followedGamesDir).resolve(cacheFile.trim());
+  }
+
+  /**
+   * The estimate for {@code gameKey} in day {@code folder}, computed by {@code compute} only when
+   * the game's goal-line {@code files} differ from those of the cached estimate.
+   */
+  AnalyticsGoalsEstimate estimate(
+      String folder, String gameKey, List<Path> files, Supplier<AnalyticsGoalsEstimate> compute) {
+    if (!enabled) {
+      return compute.get();
+    }
+    String key = folder + "/" + gameKey;
+    String fingerprint = fingerprint(files);
+    synchronized (this) {
+      CachedEstimate cached = entries.get(key);
+      if (cached != null && cached.fingerprint.equals(fingerprint)) {
+        hits++;
+        return cached.toEstimate(gameKey);
+      }
+      misses++;
+    }
+    AnalyticsGoalsEstimate estimate = compute.get();
+    put(
+        key,
+        new CachedEstimate(
+            fingerprint,
+            estimate.getDisplayName(),
+            estimate.getGuessedGoals(),
+            estimate.getClosedLines()));
+    return estimate;
+  }
+
+  public synchronized Map<String, Object> stats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("enabled", enabled);
+    stats.put("entries", entries.size());
+    stats.put("usedBytes", usedBytes);
+    stats.put("maxBytes", maxBytes);
+    stats.put("hits", hits);
+    stats.put("misses", misses);
+    stats.put("evictions", evictions);
+    return stats;
+  }
+
+  @PostConstruct
+  public void load() {
+    if (!enabled || cacheFile == null || !Files.isRegularFile(cacheFile)) {
+      return;
+    }
+    try {
+      List<String> lines = Files.readAllLines(cacheFile, StandardCharsets.UTF_8);
+      if (lines.isEmpty() || !FILE_HEADER.equals(lines.get(0))) {
+        LOGGER.info("Ignoring analytics cache {} written in another format", cacheFile);
+        return;
+      }
+      int loaded = 0;
+      for (String line : lines.subList(1, lines.size())) {
+        String[] parts = line.split("\t", -1);
+        if (parts.length != 5) {
+          continue;
+        }
+        try {
+          List<String> closedLines =
+              parts[4].isEmpty() ? List.of() : List.of(parts[4].split("\\|", -1));
+          put(
+              parts[0],
+              new CachedEstimate(parts[1], parts[2], Integer.parseInt(parts[3]), closedLines));
+          loaded++;
+        } catch (NumberFormatException ex) {
+          // skip a damaged line
+        }
+      }
+      synchronized (this) {
+        dirty = false;
+      }
+      LOGGER.info("Loaded {} analytics estimates from {}", loaded, cacheFile);
+    } catch (IOException ex) {
+      LOGGER.warn("Failed to load analytics cache {}", cacheFile, ex);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${analytics.cache.flush-ms:300000}")
+  @PreDestroy
+  public void save() {
+    if (!enabled || cacheFile == null) {
+      return;
+    }
+    List<String> lines = new ArrayList<>();
+    synchronized (this) {
+      if (!dirty) {
+        return;
+      }
+      lines.add(FILE_HEADER);
+      for (Map.Entry<String, CachedEstimate> entry : entries.entrySet()) {
+        CachedEstimate cached = entry.getValue();
+        lines.add(
+            String.join(
+                "\t",
+                entry.getKey(),
+                cached.fingerprint,
+                cached.displayName,
+                String.valueOf(cached.guessedGoals),
+                String.join(LINE_SEPARATOR, cached.closedLines)));
+      }
+      dirty = false;
+    }
+    Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(cacheFile.getParent());
+      try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        for (String line : lines) {
+          writer.write(line);
+          writer.newLine();
+        }
+      }
+      Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      synchronized (this) {
+        dirty = true;
+      }
+      LOGGER.warn("Failed to save analytics cache {}", cacheFile, ex);
+    }
+  }
+
+  private synchronized void put(String key, CachedEstimate cached) {
+    CachedEstimate previous = entries.put(key, cached);
+    if (previous != null) {
+      usedBytes -= previous.weight(key);
+    }
+    usedBytes += cached.weight(key);
+    dirty = true;
+    Iterator<Map.Entry<String, CachedEstimate>> eldest = entries.entrySet().iterator();
+    while (usedBytes > maxBytes && eldest.hasNext()) {
+      Map.Entry<String, CachedEstimate> entry = eldest.next();
+      usedBytes -= entry.getValue().weight(entry.getKey());
+      eldest.remove();
+      evictions++;
+    }
+  }
+
+  /**
+   * Name, size and modification time of each file. A file compacted into its day's segment has
+   * no attributes of its own and is identified by the segment's.
+   */
+  private static String fingerprint(List<Path> files) {
+    List<Path> sorted = new ArrayList<>(files);
+    sorted.sort(Comparator.comparing(file -> file.getFileName().toString()));
+    StringBuilder fingerprint = new StringBuilder();
+    for (Path file : sorted) {
+      Path source = file;
+      if (!Files.exists(file) && file.getParent() != null) {
+        source = TickDaySegment.segmentFile(file.getParent());
+      }
+      fingerprint.append(file.getFileName()).append(':');
+      try {
+        fingerprint
+            .append(Files.size(source))
+            .append(':')
+            .append(Files.getLastModifiedTime(source).toMillis());
+      } catch (IOException ex) {
+        fingerprint.append("missing");
+      }
+      fingerprint.append(';');
+    }
+    return fingerprint.toString();
+  }
+
+  private static final class CachedEstimate {
+    private final String fingerprint;
+    private final String displayName;
+    private final int guessedGoals;
+    private final List<String> closedLines;
+
+    private CachedEstimate(
+        String fingerprint, String displayName, int guessedGoals, List<String> closedLines) {
+      this.fingerprint = fingerprint;
+      this.displayName = displayName == null ? "" : displayName;
+      this.guessedGoals = guessedGoals;
+      this.closedLines = List.copyOf(closedLines);
+    }
+
+    private AnalyticsGoalsEstimate toEstimate(String gameKey) {
+      return new AnalyticsGoalsEstimate(gameKey, displayName, guessedGoals, closedLines);
+    }
+
+    /** Rough heap footprint: object headers plus two bytes per character held. */
+    private long weight(String key) {
+      long chars = key.length() + fingerprint.length() + displayName.length();
+      for (String line : closedLines) {
+        chars += line.length() + 24;
+      }
+      return 160L + chars * 2L;
+    }
+  }
+}
@@ -30,13 +30,16 @@ public class BestStrategyService {
   private static final Logger LOGGER = LoggerFactory.getLogger(BestStrategyService.class);
 
   private final BetfairApiClient betfairApiClient;
+  private final FollowedGamesRegistry followedGamesRegistry;
   private final Path followedGamesDir;
   private final Path oddsSnapshotsDir;
 
   public BestStrategyService(
       BetfairApiClient betfairApiClient,
+      FollowedGamesRegistry followedGamesRegistry,
       @Value("${betfair.followed-games.dir:backend/data}") String followedGamesDir) {
     this.betfairApiClient = betfairApiClient;
+    this.followedGamesRegistry = followedGamesRegistry;
     this.followedGamesDir = FollowedGamesPathResolver.resolve(followedGamesDir);
     this.oddsSnapshotsDir = this.followedGamesDir.resolve("best-strategy-odds");
   }
@@ -50,6 +53,7 @@ public class BestStrategyService {
     try {
       Files.createDirectories(followedGamesDir);
       Files.write(outputFile, lines, StandardCharsets.UTF_8);
+      followedGamesRegistry.refresh(outputFile);
       return outputFile;
     } catch (IOException ex) {
       throw new UncheckedIOException("Failed to save best strategy games", ex);
@@ -128,31 +132,14 @@ public class BestStrategyService {
   }
 
   private List<SelectedGameRef> readSelectedGames(String resolvedDate) {
-    Path inputFile = followedGamesDir.resolve("bestStrategyGames-" + resolvedDate + ".txt");
-    if (!Files.exists(inputFile)) {
-      return List.of();
-    }
-    try {
-      List<String> lines = Files.readAllLines(inputFile, StandardCharsets.UTF_8);
-      Set<String> seen = new LinkedHashSet<>();
-      List<SelectedGameRef> entries = new ArrayList<>();
-      for (String line : lines) {
-        if (line == null || line.isBlank()) {
-          continue;
-        }
-        String[] parts = line.split(",", 3);
-        String marketId = parts.length > 0 ? parts[0].trim() : "";
-        String startTime = parts.length > 1 ? parts[1].trim() : "";
-        String teams = parts.length > 2 ? parts[2].trim() : "";
-        if (marketId.isBlank() || !seen.add(marketId)) {
-          continue;
-        }
-        entries.add(new SelectedGameRef(marketId, startTime, teams));
+    Set<String> seen = new LinkedHashSet<>();
+    List<SelectedGameRef> entries = new ArrayList<>();
+    for (FollowedGamesRegistry.FollowedGame game : followedGamesRegistry.bestStrategyGames(resolvedDate)) {
+      if (seen.add(game.marketId())) {
+        entries.add(new SelectedGameRef(game.marketId(), game.startTime(), game.teams()));
       }
-      return entries;
-    } catch (IOException ex) {
-      throw new UncheckedIOException("Failed to read best strategy games", ex);
     }
+    return entries;
   }
 
   private boolean hasStarted(
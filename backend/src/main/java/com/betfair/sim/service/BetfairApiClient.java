@@ -6,6 +6,8 @@ import com.betfair.sim.model.EventSelection;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -15,6 +17,7 @@ import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.text.Normalizer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -24,6 +27,12 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -34,6 +43,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -41,17 +51,34 @@ import org.springframework.web.client.RestTemplate;
 @Service
 public class BetfairApiClient {
   private static final String FOOTBALL_EVENT_TYPE_ID = "1";
-  private static final int MARKET_BOOK_BATCH_SIZE = 40;
-  private static final int AUX_EVENT_BATCH_SIZE = 20;
   private static final Pattern GOAL_LINE_PATTERN = Pattern.compile("(\\d+(?:\\.\\d+)?)");
   private static final Pattern SCORE_SPAN_PATTERN =
       Pattern.compile("<span[^>]*class=\"[^\"]*score[^\"]*\"[^>]*>([^<]+)</span>", Pattern.CASE_INSENSITIVE);
   private static final Logger LOGGER = LoggerFactory.getLogger(BetfairApiClient.class);
+  private static final List<String> CORRECT_SCORE_MARKET_TYPES =
+      List.of("CORRECT_SCORE", "CORRECT_SCORE2", "ALT_CORRECT_SCORE");
+  private static final List<String> AUXILIARY_MARKET_TYPES =
+      List.of(
+          "OVER_UNDER_05",
+          "OVER_UNDER_15",
+          "OVER_UNDER_25",
+          "HALF_TIME",
+          "CORRECT_SCORE",
+          "CORRECT_SCORE2",
+          "ALT_CORRECT_SCORE");
 
   private final RestTemplate restTemplate;
   private final ObjectMapper objectMapper;
+  private final MarketBookStreamReader marketBookReader;
+  private final BetfairCatalogueCache catalogueCache;
+  private final BetfairBatchPlanner batchPlanner;
+  private final BetfairSingleFlight<MarketStatus> marketStatusFlights;
+  private final BetfairSingleFlight<MarketOutcome> marketOutcomeFlights;
   private final BetfairSessionStore sessionStore;
+  private final BetfairBatchExecutor batchExecutor;
+  private final BetfairStreamClient streamClient;
   private final String rpcBaseUrl;
+  private final int maxCallsPerEnvelope;
   private final String appKey;
   private final String sessionToken;
   private final boolean domScorePlaywrightEnabled;
@@ -63,18 +90,38 @@ public class BetfairApiClient {
       RestTemplateBuilder restTemplateBuilder,
       ObjectMapper objectMapper,
       BetfairSessionStore sessionStore,
+      BetfairBatchExecutor batchExecutor,
+      BetfairStreamClient streamClient,
+      SharedHttpTransport httpTransport,
       @Value("${betfair.rpc.base-url:https://api.betfair.com/exchange/betting/json-rpc/v1}")
           String rpcBaseUrl,
+      @Value("${betfair.rpc.max-calls-per-envelope:5}") int maxCallsPerEnvelope,
+      @Value("${betfair.catalogue-cache.event-ttl-ms:21600000}") long catalogueEventTtlMs,
+      @Value("${betfair.catalogue-cache.start-time-ttl-ms:600000}") long catalogueStartTimeTtlMs,
+      @Value("${betfair.catalogue-cache.event-markets-ttl-ms:300000}") long catalogueEventMarketsTtlMs,
+      @Value("${betfair.single-flight.freshness-ms:1000}") long singleFlightFreshnessMs,
+      @Value("${betfair.batch.markets-per-event-estimate:25}") int marketsPerEventEstimate,
+      @Value("${betfair.batch.shrink-ttl-ms:900000}") long batchShrinkTtlMs,
       @Value("${betfair.app-key:}") String appKey,
       @Value("${betfair.session-token:}") String sessionToken,
       @Value("${betfair.dom-score.playwright.enabled:true}") boolean domScorePlaywrightEnabled,
       @Value("${betfair.dom-score.playwright.node-command:node}") String domScorePlaywrightNodeCommand,
       @Value("${betfair.dom-score.playwright.script-path:../tools/betfair-score.js}") String domScorePlaywrightScriptPath,
       @Value("${betfair.dom-score.playwright.timeout-ms:18000}") int domScorePlaywrightTimeoutMs) {
-    this.restTemplate = restTemplateBuilder.build();
+    this.restTemplate = httpTransport.newRestTemplate(restTemplateBuilder);
     this.objectMapper = objectMapper;
+    this.marketBookReader = new MarketBookStreamReader(objectMapper);
+    this.catalogueCache =
+        new BetfairCatalogueCache(
+            catalogueEventTtlMs, catalogueStartTimeTtlMs, catalogueEventMarketsTtlMs);
+    this.batchPlanner = new BetfairBatchPlanner(marketsPerEventEstimate, batchShrinkTtlMs);
+    this.marketStatusFlights = new BetfairSingleFlight<>(singleFlightFreshnessMs);
+    this.marketOutcomeFlights = new BetfairSingleFlight<>(singleFlightFreshnessMs);
     this.sessionStore = sessionStore;
+    this.batchExecutor = batchExecutor;
+    this.streamClient = streamClient;
     this.rpcBaseUrl = rpcBaseUrl;
+    this.maxCallsPerEnvelope = Math.max(1, maxCallsPerEnvelope);
     this.appKey = appKey;
     this.sessionToken = sessionToken;
     this.domScorePlaywrightEnabled = domScorePlaywrightEnabled;
@@ -87,6 +134,19 @@ public class BetfairApiClient {
     return !appKey.isBlank() && !resolveSessionToken().isBlank();
   }
 
+  /** Hit/miss counters of the listMarketCatalogue metadata cache, per cached field. */
+  public Map<String, Object> getCatalogueCacheStats() {
+    return catalogueCache.stats();
+  }
+
+  /** Upstream calls saved by coalescing concurrent status/outcome lookups, per method. */
+  public Map<String, Object> getSingleFlightStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("getMarketStatuses", marketStatusFlights.stats());
+    stats.put("getMarketOutcomes", marketOutcomeFlights.stats());
+    return stats;
+  }
+
   public boolean hasAppKey() {
     return !appKey.isBlank();
   }
@@ -166,12 +226,12 @@ public class BetfairApiClient {
       for (MatchOddsMarket market : markets) {
         MarketBookOdds odds = oddsByMarket.get(market.marketId);
         if (LOGGER.isDebugEnabled()) {
-          Double homeOdds = odds == null ? null : odds.backOddsBySelection.get(market.homeSelectionId);
+          Double homeOdds = odds == null ? null : odds.prices.backOrNull(market.homeSelectionId);
           Double drawOdds =
               (odds == null || market.drawSelectionId < 0)
                   ? null
-                  : odds.backOddsBySelection.get(market.drawSelectionId);
-          Double awayOdds = odds == null ? null : odds.backOddsBySelection.get(market.awaySelectionId);
+                  : odds.prices.backOrNull(market.drawSelectionId);
+          Double awayOdds = odds == null ? null : odds.prices.backOrNull(market.awaySelectionId);
           boolean inPlay = odds != null && odds.inPlay;
           LOGGER.debug(
               "MATCH_ODDS marketId={} eventId={} {} vs {} start={} inPlay={} odds(H/D/A)={}/{}/{}",
@@ -185,18 +245,18 @@ public class BetfairApiClient {
               drawOdds,
               awayOdds);
         }
-        Double homeOdds = odds == null ? null : odds.backOddsBySelection.get(market.homeSelectionId);
+        Double homeOdds = odds == null ? null : odds.prices.backOrNull(market.homeSelectionId);
         Double drawOdds =
             (odds == null || market.drawSelectionId < 0)
                 ? null
-                : odds.backOddsBySelection.get(market.drawSelectionId);
-        Double awayOdds = odds == null ? null : odds.backOddsBySelection.get(market.awaySelectionId);
-        Double homeLayOdds = odds == null ? null : odds.layOddsBySelection.get(market.homeSelectionId);
+                : odds.prices.backOrNull(market.drawSelectionId);
+        Double awayOdds = odds == null ? null : odds.prices.backOrNull(market.awaySelectionId);
+        Double homeLayOdds = odds == null ? null : odds.prices.layOrNull(market.homeSelectionId);
         Double drawLayOdds =
             (odds == null || market.drawSelectionId < 0)
                 ? null
-                : odds.layOddsBySelection.get(market.drawSelectionId);
-        Double awayLayOdds = odds == null ? null : odds.layOddsBySelection.get(market.awaySelectionId);
+                : odds.prices.layOrNull(market.drawSelectionId);
+        Double awayLayOdds = odds == null ? null : odds.prices.layOrNull(market.awaySelectionId);
         Game game =
             new Game(
                 market.eventId,
@@ -258,7 +318,7 @@ public class BetfairApiClient {
         return List.of();
       }
 
-      List<MatchOddsMarket> markets = parseMatchOddsMarkets(response).stream()
+      List<MatchOddsMarket> markets = parseMatchOddsMarkets(objectMapper.readTree(response)).stream()
           .filter(this::isBrazilSerieAMarket)
           .toList();
       if (markets.isEmpty()) {
@@ -276,14 +336,14 @@ public class BetfairApiClient {
         if (odds == null || !odds.inPlay) {
           continue;
         }
-        Double homeOdds = odds.backOddsBySelection.get(market.homeSelectionId);
+        Double homeOdds = odds.prices.backOrNull(market.homeSelectionId);
         Double drawOdds =
-            market.drawSelectionId < 0 ? null : odds.backOddsBySelection.get(market.drawSelectionId);
-        Double awayOdds = odds.backOddsBySelection.get(market.awaySelectionId);
-        Double homeLayOdds = odds.layOddsBySelection.get(market.homeSelectionId);
+            market.drawSelectionId < 0 ? null : odds.prices.backOrNull(market.drawSelectionId);
+        Double awayOdds = odds.prices.backOrNull(market.awaySelectionId);
+        Double homeLayOdds = odds.prices.layOrNull(market.homeSelectionId);
         Double drawLayOdds =
-            market.drawSelectionId < 0 ? null : odds.layOddsBySelection.get(market.drawSelectionId);
-        Double awayLayOdds = odds.layOddsBySelection.get(market.awaySelectionId);
+            market.drawSelectionId < 0 ? null : odds.prices.layOrNull(market.drawSelectionId);
+        Double awayLayOdds = odds.prices.layOrNull(market.awaySelectionId);
         Game game =
             new Game(
                 market.marketId,
@@ -338,14 +398,14 @@ public class BetfairApiClient {
         if (odds == null) {
           continue;
         }
-        Double homeOdds = odds.backOddsBySelection.get(market.homeSelectionId);
+        Double homeOdds = odds.prices.backOrNull(market.homeSelectionId);
         Double drawOdds =
-            market.drawSelectionId < 0 ? null : odds.backOddsBySelection.get(market.drawSelectionId);
-        Double awayOdds = odds.backOddsBySelection.get(market.awaySelectionId);
-        Double homeLayOdds = odds.layOddsBySelection.get(market.homeSelectionId);
+            market.drawSelectionId < 0 ? null : odds.prices.backOrNull(market.drawSelectionId);
+        Double awayOdds = odds.prices.backOrNull(market.awaySelectionId);
+        Double homeLayOdds = odds.prices.layOrNull(market.homeSelectionId);
         Double drawLayOdds =
-            market.drawSelectionId < 0 ? null : odds.layOddsBySelection.get(market.drawSelectionId);
-        Double awayLayOdds = odds.layOddsBySelection.get(market.awaySelectionId);
+            market.drawSelectionId < 0 ? null : odds.prices.layOrNull(market.drawSelectionId);
+        Double awayLayOdds = odds.prices.layOrNull(market.awaySelectionId);
         Game game =
             new Game(
                 market.eventId,
@@ -397,16 +457,15 @@ public class BetfairApiClient {
 
     try {
       List<MatchOddsMarket> markets = new ArrayList<>();
-      for (int i = 0; i < uniqueMarketIds.size(); i += MARKET_BOOK_BATCH_SIZE) {
-        List<String> batch =
-            uniqueMarketIds.subList(i, Math.min(i + MARKET_BOOK_BATCH_SIZE, uniqueMarketIds.size()));
-        HttpEntity<List<Map<String, Object>>> catalogueRequest =
-            new HttpEntity<>(List.of(buildListMarketCatalogueRequestForMarketIds(batch, true)), buildHeaders());
-        String response = restTemplate.postForObject(rpcBaseUrl, catalogueRequest, String.class);
-        if (response == null || response.isBlank()) {
-          continue;
+      for (List<MatchOddsMarket> batchMarkets :
+          fetchInBatches(
+              "listMarketCatalogue",
+              uniqueMarketIds,
+              batch -> buildListMarketCatalogueRequestForMarketIds(batch, true),
+              this::parseMatchOddsMarkets)) {
+        if (batchMarkets != null) {
+          markets.addAll(batchMarkets);
         }
-        markets.addAll(parseMatchOddsMarkets(response));
       }
       if (markets.isEmpty()) {
         return List.of();
@@ -426,18 +485,18 @@ public class BetfairApiClient {
       List<Game> games = new ArrayList<>();
       for (MatchOddsMarket market : marketById.values()) {
         MarketBookOdds odds = oddsByMarket.get(market.marketId);
-        Double homeOdds = odds == null ? null : odds.backOddsBySelection.get(market.homeSelectionId);
+        Double homeOdds = odds == null ? null : odds.prices.backOrNull(market.homeSelectionId);
         Double drawOdds =
             (odds == null || market.drawSelectionId < 0)
                 ? null
-                : odds.backOddsBySelection.get(market.drawSelectionId);
-        Double awayOdds = odds == null ? null : odds.backOddsBySelection.get(market.awaySelectionId);
-        Double homeLayOdds = odds == null ? null : odds.layOddsBySelection.get(market.homeSelectionId);
+                : odds.prices.backOrNull(market.drawSelectionId);
+        Double awayOdds = odds == null ? null : odds.prices.backOrNull(market.awaySelectionId);
+        Double homeLayOdds = odds == null ? null : odds.prices.layOrNull(market.homeSelectionId);
         Double drawLayOdds =
             (odds == null || market.drawSelectionId < 0)
                 ? null
-                : odds.layOddsBySelection.get(market.drawSelectionId);
-        Double awayLayOdds = odds == null ? null : odds.layOddsBySelection.get(market.awaySelectionId);
+                : odds.prices.layOrNull(market.drawSelectionId);
+        Double awayLayOdds = odds == null ? null : odds.prices.layOrNull(market.awaySelectionId);
 
         Game game =
             new Game(
@@ -634,16 +693,13 @@ public class BetfairApiClient {
     if (marketIds == null || marketIds.isEmpty()) {
       return Map.of();
     }
+    return marketStatusFlights.fetch(marketIds, this::loadMarketStatuses);
+  }
 
+  private Map<String, MarketStatus> loadMarketStatuses(List<String> marketIds) {
     Map<String, MarketStatus> statusByMarket = new LinkedHashMap<>();
     try {
-      HttpEntity<List<Map<String, Object>>> catalogueRequest =
-          new HttpEntity<>(List.of(buildListMarketCatalogueRequestForMarketIds(marketIds)), buildHeaders());
-      String response = restTemplate.postForObject(rpcBaseUrl, catalogueRequest, String.class);
-      if (response == null || response.isBlank()) {
-        return Map.of();
-      }
-      Map<String, Instant> startTimes = parseMarketStartTimes(response);
+      Map<String, Instant> startTimes = fetchMarketStartTimes(marketIds);
 
       Map<String, MarketBookOdds> oddsByMarket =
           fetchMarketBookOdds(marketIds, LocalDate.now(ZoneOffset.UTC));
@@ -669,18 +725,17 @@ public class BetfairApiClient {
     if (marketIds == null || marketIds.isEmpty()) {
       return Map.of();
     }
+    return marketOutcomeFlights.fetch(marketIds, this::loadMarketOutcomes);
+  }
 
+  private Map<String, MarketOutcome> loadMarketOutcomes(List<String> marketIds) {
     Map<String, MarketOutcome> outcomesByMarket = new LinkedHashMap<>();
     try {
-      for (int i = 0; i < marketIds.size(); i += MARKET_BOOK_BATCH_SIZE) {
-        List<String> batch = marketIds.subList(i, Math.min(i + MARKET_BOOK_BATCH_SIZE, marketIds.size()));
-        HttpEntity<List<Map<String, Object>>> bookRequest =
-            new HttpEntity<>(List.of(buildListMarketBookRequest(batch, true)), buildHeaders());
-        String bookResponse = restTemplate.postForObject(rpcBaseUrl, bookRequest, String.class);
-        if (bookResponse == null || bookResponse.isBlank()) {
-          continue;
+      for (Map<String, MarketOutcome> batchOutcomes :
+          fetchMarketBooksInBatches(marketIds, true, this::collectMarketOutcome)) {
+        if (batchOutcomes != null) {
+          outcomesByMarket.putAll(batchOutcomes);
         }
-        outcomesByMarket.putAll(parseMarketBookOutcomes(bookResponse));
       }
       return outcomesByMarket;
     } catch (Exception ex) {
@@ -825,52 +880,258 @@ public class BetfairApiClient {
       return Map.of();
     }
 
+    // Markets the stream subscription covers are served from its cache; only the rest are polled.
     Map<String, MarketBookOdds> combined = new HashMap<>();
-    for (int i = 0; i < marketIds.size(); i += MARKET_BOOK_BATCH_SIZE) {
-      List<String> batch = marketIds.subList(i, Math.min(i + MARKET_BOOK_BATCH_SIZE, marketIds.size()));
-      HttpEntity<List<Map<String, Object>>> bookRequest =
-          new HttpEntity<>(List.of(buildListMarketBookRequest(batch, false)), buildHeaders());
-      String bookResponse = restTemplate.postForObject(rpcBaseUrl, bookRequest, String.class);
-      if (bookResponse == null || bookResponse.isBlank()) {
+    List<String> polledMarketIds = new ArrayList<>();
+    for (String marketId : marketIds) {
+      MarketStreamCache.Snapshot streamed = streamClient.snapshot(marketId);
+      if (streamed == null) {
+        polledMarketIds.add(marketId);
+        continue;
+      }
+      if ("CLOSED".equalsIgnoreCase(streamed.status())) {
+        catalogueCache.evictClosedMarket(marketId);
+      }
+      combined.put(
+          marketId,
+          new MarketBookOdds(
+              streamed.prices(),
+              streamed.inPlay(),
+              streamed.status(),
+              CaptureLatencyMetrics.SOURCE_STREAM,
+              streamed.publishTime(),
+              0L));
+    }
+    if (polledMarketIds.isEmpty()) {
+      return combined;
+    }
+
+    // A polled book has no publish time; stamping it with the request time counts the round trip.
+    long requestedAt = System.currentTimeMillis();
+    List<Map<String, MarketBookOdds>> batches =
+        fetchMarketBooksInBatches(
+            polledMarketIds,
+            false,
+            (oddsByMarket, market) -> collectMarketBookOdds(oddsByMarket, market, requestedAt));
+    List<String> openMarketIds = new ArrayList<>(polledMarketIds.size());
+    for (int i = 0; i < batches.size(); i++) {
+      Map<String, MarketBookOdds> batchOdds = batches.get(i);
+      if (batchOdds == null) {
         LOGGER.warn(
-            "Betfair listMarketBook returned empty response for {} (batch {}-{})",
+            "Betfair listMarketBook returned no odds for {} (batch {} of {})",
             resolvedDate,
-            i,
-            i + batch.size());
+            i + 1,
+            batches.size());
         continue;
       }
-      combined.putAll(parseMarketBookOdds(bookResponse));
+      combined.putAll(batchOdds);
+      batchOdds.forEach(
+          (marketId, odds) -> {
+            if (!"CLOSED".equalsIgnoreCase(odds.status)) {
+              openMarketIds.add(marketId);
+            }
+          });
     }
+    // Closed markets would only be dropped from the subscription again, so leave them polled.
+    streamClient.subscribe(openMarketIds);
     return combined;
   }
 
+  private <T> List<T> fetchInBatches(
+      String label,
+      List<String> ids,
+      Function<List<String>, Map<String, Object>> requestBuilder,
+      RpcResponseParser<T> parser) {
+    return executeIdBatches(label, ids, requestBuilder, treeReader(label, parser));
+  }
+
+  private <K, V> List<Map<K, V>> fetchMarketBooksInBatches(
+      List<String> marketIds,
+      boolean includeMarketDefinition,
+      BiConsumer<Map<K, V>, MarketBookStreamReader.MarketBook> accumulator) {
+    return fetchMarketBooksInBatches(marketIds, includeMarketDefinition, HashMap::new, accumulator);
+  }
+
+  private <T> List<T> fetchMarketBooksInBatches(
+      List<String> marketIds,
+      boolean includeMarketDefinition,
+      Supplier<T> newResult,
+      BiConsumer<T, MarketBookStreamReader.MarketBook> accumulator) {
+    return executeIdBatches(
+        "listMarketBook",
+        marketIds,
+        batch -> buildListMarketBookRequest(batch, includeMarketDefinition),
+        (body, callCount, tooMuchData) ->
+            marketBookReader.read(
+                body,
+                callCount,
+                newResult,
+                (result, market) -> {
+                  if ("CLOSED".equalsIgnoreCase(market.effectiveStatus())) {
+                    catalogueCache.evictClosedMarket(market.marketId());
+                  }
+                  accumulator.accept(result, market);
+                },
+                tooMuchData));
+  }
+
+  /**
+   * Splits the ids into batches sized by the data-weight planner and sends them. A batch Betfair
+   * rejects as TOO_MUCH_DATA shrinks the planned size and is resent in smaller batches, whose
+   * results take its place in the returned list.
+   */
+  private <T> List<T> executeIdBatches(
+      String label,
+      List<String> ids,
+      Function<List<String>, Map<String, Object>> requestBuilder,
+      EnvelopeReader<T> reader) {
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    Map<String, Object> sampleCall = requestBuilder.apply(ids.subList(0, 1));
+    int batchSize = batchPlanner.batchSize(sampleCall);
+    List<List<String>> batches = new ArrayList<>();
+    List<Map<String, Object>> calls = new ArrayList<>();
+    for (int i = 0; i < ids.size(); i += batchSize) {
+      List<String> batch = ids.subList(i, Math.min(i + batchSize, ids.size()));
+      batches.add(batch);
+      calls.add(requestBuilder.apply(batch));
+    }
+
+    Set<Integer> rejected = ConcurrentHashMap.newKeySet();
+    List<T> results = executeRpcEnvelopes(label, calls, reader, rejected::add);
+    if (rejected.isEmpty()) {
+      return results;
+    }
+    List<T> merged = new ArrayList<>(results.size());
+    for (int i = 0; i < results.size(); i++) {
+      List<String> batch = batches.get(i);
+      if (rejected.contains(i) && batch.size() > 1) {
+        batchPlanner.recordTooMuchData(sampleCall, batch.size());
+        merged.addAll(executeIdBatches(label, batch, requestBuilder, reader));
+      } else {
+        merged.add(results.get(i));
+      }
+    }
+    return merged;
+  }
+
+  private <T> List<T> executeRpcCalls(
+      String label, List<Map<String, Object>> calls, RpcResponseParser<T> parser) {
+    return executeRpcEnvelopes(label, calls, treeReader(label, parser), index -> {});
+  }
+
+  /**
+   * Sends the calls packed into multi-call JSON-RPC envelopes and returns one parsed result per
+   * call, in call order. Each response is routed back to its call by id; a call the envelope has
+   * no response for yields {@code null}, while an envelope that fails or times out fails the whole
+   * request. Calls rejected as TOO_MUCH_DATA are reported by call index to {@code tooMuchData}.
+   */
+  private <T> List<T> executeRpcEnvelopes(
+      String label,
+      List<Map<String, Object>> calls,
+      EnvelopeReader<T> reader,
+      IntConsumer tooMuchData) {
+    if (calls.isEmpty()) {
+      return List.of();
+    }
+    List<Callable<List<T>>> envelopes = new ArrayList<>();
+    for (int i = 0; i < calls.size(); i += maxCallsPerEnvelope) {
+      int offset = i;
+      List<Map<String, Object>> envelope =
+          calls.subList(i, Math.min(i + maxCallsPerEnvelope, calls.size()));
+      envelopes.add(
+          () -> postEnvelope(envelope, reader, index -> tooMuchData.accept(offset + index)));
+    }
+
+    List<T> results = new ArrayList<>(calls.size());
+    List<List<T>> envelopeResults = batchExecutor.invokeAll(label, envelopes);
+    for (int i = 0; i < envelopeResults.size(); i++) {
+      List<T> envelopeResult = envelopeResults.get(i);
+      int envelopeSize = Math.min(maxCallsPerEnvelope, calls.size() - i * maxCallsPerEnvelope);
+      for (int j = 0; j < envelopeSize; j++) {
+        results.add(envelopeResult == null ? null : envelopeResult.get(j));
+      }
+    }
+    return results;
+  }
+
+  private <T> List<T> postEnvelope(
+      List<Map<String, Object>> calls, EnvelopeReader<T> reader, IntConsumer tooMuchData) {
+    List<Map<String, Object>> payload = new ArrayList<>(calls.size());
+    for (int i = 0; i < calls.size(); i++) {
+      Map<String, Object> call = new HashMap<>(calls.get(i));
+      call.put("id", i + 1);
+      payload.add(call);
+    }
+    // Decode straight from the response stream instead of buffering the body into a String.
+    List<T> results =
+        restTemplate.execute(
+            rpcBaseUrl,
+            HttpMethod.POST,
+            restTemplate.httpEntityCallback(new HttpEntity<>(payload, buildHeaders())),
+            response -> reader.read(response.getBody(), calls.size(), tooMuchData));
+    return results == null ? Collections.nCopies(calls.size(), null) : results;
+  }
+
+  private <T> EnvelopeReader<T> treeReader(String label, RpcResponseParser<T> parser) {
+    return (body, callCount, tooMuchData) -> {
+      List<T> results = new ArrayList<>(Collections.<T>nCopies(callCount, null));
+      JsonNode root = objectMapper.readTree(body);
+      if (root == null || root.isMissingNode()) {
+        return results;
+      }
+      if (!root.isArray()) {
+        LOGGER.warn("Betfair {} envelope returned a non-array response: {}", label, root);
+        return results;
+      }
+      for (JsonNode callResponse : root) {
+        int id = callResponse.path("id").asInt(0);
+        if (id < 1 || id > callCount) {
+          LOGGER.warn("Betfair {} envelope returned a response with unknown id {}", label, id);
+          continue;
+        }
+        if (BetfairBatchPlanner.isTooMuchData(callResponse.path("error"))) {
+          tooMuchData.accept(id - 1);
+        }
+        // Parsers expect the single-call array shape, so hand each routed response over wrapped.
+        results.set(id - 1, parser.parse(objectMapper.createArrayNode().add(callResponse)));
+      }
+      return results;
+    };
+  }
+
   private List<MatchOddsMarket> listMatchOddsMarketsForWindows(Instant start, Instant end)
       throws Exception {
     List<MatchOddsMarket> combined = new ArrayList<>();
     Map<String, MatchOddsMarket> byId = new HashMap<>();
 
+    List<Instant[]> windows = new ArrayList<>();
+    List<Map<String, Object>> calls = new ArrayList<>();
     Instant windowStart = start;
     while (windowStart.isBefore(end)) {
       Instant windowEnd = windowStart.plusSeconds(6 * 60 * 60);
       if (windowEnd.isAfter(end)) {
         windowEnd = end;
       }
+      windows.add(new Instant[] {windowStart, windowEnd});
+      calls.add(buildListMarketCatalogueRequest(windowStart, windowEnd));
+      windowStart = windowEnd;
+    }
 
-      HttpEntity<List<Map<String, Object>>> catalogueRequest =
-          new HttpEntity<>(
-              List.of(buildListMarketCatalogueRequest(windowStart, windowEnd)), buildHeaders());
-      String response = restTemplate.postForObject(rpcBaseUrl, catalogueRequest, String.class);
-      if (response == null || response.isBlank()) {
-        LOGGER.warn("Betfair listMarketCatalogue returned empty response for window {} -> {}", windowStart, windowEnd);
-        windowStart = windowEnd;
+    List<List<MatchOddsMarket>> results =
+        executeRpcCalls("listMarketCatalogue", calls, this::parseMatchOddsMarkets);
+    for (int i = 0; i < results.size(); i++) {
+      Instant[] window = windows.get(i);
+      List<MatchOddsMarket> markets = results.get(i);
+      if (markets == null) {
+        LOGGER.warn("Betfair listMarketCatalogue returned empty response for window {} -> {}", window[0], window[1]);
         continue;
       }
-
-      List<MatchOddsMarket> markets = parseMatchOddsMarkets(response);
       LOGGER.info(
           "Betfair listMarketCatalogue window {} -> {} returned {} markets",
-          windowStart,
-          windowEnd,
+          window[0],
+          window[1],
           markets.size());
       for (MatchOddsMarket market : markets) {
         if (!byId.containsKey(market.marketId)) {
@@ -878,8 +1139,6 @@ public class BetfairApiClient {
           combined.add(market);
         }
       }
-
-      windowStart = windowEnd;
     }
 
     return combined;
@@ -910,30 +1169,38 @@ public class BetfairApiClient {
       return List.of();
     }
 
-    HttpEntity<List<Map<String, Object>>> request =
-        new HttpEntity<>(
-            List.of(buildListEventMarketsCatalogueRequest(List.of(eventId.trim()))),
-            buildHeaders());
+    List<EventMarket> markets = listEventMarketCatalogue(eventId, marketTypes);
+    if (markets.isEmpty() || !fillMarketBookOdds(markets)) {
+      return List.of();
+    }
+    markets.sort(Comparator.comparing(EventMarket::getStartTime, Comparator.nullsLast(String::compareTo)));
+    return markets;
+  }
+
+  /**
+   * First half of {@link #listMarketsForEvent}: the event's markets of {@code marketTypes} from the
+   * (cached) catalogue, without status or prices.
+   */
+  public List<EventMarket> listEventMarketCatalogue(String eventId, List<String> marketTypes) {
+    if (!isEnabled() || eventId == null || eventId.isBlank()) {
+      return List.of();
+    }
+    try {
+      List<EventMarket> markets = fetchEventMarketCatalogue(eventId.trim());
+      return markets == null ? List.of() : filterMarketTypes(markets, marketTypes);
+    } catch (Exception ex) {
+      LOGGER.warn("Betfair listMarketsForEvent failed for eventId={}", eventId, ex);
+      return List.of();
+    }
+  }
+
+  /**
+   * Second half of {@link #listMarketsForEvent}: sets status, best prices and publish time on
+   * {@code markets} from the stream cache or listMarketBook. Returns false when the books could
+   * not be fetched.
+   */
+  public boolean fillMarketBookOdds(List<EventMarket> markets) {
     try {
-      String response = restTemplate.postForObject(rpcBaseUrl, request, String.class);
-      if (response == null || response.isBlank()) {
-        return List.of();
-      }
-      List<EventMarket> markets = new ArrayList<>(parseEventMarkets(response, eventId.trim()));
-      Set<String> allowedTypes =
-          marketTypes == null
-              ? Set.of()
-              : marketTypes.stream()
-                  .filter(Objects::nonNull)
-                  .map(this::normalizeMarketType)
-                  .filter(type -> !type.isBlank())
-                  .collect(Collectors.toSet());
-      if (!allowedTypes.isEmpty()) {
-        markets =
-            markets.stream()
-                .filter(m -> allowedTypes.contains(normalizeMarketType(m.getMarketType())))
-                .collect(Collectors.toCollection(ArrayList::new));
-      }
       Map<String, MarketBookOdds> oddsByMarket =
           fetchMarketBookOdds(
               markets.stream().map(EventMarket::getMarketId).filter(Objects::nonNull).toList(),
@@ -941,6 +1208,10 @@ public class BetfairApiClient {
       for (EventMarket market : markets) {
         MarketBookOdds odds = oddsByMarket.get(market.getMarketId());
         market.setMarketStatus(odds == null ? "" : odds.status);
+        market.setPublishTime(odds == null || odds.publishTime <= 0L ? null : odds.publishTime);
+        market.setPublishSource(odds == null ? null : odds.source);
+        market.setLastMatchTime(
+            odds == null || odds.lastMatchTime <= 0L ? null : odds.lastMatchTime);
         if (odds == null || market.getSelections() == null) {
           continue;
         }
@@ -948,16 +1219,64 @@ public class BetfairApiClient {
           if (selection == null || selection.getSelectionId() == null) {
             continue;
           }
-          selection.setBackOdds(odds.backOddsBySelection.get(selection.getSelectionId()));
-          selection.setLayOdds(odds.layOddsBySelection.get(selection.getSelectionId()));
+          selection.setBackOdds(odds.prices.backOrNull(selection.getSelectionId()));
+          selection.setLayOdds(odds.prices.layOrNull(selection.getSelectionId()));
         }
       }
-      markets.sort(Comparator.comparing(EventMarket::getStartTime, Comparator.nullsLast(String::compareTo)));
-      return markets;
+      return true;
     } catch (Exception ex) {
-      LOGGER.warn("Betfair listMarketsForEvent failed for eventId={}", eventId, ex);
-      return List.of();
+      LOGGER.warn("Betfair listMarketBook failed for {} event markets", markets.size(), ex);
+      return false;
+    }
+  }
+
+  /**
+   * Loads an event's market catalogue into the catalogue cache and subscribes its markets to the
+   * stream ahead of kick-off, so the first in-play capture finds both warm. Returns the catalogue
+   * without prices.
+   */
+  public List<EventMarket> prewarmEventMarkets(String eventId, List<String> marketTypes) {
+    List<EventMarket> markets = listEventMarketCatalogue(eventId, marketTypes);
+    streamClient.subscribe(
+        markets.stream().map(EventMarket::getMarketId).filter(Objects::nonNull).toList());
+    return markets;
+  }
+
+  private List<EventMarket> filterMarketTypes(List<EventMarket> markets, List<String> marketTypes) {
+    Set<String> allowedTypes =
+        marketTypes == null
+            ? Set.of()
+            : marketTypes.stream()
+                .filter(Objects::nonNull)
+                .map(this::normalizeMarketType)
+                .filter(type -> !type.isBlank())
+                .collect(Collectors.toSet());
+    if (allowedTypes.isEmpty()) {
+      return markets;
+    }
+    return markets.stream()
+        .filter(m -> allowedTypes.contains(normalizeMarketType(m.getMarketType())))
+        .collect(Collectors.toCollection(ArrayList::new));
+  }
+
+  /** Catalogue of an event's markets without prices; {@code null} when Betfair returned nothing. */
+  private List<EventMarket> fetchEventMarketCatalogue(String eventId) throws Exception {
+    List<EventMarket> cached = catalogueCache.eventMarkets(eventId);
+    if (cached != null) {
+      return cached;
+    }
+    HttpEntity<List<Map<String, Object>>> request =
+        new HttpEntity<>(
+            List.of(buildListEventMarketsCatalogueRequest(List.of(eventId))), buildHeaders());
+    String response = restTemplate.postForObject(rpcBaseUrl, request, String.class);
+    if (response == null || response.isBlank()) {
+      return null;
+    }
+    List<EventMarket> markets = new ArrayList<>(parseEventMarkets(objectMapper.readTree(response), eventId));
+    if (!markets.isEmpty()) {
+      catalogueCache.putEventMarkets(eventId, markets);
     }
+    return markets;
   }
 
   private List<Game> listEvents(LocalDate date) {
@@ -975,7 +1294,7 @@ public class BetfairApiClient {
         LOGGER.warn("Betfair listEvents returned an empty response for {}", date == null ? "all dates" : date);
         return List.of();
       }
-      List<Game> games = parseEvents(response);
+      List<Game> games = parseEvents(objectMapper.readTree(response));
       LOGGER.info(
           "Betfair listEvents returned {} events for {}",
           games.size(),
@@ -1030,28 +1349,17 @@ public class BetfairApiClient {
       return Map.of();
     }
     try {
+      // One catalogue query per event batch covers every auxiliary type; parseAuxiliaryMarkets
+      // classifies the returned markets by type.
       List<AuxiliaryMarket> auxMarkets = new ArrayList<>();
-      List<String> auxiliaryMarketTypes =
-          List.of(
-              "OVER_UNDER_05",
-              "OVER_UNDER_15",
-              "OVER_UNDER_25",
-              "HALF_TIME",
-              "CORRECT_SCORE",
-              "CORRECT_SCORE2",
-              "ALT_CORRECT_SCORE");
-      for (String marketType : auxiliaryMarketTypes) {
-        for (int i = 0; i < eventIds.size(); i += AUX_EVENT_BATCH_SIZE) {
-          List<String> batch = eventIds.subList(i, Math.min(i + AUX_EVENT_BATCH_SIZE, eventIds.size()));
-          HttpEntity<List<Map<String, Object>>> catalogueRequest =
-              new HttpEntity<>(
-                  List.of(buildListAuxiliaryMarketCatalogueRequest(batch, marketType)),
-                  buildHeaders());
-          String response = restTemplate.postForObject(rpcBaseUrl, catalogueRequest, String.class);
-          if (response == null || response.isBlank()) {
-            continue;
-          }
-          auxMarkets.addAll(parseAuxiliaryMarkets(response));
+      for (List<AuxiliaryMarket> markets :
+          fetchInBatches(
+              "listMarketCatalogue",
+              eventIds,
+              batch -> buildListAuxiliaryMarketCatalogueRequest(batch, AUXILIARY_MARKET_TYPES),
+              this::parseAuxiliaryMarkets)) {
+        if (markets != null) {
+          auxMarkets.addAll(markets);
         }
       }
       if (auxMarkets.isEmpty()) {
@@ -1071,22 +1379,22 @@ public class BetfairApiClient {
         }
         AuxiliaryOdds target = byEvent.computeIfAbsent(market.eventId, key -> new AuxiliaryOdds());
         if ("OVER_UNDER_05".equals(market.marketType)) {
-          target.over05Odds = odds.backOddsBySelection.get(market.primarySelectionId);
-          target.under05Odds = odds.backOddsBySelection.get(market.secondarySelectionId);
+          target.over05Odds = odds.prices.backOrNull(market.primarySelectionId);
+          target.under05Odds = odds.prices.backOrNull(market.secondarySelectionId);
           target.ou05MarketStatus = odds.status;
         } else if ("OVER_UNDER_15".equals(market.marketType)) {
-          target.over15Odds = odds.backOddsBySelection.get(market.primarySelectionId);
-          target.under15Odds = odds.backOddsBySelection.get(market.secondarySelectionId);
+          target.over15Odds = odds.prices.backOrNull(market.primarySelectionId);
+          target.under15Odds = odds.prices.backOrNull(market.secondarySelectionId);
         } else if ("OVER_UNDER_25".equals(market.marketType)) {
-          target.over25Odds = odds.backOddsBySelection.get(market.primarySelectionId);
-          target.under25Odds = odds.backOddsBySelection.get(market.secondarySelectionId);
+          target.over25Odds = odds.prices.backOrNull(market.primarySelectionId);
+          target.under25Odds = odds.prices.backOrNull(market.secondarySelectionId);
         } else if ("HALF_TIME".equals(market.marketType)) {
-          target.htHomeOdds = odds.backOddsBySelection.get(market.primarySelectionId);
-          target.htDrawOdds = odds.backOddsBySelection.get(market.drawSelectionId);
-          target.htAwayOdds = odds.backOddsBySelection.get(market.secondarySelectionId);
+          target.htHomeOdds = odds.prices.backOrNull(market.primarySelectionId);
+          target.htDrawOdds = odds.prices.backOrNull(market.drawSelectionId);
+          target.htAwayOdds = odds.prices.backOrNull(market.secondarySelectionId);
           target.htMarketStatus = odds.status;
         } else if (isCorrectScoreMarketType(market.marketType)) {
-          Double odd = odds.backOddsBySelection.get(market.primarySelectionId);
+          Double odd = odds.prices.backOrNull(market.primarySelectionId);
           if (target.fullTime00Odds == null && odd != null) {
             target.fullTime00Odds = odd;
           }
@@ -1220,16 +1528,16 @@ public class BetfairApiClient {
   }
 
   private Map<String, Object> buildListAuxiliaryMarketCatalogueRequest(
-      List<String> eventIds, String marketTypeCode) {
+      List<String> eventIds, List<String> marketTypeCodes) {
     Map<String, Object> filter = new HashMap<>();
     filter.put("eventTypeIds", List.of(FOOTBALL_EVENT_TYPE_ID));
     filter.put("eventIds", eventIds);
-    filter.put("marketTypeCodes", List.of(marketTypeCode));
+    filter.put("marketTypeCodes", marketTypeCodes);
     filter.put("inPlayOnly", false);
 
     Map<String, Object> params = new HashMap<>();
     params.put("filter", filter);
-    params.put("maxResults", "300");
+    params.put("maxResults", "1000");
     params.put(
         "marketProjection",
         List.of("EVENT", "RUNNER_DESCRIPTION", "MARKET_START_TIME", "MARKET_DESCRIPTION"));
@@ -1281,7 +1589,7 @@ public class BetfairApiClient {
       if (response == null || response.isBlank()) {
         return List.of();
       }
-      return parseMatchOddsMarkets(response);
+      return parseMatchOddsMarkets(objectMapper.readTree(response));
     } catch (Exception ex) {
       LOGGER.warn("Betfair listInPlayFootballMarkets failed", ex);
       return List.of();
@@ -1292,8 +1600,7 @@ public class BetfairApiClient {
     return value == null ? "" : value.trim().toUpperCase();
   }
 
-  private List<AuxiliaryMarket> parseAuxiliaryMarkets(String response) throws Exception {
-    JsonNode root = objectMapper.readTree(response);
+  private List<AuxiliaryMarket> parseAuxiliaryMarkets(JsonNode root) {
     if (!root.isArray() || root.isEmpty()) {
       return List.of();
     }
@@ -1445,8 +1752,7 @@ public class BetfairApiClient {
     return "";
   }
 
-  private Map<String, Instant> parseMarketStartTimes(String response) throws Exception {
-    JsonNode root = objectMapper.readTree(response);
+  private Map<String, Instant> parseMarketStartTimes(JsonNode root) {
     if (!root.isArray() || root.isEmpty()) {
       return Map.of();
     }
@@ -1477,8 +1783,7 @@ public class BetfairApiClient {
     return startTimes;
   }
 
-  private List<Game> parseEvents(String response) throws Exception {
-    JsonNode root = objectMapper.readTree(response);
+  private List<Game> parseEvents(JsonNode root) {
     if (!root.isArray() || root.isEmpty()) {
       return List.of();
     }
@@ -1515,8 +1820,7 @@ public class BetfairApiClient {
     return games;
   }
 
-  private List<MatchOddsMarket> parseMatchOddsMarkets(String response) throws Exception {
-    JsonNode root = objectMapper.readTree(response);
+  private List<MatchOddsMarket> parseMatchOddsMarkets(JsonNode root) {
     if (!root.isArray() || root.isEmpty()) {
       return List.of();
     }
@@ -1589,8 +1893,7 @@ public class BetfairApiClient {
     return markets;
   }
 
-  private List<EventMarket> parseEventMarkets(String response, String eventId) throws Exception {
-    JsonNode root = objectMapper.readTree(response);
+  private List<EventMarket> parseEventMarkets(JsonNode root, String eventId) {
     if (!root.isArray() || root.isEmpty()) {
       return List.of();
     }
@@ -1640,127 +1943,71 @@ public class BetfairApiClient {
     return markets;
   }
 
-  private Map<String, MarketBookOdds> parseMarketBookOdds(String response) throws Exception {
-    JsonNode root = objectMapper.readTree(response);
-    if (!root.isArray() || root.isEmpty()) {
-      return Map.of();
-    }
-    JsonNode first = root.get(0);
-    JsonNode error = first.path("error");
-    if (!error.isMissingNode() && !error.isNull()) {
-      LOGGER.warn("Betfair listMarketBook error: {}", error.toString());
-      return Map.of();
-    }
-    JsonNode result = first.path("result");
-    if (!result.isArray()) {
-      return Map.of();
-    }
-    Map<String, MarketBookOdds> oddsByMarket = new HashMap<>();
-    for (JsonNode market : result) {
-      String marketId = market.path("marketId").asText();
-      boolean inPlay = market.path("inplay").asBoolean(false);
-      String status = market.path("status").asText("");
-      Map<Long, Double> runnerBackOdds = new HashMap<>();
-      Map<Long, Double> runnerLayOdds = new HashMap<>();
-      for (JsonNode runner : market.path("runners")) {
-        long selectionId = runner.path("selectionId").asLong();
-        JsonNode availableToBack = runner.path("ex").path("availableToBack");
-        if (availableToBack.isArray() && availableToBack.size() > 0) {
-          double price = availableToBack.get(0).path("price").asDouble();
-          runnerBackOdds.put(selectionId, price);
-        }
-        JsonNode availableToLay = runner.path("ex").path("availableToLay");
-        if (availableToLay.isArray() && availableToLay.size() > 0) {
-          double price = availableToLay.get(0).path("price").asDouble();
-          runnerLayOdds.put(selectionId, price);
-        }
+  private Map<String, EventRef> fetchEventRefsForMarkets(List<String> marketIds) throws Exception {
+    Map<String, EventRef> refs = new HashMap<>();
+    catalogueCache
+        .eventIdentities(marketIds)
+        .forEach(
+            (marketId, identity) ->
+                refs.put(marketId, new EventRef(identity.getEventId(), identity.getEventName())));
+    List<String> missing = marketIds.stream().filter(id -> !refs.containsKey(id)).toList();
+    if (missing.isEmpty()) {
+      return refs;
+    }
+
+    Map<String, EventIdentity> fetched = new HashMap<>();
+    for (Map<String, EventRef> batchRefs :
+        fetchInBatches(
+            "listMarketCatalogue",
+            missing,
+            batch -> buildListMarketCatalogueRequestForMarketIds(batch, true),
+            this::parseEventRefsByMarketId)) {
+      if (batchRefs == null) {
+        continue;
       }
-      oddsByMarket.put(marketId, new MarketBookOdds(runnerBackOdds, runnerLayOdds, inPlay, status));
+      refs.putAll(batchRefs);
+      batchRefs.forEach(
+          (marketId, ref) ->
+              fetched.put(marketId, new EventIdentity(ref.eventId(), ref.eventName())));
     }
-    return oddsByMarket;
+    catalogueCache.putEventIdentities(fetched);
+    return refs;
   }
 
-  private Map<String, MarketOutcome> parseMarketBookOutcomes(String response) throws Exception {
-    JsonNode root = objectMapper.readTree(response);
-    if (!root.isArray() || root.isEmpty()) {
-      return Map.of();
-    }
-    JsonNode first = root.get(0);
-    JsonNode error = first.path("error");
-    if (!error.isMissingNode() && !error.isNull()) {
-      LOGGER.warn("Betfair listMarketBook error: {}", error.toString());
-      return Map.of();
-    }
-    JsonNode result = first.path("result");
-    if (!result.isArray()) {
-      return Map.of();
-    }
-
-    Map<String, MarketOutcome> outcomes = new HashMap<>();
-    for (JsonNode market : result) {
-      String marketId = market.path("marketId").asText();
-      boolean inPlay = market.path("inplay").asBoolean(false);
-      JsonNode marketDefinition = market.path("marketDefinition");
-      String status =
-          marketDefinition.isMissingNode() || marketDefinition.isNull()
-              ? market.path("status").asText("")
-              : marketDefinition.path("status").asText(market.path("status").asText(""));
-      Long winnerSelectionId = null;
-      JsonNode runners =
-          marketDefinition.isMissingNode() || marketDefinition.isNull()
-              ? market.path("runners")
-              : marketDefinition.path("runners");
-      if (runners.isArray()) {
-        for (JsonNode runner : runners) {
-          String runnerStatus = runner.path("status").asText("");
-          if ("WINNER".equalsIgnoreCase(runnerStatus)) {
-            winnerSelectionId = runner.path("selectionId").asLong();
-            break;
-          }
-        }
-      }
-      Integer homeScore = extractScoreValue(marketDefinition.path("score"), "home", "homeScore");
-      Integer awayScore = extractScoreValue(marketDefinition.path("score"), "away", "awayScore");
-      if (homeScore == null) {
-        homeScore = extractScoreValue(market, "homeScore", "scoreHome");
-      }
-      if (awayScore == null) {
-        awayScore = extractScoreValue(market, "awayScore", "scoreAway");
-      }
-      outcomes.put(
-          marketId,
-          new MarketOutcome(
-              marketId, status == null ? "" : status, inPlay, winnerSelectionId, homeScore, awayScore));
+  private Map<String, Instant> fetchMarketStartTimes(List<String> marketIds) throws Exception {
+    Map<String, Instant> startTimes = new HashMap<>(catalogueCache.startTimes(marketIds));
+    List<String> missing = marketIds.stream().filter(id -> !startTimes.containsKey(id)).toList();
+    if (missing.isEmpty()) {
+      return startTimes;
     }
-    return outcomes;
-  }
 
-  private Map<String, EventRef> fetchEventRefsForMarkets(List<String> marketIds) throws Exception {
-    Map<String, EventRef> refs = new HashMap<>();
-    for (int i = 0; i < marketIds.size(); i += MARKET_BOOK_BATCH_SIZE) {
-      List<String> batch = marketIds.subList(i, Math.min(i + MARKET_BOOK_BATCH_SIZE, marketIds.size()));
-      HttpEntity<List<Map<String, Object>>> catalogueRequest =
-          new HttpEntity<>(List.of(buildListMarketCatalogueRequestForMarketIds(batch, true)), buildHeaders());
-      String response = restTemplate.postForObject(rpcBaseUrl, catalogueRequest, String.class);
-      if (response == null || response.isBlank()) {
-        continue;
+    Map<String, Instant> fetched = new HashMap<>();
+    for (Map<String, Instant> batchTimes :
+        fetchInBatches(
+            "listMarketCatalogue",
+            missing,
+            this::buildListMarketCatalogueRequestForMarketIds,
+            this::parseMarketStartTimes)) {
+      if (batchTimes != null) {
+        fetched.putAll(batchTimes);
       }
-      refs.putAll(parseEventRefsByMarketId(response));
     }
-    return refs;
+    catalogueCache.putStartTimes(fetched);
+    startTimes.putAll(fetched);
+    return startTimes;
   }
 
   private List<GoalLineMarketRef> fetchGoalLineMarketsForEvents(List<String> eventIds) throws Exception {
     List<GoalLineMarketRef> refs = new ArrayList<>();
-    for (int i = 0; i < eventIds.size(); i += AUX_EVENT_BATCH_SIZE) {
-      List<String> batch = eventIds.subList(i, Math.min(i + AUX_EVENT_BATCH_SIZE, eventIds.size()));
-      HttpEntity<List<Map<String, Object>>> catalogueRequest =
-          new HttpEntity<>(List.of(buildListEventMarketsCatalogueRequest(batch)), buildHeaders());
-      String response = restTemplate.postForObject(rpcBaseUrl, catalogueRequest, String.class);
-      if (response == null || response.isBlank()) {
-        continue;
+    for (List<GoalLineMarketRef> batchRefs :
+        fetchInBatches(
+            "listMarketCatalogue",
+            eventIds,
+            this::buildListEventMarketsCatalogueRequest,
+            this::parseGoalLineMarkets)) {
+      if (batchRefs != null) {
+        refs.addAll(batchRefs);
       }
-      refs.addAll(parseGoalLineMarkets(response));
     }
     return refs;
   }
@@ -1768,19 +2015,14 @@ public class BetfairApiClient {
   private List<CorrectScoreMarketRef> fetchCorrectScoreMarketsForEvents(List<String> eventIds)
       throws Exception {
     List<CorrectScoreMarketRef> refs = new ArrayList<>();
-    List<String> scoreMarketTypes = List.of("CORRECT_SCORE", "CORRECT_SCORE2", "ALT_CORRECT_SCORE");
-    for (int i = 0; i < eventIds.size(); i += AUX_EVENT_BATCH_SIZE) {
-      List<String> batch = eventIds.subList(i, Math.min(i + AUX_EVENT_BATCH_SIZE, eventIds.size()));
-      for (String marketType : scoreMarketTypes) {
-        HttpEntity<List<Map<String, Object>>> catalogueRequest =
-            new HttpEntity<>(
-                List.of(buildListAuxiliaryMarketCatalogueRequest(batch, marketType)),
-                buildHeaders());
-        String response = restTemplate.postForObject(rpcBaseUrl, catalogueRequest, String.class);
-        if (response == null || response.isBlank()) {
-          continue;
-        }
-        refs.addAll(parseCorrectScoreMarkets(response));
+    for (List<CorrectScoreMarketRef> batchRefs :
+        fetchInBatches(
+            "listMarketCatalogue",
+            eventIds,
+            batch -> buildListAuxiliaryMarketCatalogueRequest(batch, CORRECT_SCORE_MARKET_TYPES),
+            this::parseCorrectScoreMarkets)) {
+      if (batchRefs != null) {
+        refs.addAll(batchRefs);
       }
     }
     return refs;
@@ -1789,15 +2031,11 @@ public class BetfairApiClient {
   private Map<String, MarketBookOutcome> fetchMarketBookOutcomeByMarketId(List<String> marketIds)
       throws Exception {
     Map<String, MarketBookOutcome> outcomes = new HashMap<>();
-    for (int i = 0; i < marketIds.size(); i += MARKET_BOOK_BATCH_SIZE) {
-      List<String> batch = marketIds.subList(i, Math.min(i + MARKET_BOOK_BATCH_SIZE, marketIds.size()));
-      HttpEntity<List<Map<String, Object>>> bookRequest =
-          new HttpEntity<>(List.of(buildListMarketBookRequest(batch, true)), buildHeaders());
-      String response = restTemplate.postForObject(rpcBaseUrl, bookRequest, String.class);
-      if (response == null || response.isBlank()) {
-        continue;
+    for (Map<String, MarketBookOutcome> batchOutcomes :
+        fetchMarketBooksInBatches(marketIds, true, this::collectGoalLineOutcome)) {
+      if (batchOutcomes != null) {
+        outcomes.putAll(batchOutcomes);
       }
-      outcomes.putAll(parseMarketBookGoalOutcomes(response));
     }
     return outcomes;
   }
@@ -1805,21 +2043,25 @@ public class BetfairApiClient {
   private Map<String, InferredScore> fetchCorrectScoreByMarketId(List<String> marketIds)
       throws Exception {
     Map<String, InferredScore> scores = new HashMap<>();
-    for (int i = 0; i < marketIds.size(); i += MARKET_BOOK_BATCH_SIZE) {
-      List<String> batch = marketIds.subList(i, Math.min(i + MARKET_BOOK_BATCH_SIZE, marketIds.size()));
-      HttpEntity<List<Map<String, Object>>> bookRequest =
-          new HttpEntity<>(List.of(buildListMarketBookRequest(batch, true)), buildHeaders());
-      String response = restTemplate.postForObject(rpcBaseUrl, bookRequest, String.class);
-      if (response == null || response.isBlank()) {
+    for (CorrectScoreScan scan :
+        fetchMarketBooksInBatches(marketIds, true, CorrectScoreScan::new, this::collectCorrectScore)) {
+      if (scan == null) {
         continue;
       }
-      scores.putAll(parseCorrectScoreFromMarketBook(response));
+      LOGGER.info(
+          "[SCORE_DEBUG] marketBook scan total={} scoreNode={} closed={} winnerRunner={} likelyRunner={} parsed={}",
+          scan.total,
+          scan.withScoreNode,
+          scan.closed,
+          scan.withWinnerRunner,
+          scan.withLikelyRunner,
+          scan.scores.size());
+      scores.putAll(scan.scores);
     }
     return scores;
   }
 
-  private Map<String, EventRef> parseEventRefsByMarketId(String response) throws Exception {
-    JsonNode root = objectMapper.readTree(response);
+  private Map<String, EventRef> parseEventRefsByMarketId(JsonNode root) {
     if (!root.isArray() || root.isEmpty()) {
       return Map.of();
     }
@@ -1846,8 +2088,7 @@ public class BetfairApiClient {
     return refs;
   }
 
-  private List<GoalLineMarketRef> parseGoalLineMarkets(String response) throws Exception {
-    JsonNode root = objectMapper.readTree(response);
+  private List<GoalLineMarketRef> parseGoalLineMarkets(JsonNode root) {
     if (!root.isArray() || root.isEmpty()) {
       return List.of();
     }
@@ -1887,8 +2128,7 @@ public class BetfairApiClient {
     return refs;
   }
 
-  private List<CorrectScoreMarketRef> parseCorrectScoreMarkets(String response) throws Exception {
-    JsonNode root = objectMapper.readTree(response);
+  private List<CorrectScoreMarketRef> parseCorrectScoreMarkets(JsonNode root) {
     if (!root.isArray() || root.isEmpty()) {
       return List.of();
     }
@@ -1914,206 +2154,124 @@ public class BetfairApiClient {
     return refs;
   }
 
-  private Map<String, MarketBookOutcome> parseMarketBookGoalOutcomes(String response) throws Exception {
-    JsonNode root = objectMapper.readTree(response);
-    if (!root.isArray() || root.isEmpty()) {
-      return Map.of();
+  private void collectMarketBookOdds(
+      Map<String, MarketBookOdds> oddsByMarket,
+      MarketBookStreamReader.MarketBook market,
+      long requestedAt) {
+    RunnerPrices.Builder prices = new RunnerPrices.Builder(market.runnerCount());
+    for (int i = 0; i < market.runnerCount(); i++) {
+      long selectionId = market.selectionId(i);
+      prices.back(selectionId, market.bestBack(i)).lay(selectionId, market.bestLay(i));
     }
-    JsonNode first = root.get(0);
-    JsonNode error = first.path("error");
-    if (!error.isMissingNode() && !error.isNull()) {
-      LOGGER.warn("Betfair listMarketBook error: {}", error.toString());
-      return Map.of();
+    oddsByMarket.put(
+        market.marketId(),
+        new MarketBookOdds(
+            prices.build(),
+            market.inPlay(),
+            market.status(),
+            CaptureLatencyMetrics.SOURCE_POLLED,
+            requestedAt,
+            market.lastMatchTime()));
+  }
+
+  private void collectMarketOutcome(
+      Map<String, MarketOutcome> outcomes, MarketBookStreamReader.MarketBook market) {
+    Integer homeScore = extractScoreValue(market.definitionScore(), "home", "homeScore");
+    Integer awayScore = extractScoreValue(market.definitionScore(), "away", "awayScore");
+    if (homeScore == null) {
+      homeScore = extractScoreValue(market.marketScoreFields(), "homeScore", "scoreHome");
     }
-    JsonNode result = first.path("result");
-    if (!result.isArray()) {
-      return Map.of();
+    if (awayScore == null) {
+      awayScore = extractScoreValue(market.marketScoreFields(), "awayScore", "scoreAway");
     }
+    String status = market.effectiveStatus();
+    outcomes.put(
+        market.marketId(),
+        new MarketOutcome(
+            market.marketId(),
+            status == null ? "" : status,
+            market.inPlay(),
+            market.winnerSelectionId(),
+            homeScore,
+            awayScore));
+  }
 
-    Map<String, MarketBookOutcome> outcomes = new HashMap<>();
-    for (JsonNode market : result) {
-      String marketId = market.path("marketId").asText("");
-      if (marketId.isBlank()) {
-        continue;
-      }
-      JsonNode marketDefinition = market.path("marketDefinition");
-      String status =
-          marketDefinition.isMissingNode() || marketDefinition.isNull()
-              ? market.path("status").asText("")
-              : marketDefinition.path("status").asText(market.path("status").asText(""));
-      boolean closed = "CLOSED".equalsIgnoreCase(status);
-      JsonNode runnerNamesSource = market.path("runners");
-      Map<Long, String> runnerNamesBySelectionId = new HashMap<>();
-      if (runnerNamesSource.isArray()) {
-        for (JsonNode runner : runnerNamesSource) {
-          long selectionId = runner.path("selectionId").asLong(-1L);
-          if (selectionId <= 0L) {
-            continue;
-          }
-          String name = runner.path("runnerName").asText(runner.path("name").asText(""));
-          if (name != null && !name.isBlank()) {
-            runnerNamesBySelectionId.put(selectionId, name);
-          }
-        }
-      }
-
-      Long winnerSelectionId = null;
-      JsonNode runners =
-          marketDefinition.isMissingNode() || marketDefinition.isNull()
-              ? market.path("runners")
-              : marketDefinition.path("runners");
-      if (runners.isArray()) {
-        for (JsonNode runner : runners) {
-          if (!"WINNER".equalsIgnoreCase(runner.path("status").asText(""))) {
-            continue;
-          }
-          long selectionId = runner.path("selectionId").asLong(-1L);
-          if (selectionId > 0L) {
-            winnerSelectionId = selectionId;
-          }
-          break;
-        }
-      }
-      Boolean winnerOver = null;
-      if (winnerSelectionId != null) {
-        String winnerName = runnerNamesBySelectionId.getOrDefault(winnerSelectionId, "").toLowerCase();
-        if (winnerName.contains("over")) {
-          winnerOver = true;
-        } else if (winnerName.contains("under")) {
-          winnerOver = false;
-        }
+  private void collectGoalLineOutcome(
+      Map<String, MarketBookOutcome> outcomes, MarketBookStreamReader.MarketBook market) {
+    if (market.marketId().isBlank()) {
+      return;
+    }
+    boolean closed = "CLOSED".equalsIgnoreCase(market.effectiveStatus());
+    Long winnerSelectionId = market.winnerSelectionId();
+    Boolean winnerOver = null;
+    if (winnerSelectionId != null && winnerSelectionId > 0L) {
+      String winnerName = market.runnerName(winnerSelectionId).toLowerCase();
+      if (winnerName.contains("over")) {
+        winnerOver = true;
+      } else if (winnerName.contains("under")) {
+        winnerOver = false;
       }
-      outcomes.put(marketId, new MarketBookOutcome(closed, winnerOver));
     }
-    return outcomes;
+    outcomes.put(market.marketId(), new MarketBookOutcome(closed, winnerOver));
   }
 
-  private Map<String, InferredScore> parseCorrectScoreFromMarketBook(String response) throws Exception {
-    JsonNode root = objectMapper.readTree(response);
-    if (!root.isArray() || root.isEmpty()) {
-      return Map.of();
+  private void collectCorrectScore(CorrectScoreScan scan, MarketBookStreamReader.MarketBook market) {
+    String marketId = market.marketId();
+    if (marketId.isBlank()) {
+      return;
     }
-    JsonNode first = root.get(0);
-    JsonNode error = first.path("error");
-    if (!error.isMissingNode() && !error.isNull()) {
-      LOGGER.warn("Betfair listMarketBook error: {}", error.toString());
-      return Map.of();
+    scan.total++;
+    JsonNode scoreNode = market.definitionScore();
+    if (scoreNode == null || scoreNode.isNull()) {
+      scoreNode = market.marketScore();
     }
-    JsonNode result = first.path("result");
-    if (!result.isArray()) {
-      return Map.of();
+    if (scoreNode != null && !scoreNode.isNull()) {
+      scan.withScoreNode++;
+    }
+    Integer home = extractScoreValue(scoreNode, "home", "homeScore", "homeGoals");
+    Integer away = extractScoreValue(scoreNode, "away", "awayScore", "awayGoals");
+    if (home != null && away != null) {
+      scan.scores.put(marketId, new InferredScore(home, away, home + "-" + away));
+      return;
     }
-    Map<String, InferredScore> scores = new HashMap<>();
-    int closedMarkets = 0;
-    int marketsWithScoreNode = 0;
-    int marketsWithWinnerRunner = 0;
-    int marketsWithLikelyRunner = 0;
-    for (JsonNode market : result) {
-      String marketId = market.path("marketId").asText("");
-      if (marketId.isBlank()) {
-        continue;
-      }
-      JsonNode marketDefinition = market.path("marketDefinition");
-      JsonNode scoreNode = marketDefinition.path("score");
-      if (scoreNode.isMissingNode() || scoreNode.isNull()) {
-        scoreNode = market.path("score");
-      }
-      if (!scoreNode.isMissingNode() && !scoreNode.isNull()) {
-        marketsWithScoreNode++;
-      }
-      Integer home = extractScoreValue(scoreNode, "home", "homeScore", "homeGoals");
-      Integer away = extractScoreValue(scoreNode, "away", "awayScore", "awayGoals");
-      if (home != null && away != null) {
-        scores.put(marketId, new InferredScore(home, away, home + "-" + away));
-        continue;
-      }
-
-      String status =
-          marketDefinition.isMissingNode() || marketDefinition.isNull()
-              ? market.path("status").asText("")
-              : marketDefinition.path("status").asText(market.path("status").asText(""));
-      if (!"CLOSED".equalsIgnoreCase(status)) {
-        continue;
-      }
-      closedMarkets++;
-
-      Map<Long, String> runnerNamesBySelectionId = new HashMap<>();
-      JsonNode runnersWithNames = market.path("runners");
-      if (runnersWithNames.isArray()) {
-        for (JsonNode runner : runnersWithNames) {
-          long selectionId = runner.path("selectionId").asLong(-1L);
-          if (selectionId <= 0L) {
-            continue;
-          }
-          String runnerName = runner.path("runnerName").asText(runner.path("name").asText(""));
-          if (runnerName != null && !runnerName.isBlank()) {
-            runnerNamesBySelectionId.put(selectionId, runnerName);
-          }
-        }
-      }
-
-      Long winnerSelectionId = null;
-      JsonNode runners =
-          marketDefinition.isMissingNode() || marketDefinition.isNull()
-              ? market.path("runners")
-              : marketDefinition.path("runners");
-      if (runners.isArray()) {
-        for (JsonNode runner : runners) {
-          if (!"WINNER".equalsIgnoreCase(runner.path("status").asText(""))) {
-            continue;
-          }
-          long selectionId = runner.path("selectionId").asLong(-1L);
-          if (selectionId > 0L) {
-            winnerSelectionId = selectionId;
-          }
-          break;
-        }
-      }
-      if (winnerSelectionId == null) {
-        continue;
-      }
-      marketsWithWinnerRunner++;
-      String winnerName = runnerNamesBySelectionId.getOrDefault(winnerSelectionId, "");
-      InferredScore parsed = parseScoreFromRunnerName(winnerName);
-      if (parsed != null) {
-        scores.put(marketId, parsed);
-        continue;
-      }
 
-      InferredScore likely = inferLikelyScoreFromRunnerPrices(market);
-      if (likely != null) {
-        marketsWithLikelyRunner++;
-        scores.put(marketId, likely);
-      }
+    if (!"CLOSED".equalsIgnoreCase(market.effectiveStatus())) {
+      return;
     }
-    LOGGER.info(
-        "[SCORE_DEBUG] marketBook scan total={} scoreNode={} closed={} winnerRunner={} likelyRunner={} parsed={}",
-        result.size(),
-        marketsWithScoreNode,
-        closedMarkets,
-        marketsWithWinnerRunner,
-        marketsWithLikelyRunner,
-        scores.size());
-    return scores;
-  }
+    scan.closed++;
 
-  private InferredScore inferLikelyScoreFromRunnerPrices(JsonNode market) {
-    JsonNode runners = market.path("runners");
-    if (!runners.isArray()) {
-      return null;
+    Long winnerSelectionId = market.winnerSelectionId();
+    if (winnerSelectionId == null || winnerSelectionId <= 0L) {
+      return;
+    }
+    scan.withWinnerRunner++;
+    InferredScore parsed = parseScoreFromRunnerName(market.runnerName(winnerSelectionId));
+    if (parsed != null) {
+      scan.scores.put(marketId, parsed);
+      return;
     }
 
+    InferredScore likely = inferLikelyScoreFromRunnerPrices(market);
+    if (likely != null) {
+      scan.withLikelyRunner++;
+      scan.scores.put(marketId, likely);
+    }
+  }
+
+  private InferredScore inferLikelyScoreFromRunnerPrices(MarketBookStreamReader.MarketBook market) {
     double bestPrice = Double.MAX_VALUE;
     String bestRunnerName = null;
-    for (JsonNode runner : runners) {
-      String runnerName = runner.path("runnerName").asText(runner.path("name").asText(""));
-      if (runnerName == null || runnerName.isBlank()) {
+    for (int i = 0; i < market.runnerCount(); i++) {
+      String runnerName = market.runnerName(i);
+      if (runnerName.isBlank()) {
         continue;
       }
-      Double candidate = extractBestRunnerPrice(runner);
-      if (candidate == null) {
+      double back = market.bestBack(i);
+      double lay = market.bestLay(i);
+      if (Double.isNaN(back) && Double.isNaN(lay)) {
         continue;
       }
+      double candidate = Double.isNaN(back) ? lay : (Double.isNaN(lay) ? back : Math.min(back, lay));
       if (candidate < bestPrice) {
         bestPrice = candidate;
         bestRunnerName = runnerName;
@@ -2134,33 +2292,6 @@ public class BetfairApiClient {
     return new InferredScore(parsed.getHomeScore(), parsed.getAwayScore(), label + " (likely)");
   }
 
-  private Double extractBestRunnerPrice(JsonNode runner) {
-    Double back = firstPrice(runner.path("ex").path("availableToBack"));
-    Double lay = firstPrice(runner.path("ex").path("availableToLay"));
-    if (back == null && lay == null) {
-      return null;
-    }
-    if (back == null) {
-      return lay;
-    }
-    if (lay == null) {
-      return back;
-    }
-    return Math.min(back, lay);
-  }
-
-  private Double firstPrice(JsonNode prices) {
-    if (!prices.isArray() || prices.isEmpty()) {
-      return null;
-    }
-    JsonNode first = prices.get(0);
-    if (first == null || first.isNull()) {
-      return null;
-    }
-    double price = first.path("price").asDouble(Double.NaN);
-    return Double.isNaN(price) ? null : price;
-  }
-
   private InferredScore parseScoreFromRunnerName(String runnerName) {
     if (runnerName == null || runnerName.isBlank()) {
       return null;
@@ -2302,6 +2433,25 @@ public class BetfairApiClient {
     return "BR".equalsIgnoreCase(country) && leagueName.contains("serie a");
   }
 
+  @FunctionalInterface
+  private interface RpcResponseParser<T> {
+    T parse(JsonNode root);
+  }
+
+  @FunctionalInterface
+  private interface EnvelopeReader<T> {
+    List<T> read(InputStream body, int callCount, IntConsumer tooMuchData) throws IOException;
+  }
+
+  private static final class CorrectScoreScan {
+    private final Map<String, InferredScore> scores = new HashMap<>();
+    private int total;
+    private int withScoreNode;
+    private int closed;
+    private int withWinnerRunner;
+    private int withLikelyRunner;
+  }
+
   private static final class RunnerSelection {
     private final String name;
     private final long selectionId;
@@ -2391,20 +2541,26 @@ public class BetfairApiClient {
   }
 
   private static final class MarketBookOdds {
-    private final Map<Long, Double> backOddsBySelection;
-    private final Map<Long, Double> layOddsBySelection;
+    private final RunnerPrices prices;
     private final boolean inPlay;
     private final String status;
+    private final String source;
+    private final long publishTime;
+    private final long lastMatchTime;
 
     private MarketBookOdds(
-        Map<Long, Double> backOddsBySelection,
-        Map<Long, Double> layOddsBySelection,
+        RunnerPrices prices,
         boolean inPlay,
-        String status) {
-      this.backOddsBySelection = backOddsBySelection;
-      this.layOddsBySelection = layOddsBySelection;
+        String status,
+        String source,
+        long publishTime,
+        long lastMatchTime) {
+      this.prices = prices;
       this.inPlay = inPlay;
       this.status = status;
+      this.source = source;
+      this.publishTime = publishTime;
+      this.lastMatchTime = lastMatchTime;
     }
   }
 
@@ -24,12 +24,13 @@ public class BetfairAuthService {
   public BetfairAuthService(
       RestTemplateBuilder restTemplateBuilder,
       ObjectMapper objectMapper,
+      SharedHttpTransport httpTransport,
       @Value("${betfair.auth.base-url:https://identitysso.betfair.com/api}")
           String authBaseUrl,
       @Value("${betfair.app-key:}") String appKey,
       @Value("${betfair.username:}") String username,
       @Value("${betfair.password:}") String password) {
-    this.restTemplate = restTemplateBuilder.build();
+    this.restTemplate = httpTransport.newRestTemplate(restTemplateBuilder);
     this.objectMapper = objectMapper;
     this.authBaseUrl = authBaseUrl;
     this.appKey = appKey;
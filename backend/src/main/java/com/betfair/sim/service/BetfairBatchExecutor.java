@@ -0,0 +1,154 @@
+package com.betfair.sim.service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+@Component
+public class BetfairBatchExecutor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BetfairBatchExecutor.class);
+  private static final ThreadLocal<Boolean> WORKER_THREAD = ThreadLocal.withInitial(() -> false);
+
+  private final int parallelism;
+  private final long batchTimeoutMs;
+  private final ExecutorService executor;
+  private final ScheduledExecutorService watchdog;
+
+  public BetfairBatchExecutor(
+      @Value("${betfair.batch.parallelism:4}") int parallelism,
+      @Value("${betfair.batch.timeout-ms:15000}") long batchTimeoutMs) {
+    this.parallelism = Math.max(1, parallelism);
+    this.batchTimeoutMs = Math.max(1000L, batchTimeoutMs);
+    this.executor = Executors.newFixedThreadPool(this.parallelism, daemonThreads("betfair-batch"));
+    this.watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("betfair-batch-watchdog"));
+  }
+
+  /**
+   * Runs every task on the bounded pool and returns their results in submission order. The first
+   * task that fails or exceeds the per-batch timeout cancels the ones still running and its
+   * failure is thrown to the caller, the same way a single unbatched request would fail, so a
+   * partial set of batches is never mistaken for a complete response.
+   */
+  public <T> List<T> invokeAll(String label, List<Callable<T>> tasks) {
+    if (tasks == null || tasks.isEmpty()) {
+      return List.of();
+    }
+    // Nested fan-out from a worker would starve the fixed pool, so run those inline.
+    if (tasks.size() == 1 || parallelism == 1 || WORKER_THREAD.get()) {
+      return invokeInline(label, tasks);
+    }
+
+    List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      futures.add(submitWithTimeout(task));
+    }
+
+    List<T> results = new ArrayList<>(tasks.size());
+    for (int i = 0; i < futures.size(); i++) {
+      FutureTask<T> future = futures.get(i);
+      try {
+        results.add(future.get());
+      } catch (CancellationException ex) {
+        cancelFrom(futures, i + 1);
+        throw new ResourceAccessException(
+            "Betfair " + label + " batch " + i + " timed out after " + batchTimeoutMs + " ms");
+      } catch (ExecutionException ex) {
+        cancelFrom(futures, i + 1);
+        throw batchFailure(label, i, ex.getCause());
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        cancelFrom(futures, i);
+        throw new ResourceAccessException(
+            "Interrupted while waiting for Betfair " + label + " batch " + i);
+      }
+    }
+    return results;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+    watchdog.shutdownNow();
+  }
+
+  private <T> FutureTask<T> submitWithTimeout(Callable<T> task) {
+    AtomicReference<FutureTask<T>> self = new AtomicReference<>();
+    FutureTask<T> future =
+        new FutureTask<>(
+            () -> {
+              // The timeout starts when the batch starts, not while it waits for a free worker.
+              ScheduledFuture<?> timer =
+                  watchdog.schedule(
+                      () -> self.get().cancel(true), batchTimeoutMs, TimeUnit.MILLISECONDS);
+              try {
+                return task.call();
+              } finally {
+                timer.cancel(false);
+              }
+            });
+    self.set(future);
+    executor.execute(future);
+    return future;
+  }
+
+  private <T> List<T> invokeInline(String label, List<Callable<T>> tasks) {
+    List<T> results = new ArrayList<>(tasks.size());
+    for (int i = 0; i < tasks.size(); i++) {
+      try {
+        results.add(tasks.get(i).call());
+      } catch (Exception ex) {
+        throw batchFailure(label, i, ex);
+      }
+    }
+    return results;
+  }
+
+  private static void cancelFrom(List<? extends FutureTask<?>> futures, int from) {
+    for (int j = from; j < futures.size(); j++) {
+      futures.get(j).cancel(true);
+    }
+  }
+
+  private static RuntimeException batchFailure(String label, int index, Throwable cause) {
+    LOGGER.warn("Betfair {} batch {} failed", label, index, cause);
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new IllegalStateException("Betfair " + label + " batch " + index + " failed", cause);
+  }
+
+  private static ThreadFactory daemonThreads(String prefix) {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread =
+          new Thread(
+              () -> {
+                WORKER_THREAD.set(true);
+                runnable.run();
+              },
+              prefix + "-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
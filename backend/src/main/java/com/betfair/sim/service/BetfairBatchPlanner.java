@@ -0,0 +1,179 @@
+package com.betfair.sim.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sizes id batches for listMarketBook and listMarketCatalogue calls from Betfair's data-weight
+ * limit: a request may cost at most 200 points, where each market costs the summed weight of its
+ * price and market projections. A batch rejected with TOO_MUCH_DATA halves the size used for that
+ * request shape until the shrink expires.
+ */
+final class BetfairBatchPlanner {
+  static final int MAX_DATA_WEIGHT = 200;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BetfairBatchPlanner.class);
+  private static final int DEFAULT_PRICE_DEPTH = 3;
+  private static final Map<String, Integer> PRICE_DATA_WEIGHTS =
+      Map.of(
+          "SP_AVAILABLE", 3,
+          "SP_TRADED", 7,
+          "EX_BEST_OFFERS", 5,
+          "EX_ALL_OFFERS", 17,
+          "EX_TRADED", 17);
+  private static final int NO_PRICE_DATA_WEIGHT = 2;
+  // Betfair does not publish a listMarketBook weight for MARKET_DEF; count it conservatively.
+  private static final int MARKET_DEF_WEIGHT = 1;
+  private static final Map<String, Integer> CATALOGUE_PROJECTION_WEIGHTS =
+      Map.of(
+          "MARKET_DESCRIPTION", 1,
+          "RUNNER_METADATA", 1);
+
+  private final int marketsPerEventEstimate;
+  private final long shrinkTtlMs;
+  private final Map<String, ShrunkSize> shrunkSizes = new ConcurrentHashMap<>();
+
+  BetfairBatchPlanner(int marketsPerEventEstimate, long shrinkTtlMs) {
+    this.marketsPerEventEstimate = Math.max(1, marketsPerEventEstimate);
+    this.shrinkTtlMs = Math.max(0L, shrinkTtlMs);
+  }
+
+  /**
+   * Largest number of ids that fit one call under the weight limit. The sample call must be
+   * built for a single id so its projections and filters describe the per-id cost.
+   */
+  int batchSize(Map<String, Object> sampleCall) {
+    int planned = plannedBatchSize(sampleCall);
+    ShrunkSize shrunk = shrunkSizes.get(profile(sampleCall));
+    if (shrunk != null) {
+      if (shrunk.expiresAt > System.currentTimeMillis()) {
+        return Math.min(planned, shrunk.size);
+      }
+      shrunkSizes.remove(profile(sampleCall), shrunk);
+    }
+    return planned;
+  }
+
+  /** Halves the batch size for this request shape after Betfair rejected it as too heavy. */
+  void recordTooMuchData(Map<String, Object> sampleCall, int rejectedBatchSize) {
+    int size = Math.max(1, rejectedBatchSize / 2);
+    shrunkSizes.put(
+        profile(sampleCall), new ShrunkSize(size, System.currentTimeMillis() + shrinkTtlMs));
+    LOGGER.warn(
+        "Betfair {} rejected a batch of {} as TOO_MUCH_DATA; using {} per call",
+        method(sampleCall),
+        rejectedBatchSize,
+        size);
+  }
+
+  static boolean isTooMuchData(JsonNode error) {
+    if (error == null || error.isMissingNode() || error.isNull()) {
+      return false;
+    }
+    String errorCode = error.path("data").path("APINGException").path("errorCode").asText("");
+    return "TOO_MUCH_DATA".equals(errorCode) || error.toString().contains("TOO_MUCH_DATA");
+  }
+
+  private int plannedBatchSize(Map<String, Object> call) {
+    Map<String, Object> params = asMap(call.get("params"));
+    String method = method(call);
+    if (method.endsWith("listMarketBook")) {
+      int weight = priceProjectionWeight(asMap(params.get("priceProjection")));
+      if (asCollection(params.get("marketProjection")).contains("MARKET_DEF")) {
+        weight += MARKET_DEF_WEIGHT;
+      }
+      return Math.max(1, MAX_DATA_WEIGHT / weight);
+    }
+    if (method.endsWith("listMarketCatalogue")) {
+      int weight = 0;
+      for (Object projection : asCollection(params.get("marketProjection"))) {
+        weight += CATALOGUE_PROJECTION_WEIGHTS.getOrDefault(String.valueOf(projection), 0);
+      }
+      Map<String, Object> filter = asMap(params.get("filter"));
+      int marketsPerId = 1;
+      if (!filter.containsKey("marketIds") && filter.containsKey("eventIds")) {
+        Collection<?> marketTypes = asCollection(filter.get("marketTypeCodes"));
+        marketsPerId = marketTypes.isEmpty() ? marketsPerEventEstimate : marketTypes.size();
+      }
+      int size = MAX_DATA_WEIGHT / (Math.max(1, weight) * marketsPerId);
+      int maxResults = parseInt(params.get("maxResults"));
+      if (maxResults > 0) {
+        size = Math.min(size, maxResults / marketsPerId);
+      }
+      return Math.max(1, size);
+    }
+    return MAX_DATA_WEIGHT;
+  }
+
+  private int priceProjectionWeight(Map<String, Object> priceProjection) {
+    Collection<?> priceData = asCollection(priceProjection.get("priceData"));
+    if (priceData.isEmpty()) {
+      return NO_PRICE_DATA_WEIGHT;
+    }
+    int depth = parseInt(asMap(priceProjection.get("exBestOffersOverrides")).get("bestPricesDepth"));
+    int weight = 0;
+    for (Object data : priceData) {
+      int dataWeight = PRICE_DATA_WEIGHTS.getOrDefault(String.valueOf(data), 0);
+      // Betfair scales EX_BEST_OFFERS by requested depth beyond its default of three levels.
+      if ("EX_BEST_OFFERS".equals(data) && depth > DEFAULT_PRICE_DEPTH) {
+        dataWeight = (int) Math.ceil(dataWeight * depth / (double) DEFAULT_PRICE_DEPTH);
+      }
+      weight += dataWeight;
+    }
+    return Math.max(1, weight);
+  }
+
+  private String profile(Map<String, Object> call) {
+    Map<String, Object> params = asMap(call.get("params"));
+    Map<String, Object> filter = asMap(params.get("filter"));
+    return method(call)
+        + "|"
+        + params.get("priceProjection")
+        + "|"
+        + params.get("marketProjection")
+        + "|"
+        + filter.keySet()
+        + "|"
+        + filter.get("marketTypeCodes");
+  }
+
+  private static String method(Map<String, Object> call) {
+    Object method = call.get("method");
+    return method == null ? "" : method.toString();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> asMap(Object value) {
+    return value instanceof Map ? (Map<String, Object>) value : Map.of();
+  }
+
+  private static Collection<?> asCollection(Object value) {
+    return value instanceof Collection ? (Collection<?>) value : List.of();
+  }
+
+  private static int parseInt(Object value) {
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return Integer.parseInt(value.toString().trim());
+    } catch (NumberFormatException ex) {
+      return 0;
+    }
+  }
+
+  private static final class ShrunkSize {
+    private final int size;
+    private final long expiresAt;
+
+    private ShrunkSize(int size, long expiresAt) {
+      this.size = size;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package com.betfair.sim.service;
+
+import com.betfair.sim.model.EventMarket;
+import com.betfair.sim.model.EventSelection;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache for listMarketCatalogue metadata that barely changes during a day. Each field has
+ * its own TTL; everything known about a market is dropped as soon as the market is seen CLOSED.
+ */
+final class BetfairCatalogueCache {
+  private final Section<BetfairApiClient.EventIdentity> eventIdentities;
+  private final Section<Instant> startTimes;
+  private final Section<List<EventMarket>> eventMarkets;
+  private final Map<String, String> eventIdByMarketId = new ConcurrentHashMap<>();
+
+  BetfairCatalogueCache(long eventTtlMs, long startTimeTtlMs, long eventMarketsTtlMs) {
+    this.eventIdentities = new Section<>(eventTtlMs);
+    this.startTimes = new Section<>(startTimeTtlMs);
+    this.eventMarkets = new Section<>(eventMarketsTtlMs);
+  }
+
+  /** Cached event identities keyed by marketId; ids not returned must be fetched. */
+  Map<String, BetfairApiClient.EventIdentity> eventIdentities(Collection<String> marketIds) {
+    return eventIdentities.getAll(marketIds);
+  }
+
+  void putEventIdentities(Map<String, BetfairApiClient.EventIdentity> identities) {
+    eventIdentities.putAll(identities);
+    identities.forEach(
+        (marketId, identity) -> {
+          if (identity.getEventId() != null && !identity.getEventId().isBlank()) {
+            eventIdByMarketId.put(marketId, identity.getEventId());
+          }
+        });
+  }
+
+  Map<String, Instant> startTimes(Collection<String> marketIds) {
+    return startTimes.getAll(marketIds);
+  }
+
+  void putStartTimes(Map<String, Instant> times) {
+    startTimes.putAll(times);
+  }
+
+  /** Copy of the cached catalogue for an event, or {@code null} on a miss. */
+  List<EventMarket> eventMarkets(String eventId) {
+    List<EventMarket> cached = eventMarkets.getAll(List.of(eventId)).get(eventId);
+    return cached == null ? null : copyMarkets(cached);
+  }
+
+  void putEventMarkets(String eventId, List<EventMarket> markets) {
+    eventMarkets.putAll(Map.of(eventId, copyMarkets(markets)));
+    for (EventMarket market : markets) {
+      if (market.getMarketId() != null) {
+        eventIdByMarketId.put(market.getMarketId(), eventId);
+      }
+    }
+  }
+
+  /**
+   * Drops a closed market, and the catalogue of its event, since closed markets leave
+   * listMarketCatalogue and the event's market list is stale from that point.
+   */
+  void evictClosedMarket(String marketId) {
+    eventIdentities.remove(marketId);
+    startTimes.remove(marketId);
+    String eventId = eventIdByMarketId.remove(marketId);
+    if (eventId != null) {
+      eventMarkets.remove(eventId);
+    }
+  }
+
+  Map<String, Object> stats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("eventIdentity", eventIdentities.stats());
+    stats.put("marketStartTime", startTimes.stats());
+    stats.put("eventMarkets", eventMarkets.stats());
+    return stats;
+  }
+
+  private static List<EventMarket> copyMarkets(List<EventMarket> markets) {
+    List<EventMarket> copies = new ArrayList<>(markets.size());
+    for (EventMarket market : markets) {
+      EventMarket copy =
+          new EventMarket(
+              market.getMarketId(),
+              market.getMarketName(),
+              market.getMarketType(),
+              market.getStartTime());
+      copy.setMarketStatus(market.getMarketStatus());
+      List<EventSelection> selections = new ArrayList<>();
+      if (market.getSelections() != null) {
+        for (EventSelection selection : market.getSelections()) {
+          selections.add(
+              new EventSelection(
+                  selection.getSelectionId(),
+                  selection.getSelectionName(),
+                  selection.getBackOdds(),
+                  selection.getLayOdds()));
+        }
+      }
+      copy.setSelections(selections);
+      copies.add(copy);
+    }
+    return copies;
+  }
+
+  private static final class Section<V> {
+    private final long ttlMs;
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private Section(long ttlMs) {
+      this.ttlMs = ttlMs;
+    }
+
+    private Map<String, V> getAll(Collection<String> keys) {
+      Map<String, V> found = new HashMap<>();
+      long now = System.currentTimeMillis();
+      for (String key : keys) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt > now) {
+          found.put(key, entry.value);
+          hits.incrementAndGet();
+        } else {
+          if (entry != null) {
+            entries.remove(key, entry);
+          }
+          misses.incrementAndGet();
+        }
+      }
+      return found;
+    }
+
+    private void putAll(Map<String, V> values) {
+      if (ttlMs <= 0 || values.isEmpty()) {
+        return;
+      }
+      long now = System.currentTimeMillis();
+      entries.values().removeIf(entry -> entry.expiresAt <= now);
+      long expiresAt = now + ttlMs;
+      values.forEach((key, value) -> entries.put(key, new Entry<>(value, expiresAt)));
+    }
+
+    private void remove(String key) {
+      entries.remove(key);
+    }
+
+    private Map<String, Object> stats() {
+      long hitCount = hits.get();
+      long missCount = misses.get();
+      long total = hitCount + missCount;
+      Map<String, Object> stats = new LinkedHashMap<>();
+      stats.put("ttlMs", ttlMs);
+      stats.put("size", entries.size());
+      stats.put("hits", hitCount);
+      stats.put("misses", missCount);
+      stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+      return stats;
+    }
+  }
+
+  private static final class Entry<V> {
+    private final V value;
+    private final long expiresAt;
+
+    private Entry(V value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
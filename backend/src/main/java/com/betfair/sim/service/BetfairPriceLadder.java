@@ -0,0 +1,67 @@
+package com.betfair.sim.service;
+
+import java.util.Arrays;
+
+/**
+ * Betfair's standard odds ladder (1.01 to 1000 in 350 ticks). Prices are addressed by tick index
+ * 1..350; index 0 stands for "no price".
+ */
+final class BetfairPriceLadder {
+  static final int NO_PRICE = 0;
+
+  // Band lower bounds and their increments, as published by Betfair.
+  private static final double[] BAND_STARTS = {1.01, 2, 3, 4, 6, 10, 20, 30, 50, 100, 1000};
+  private static final double[] BAND_STEPS = {0.01, 0.02, 0.05, 0.1, 0.2, 0.5, 1, 2, 5, 10};
+  private static final double[] PRICES = buildLadder();
+
+  private BetfairPriceLadder() {}
+
+  static int tickCount() {
+    return PRICES.length;
+  }
+
+  /** Tick index of the ladder price nearest to {@code price}, or {@link #NO_PRICE}. */
+  static int toTick(double price) {
+    if (Double.isNaN(price) || price <= 0.0) {
+      return NO_PRICE;
+    }
+    int index = Arrays.binarySearch(PRICES, price);
+    if (index >= 0) {
+      return index + 1;
+    }
+    int insertion = -index - 1;
+    if (insertion == 0) {
+      return 1;
+    }
+    if (insertion == PRICES.length) {
+      return PRICES.length;
+    }
+    double below = PRICES[insertion - 1];
+    double above = PRICES[insertion];
+    return price - below <= above - price ? insertion : insertion + 1;
+  }
+
+  /** Price of a tick index, or {@code NaN} for {@link #NO_PRICE} and out-of-range indexes. */
+  static double toPrice(int tick) {
+    if (tick <= NO_PRICE || tick > PRICES.length) {
+      return Double.NaN;
+    }
+    return PRICES[tick - 1];
+  }
+
+  private static double[] buildLadder() {
+    double[] prices = new double[400];
+    int count = 0;
+    for (int band = 0; band < BAND_STEPS.length; band++) {
+      // Work in hundredths so rounding never drifts across a band.
+      long cents = Math.round(BAND_STARTS[band] * 100);
+      long end = Math.round(BAND_STARTS[band + 1] * 100);
+      long step = Math.round(BAND_STEPS[band] * 100);
+      for (; cents < end; cents += step) {
+        prices[count++] = cents / 100.0;
+      }
+    }
+    prices[count++] = BAND_STARTS[BAND_STARTS.length - 1];
+    return Arrays.copyOf(prices, count);
+  }
+}
@@ -0,0 +1,115 @@
+package com.betfair.sim.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent lookups of the same market ids into one upstream call. A caller claims the
+ * ids nobody is loading yet, joins the in-flight loads for the rest, and reuses results that
+ * completed within the freshness window.
+ */
+final class BetfairSingleFlight<V> {
+  private final long freshnessMs;
+  private final Map<String, Flight<V>> flights = new ConcurrentHashMap<>();
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong upstreamCalls = new AtomicLong();
+  private final AtomicLong requestedIds = new AtomicLong();
+  private final AtomicLong upstreamIds = new AtomicLong();
+
+  BetfairSingleFlight(long freshnessMs) {
+    this.freshnessMs = Math.max(0L, freshnessMs);
+  }
+
+  /**
+   * Returns the value per requested id, in request order, loading only the ids that are neither
+   * fresh nor in flight. Ids the loader does not return are absent from the result.
+   */
+  Map<String, V> fetch(List<String> ids, Function<List<String>, Map<String, V>> loader) {
+    requests.incrementAndGet();
+    requestedIds.addAndGet(ids.size());
+
+    Map<String, Flight<V>> joined = new LinkedHashMap<>();
+    Map<String, Flight<V>> owned = new LinkedHashMap<>();
+    long now = System.currentTimeMillis();
+    for (String id : ids) {
+      if (joined.containsKey(id)) {
+        continue;
+      }
+      Flight<V> candidate = new Flight<>();
+      Flight<V> flight =
+          flights.compute(
+              id,
+              (key, existing) ->
+                  existing != null && existing.isUsable(now, freshnessMs) ? existing : candidate);
+      joined.put(id, flight);
+      if (flight == candidate) {
+        owned.put(id, flight);
+      }
+    }
+
+    if (!owned.isEmpty()) {
+      load(owned, loader);
+    }
+
+    Map<String, V> results = new LinkedHashMap<>();
+    for (Map.Entry<String, Flight<V>> entry : joined.entrySet()) {
+      V value = entry.getValue().future.join();
+      if (value != null) {
+        results.put(entry.getKey(), value);
+      }
+    }
+    return results;
+  }
+
+  Map<String, Object> stats() {
+    long requestedIdCount = requestedIds.get();
+    long upstreamIdCount = upstreamIds.get();
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("freshnessMs", freshnessMs);
+    stats.put("requests", requests.get());
+    stats.put("upstreamCalls", upstreamCalls.get());
+    stats.put("requestedIds", requestedIdCount);
+    stats.put("upstreamIds", upstreamIdCount);
+    stats.put(
+        "dedupRatio",
+        requestedIdCount == 0 ? 0.0 : 1.0 - (double) upstreamIdCount / requestedIdCount);
+    return stats;
+  }
+
+  private void load(Map<String, Flight<V>> owned, Function<List<String>, Map<String, V>> loader) {
+    upstreamCalls.incrementAndGet();
+    upstreamIds.addAndGet(owned.size());
+    Map<String, V> loaded = Map.of();
+    try {
+      loaded = loader.apply(new ArrayList<>(owned.keySet()));
+    } finally {
+      long completedAt = System.currentTimeMillis();
+      for (Map.Entry<String, Flight<V>> entry : owned.entrySet()) {
+        Flight<V> flight = entry.getValue();
+        V value = loaded == null ? null : loaded.get(entry.getKey());
+        flight.completedAt = completedAt;
+        flight.future.complete(value);
+        if (value == null) {
+          // Nothing worth sharing; the next caller should ask upstream again.
+          flights.remove(entry.getKey(), flight);
+        }
+      }
+      flights.values().removeIf(flight -> !flight.isUsable(completedAt, freshnessMs));
+    }
+  }
+
+  private static final class Flight<V> {
+    private final CompletableFuture<V> future = new CompletableFuture<>();
+    private volatile long completedAt;
+
+    private boolean isUsable(long now, long freshnessMs) {
+      return !future.isDone() || now - completedAt <= freshnessMs;
+    }
+  }
+}
@@ -0,0 +1,456 @@
+package com.betfair.sim.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exchange Stream API market subscriber. Keeps a {@link MarketStreamCache} current from market
+ * change deltas over one long-lived connection, treats missing heartbeats as a dead connection,
+ * and on reconnect resumes the subscription from the last {@code initialClk}/{@code clk} so only
+ * the missed changes are replayed.
+ *
+ * <p>Markets leave the subscription once the stream reports them CLOSED (they are not
+ * resubscribed afterwards) or when nothing has asked for them for {@code idle-unsubscribe-ms},
+ * which is how games that are no longer followed drop out. A changed market set is sent as a new
+ * subscription; images of markets that stay subscribed are kept until the new image replaces them.
+ */
+@Component
+public class BetfairStreamClient {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BetfairStreamClient.class);
+  private static final long MAX_RECONNECT_DELAY_MS = 30000L;
+  private static final long PRUNE_INTERVAL_MS = 60_000L;
+  private static final long CLOSED_MARKET_MEMORY_MS = 24L * 60 * 60 * 1000;
+
+  private final ObjectMapper objectMapper;
+  private final BetfairSessionStore sessionStore;
+  private final SharedHttpTransport httpTransport;
+  private final boolean enabled;
+  private final String host;
+  private final int port;
+  private final boolean tls;
+  private final int heartbeatMs;
+  private final long reconnectDelayMs;
+  private final int maxMarkets;
+  private final long idleUnsubscribeMs;
+  private final String appKey;
+  private final String sessionToken;
+  private final Path recordPath;
+  private final MarketStreamCache cache = new MarketStreamCache();
+  /** Subscribed market id to the last time a caller asked for it. */
+  private final Map<String, Long> subscribedMarketIds = new ConcurrentHashMap<>();
+  /** Markets the stream reported CLOSED, by the time they were dropped from the subscription. */
+  private final Map<String, Long> closedMarketIds = new ConcurrentHashMap<>();
+  private final Object subscriptionLock = new Object();
+  private final AtomicInteger messageIds = new AtomicInteger();
+  private final AtomicLong messagesReceived = new AtomicLong();
+  private final AtomicLong reconnects = new AtomicLong();
+  private final AtomicLong unsubscribed = new AtomicLong();
+  private final AtomicLong rejectedAtLimit = new AtomicLong();
+  private final Object writeLock = new Object();
+
+  private volatile boolean running;
+  private volatile boolean live;
+  private volatile long lastMessageAt;
+  private volatile String initialClk;
+  private volatile String clk;
+  private volatile Set<String> clockedMarketIds = Set.of();
+  private volatile long lastPruneAt;
+  private volatile int authenticationId;
+  private volatile BufferedWriter writer;
+  private volatile Socket socket;
+  private Thread worker;
+
+  public BetfairStreamClient(
+      ObjectMapper objectMapper,
+      BetfairSessionStore sessionStore,
+      SharedHttpTransport httpTransport,
+      @Value("${betfair.stream.enabled:false}") boolean enabled,
+      @Value("${betfair.stream.host:stream-api.betfair.com}") String host,
+      @Value("${betfair.stream.port:443}") int port,
+      @Value("${betfair.stream.tls:true}") boolean tls,
+      @Value("${betfair.stream.heartbeat-ms:5000}") int heartbeatMs,
+      @Value("${betfair.stream.reconnect-delay-ms:1000}") long reconnectDelayMs,
+      @Value("${betfair.stream.max-markets:200}") int maxMarkets,
+      @Value("${betfair.stream.idle-unsubscribe-ms:600000}") long idleUnsubscribeMs,
+      @Value("${betfair.stream.record-path:}") String recordPath,
+      @Value("${betfair.app-key:}") String appKey,
+      @Value("${betfair.session-token:}") String sessionToken) {
+    this.objectMapper = objectMapper;
+    this.sessionStore = sessionStore;
+    this.httpTransport = httpTransport;
+    this.enabled = enabled;
+    this.host = host;
+    this.port = port;
+    this.tls = tls;
+    // Betfair accepts heartbeat intervals between 500 ms and 5 s.
+    this.heartbeatMs = Math.min(5000, Math.max(500, heartbeatMs));
+    this.reconnectDelayMs = Math.max(100L, reconnectDelayMs);
+    this.maxMarkets = Math.max(1, maxMarkets);
+    this.idleUnsubscribeMs = Math.max(60_000L, idleUnsubscribeMs);
+    this.recordPath = recordPath == null || recordPath.isBlank() ? null : Paths.get(recordPath);
+    this.appKey = appKey == null ? "" : appKey;
+    this.sessionToken = sessionToken == null ? "" : sessionToken;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Adds the markets to the stream subscription, up to the configured market limit, and marks
+   * subscribed ones as still wanted. Markets the stream already reported CLOSED are not added back.
+   * The stream connects on the first call; later changes to the market set resubscribe.
+   */
+  public void subscribe(Collection<String> marketIds) {
+    if (!enabled || marketIds == null || marketIds.isEmpty()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    boolean changed;
+    synchronized (subscriptionLock) {
+      changed = pruneSubscription(now);
+      for (String marketId : marketIds) {
+        if (marketId == null || marketId.isBlank() || closedMarketIds.containsKey(marketId)) {
+          continue;
+        }
+        if (subscribedMarketIds.replace(marketId, now) != null) {
+          continue;
+        }
+        if (subscribedMarketIds.size() >= maxMarkets) {
+          rejectedAtLimit.incrementAndGet();
+          continue;
+        }
+        subscribedMarketIds.put(marketId, now);
+        changed = true;
+      }
+    }
+    if (!changed) {
+      return;
+    }
+    synchronized (this) {
+      if (!running) {
+        start();
+        return;
+      }
+    }
+    resubscribe();
+  }
+
+  /** Current streamed state of the market, or {@code null} when the stream cannot vouch for it. */
+  MarketStreamCache.Snapshot snapshot(String marketId) {
+    // Serving a market counts as asking for it, so streamed markets are not pruned as idle.
+    if (!live || subscribedMarketIds.replace(marketId, System.currentTimeMillis()) == null) {
+      return null;
+    }
+    if (System.currentTimeMillis() - lastMessageAt > staleAfterMs()) {
+      return null;
+    }
+    return cache.snapshot(marketId);
+  }
+
+  public Map<String, Object> stats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("enabled", enabled);
+    stats.put("live", live);
+    stats.put("subscribedMarkets", subscribedMarketIds.size());
+    stats.put("maxMarkets", maxMarkets);
+    stats.put("unsubscribedMarkets", unsubscribed.get());
+    stats.put("rejectedAtLimit", rejectedAtLimit.get());
+    stats.put("cachedMarkets", cache.size());
+    stats.put("messagesReceived", messagesReceived.get());
+    stats.put("reconnects", reconnects.get());
+    stats.put("lastMessageAt", lastMessageAt);
+    return stats;
+  }
+
+  @PreDestroy
+  public void stop() {
+    synchronized (this) {
+      running = false;
+    }
+    closeSocket();
+    if (worker != null) {
+      worker.interrupt();
+    }
+  }
+
+  private void start() {
+    running = true;
+    worker = new Thread(this::runLoop, "betfair-stream");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  private void runLoop() {
+    long delayMs = reconnectDelayMs;
+    while (running) {
+      boolean wasLive;
+      try {
+        connectAndRead();
+      } catch (IOException ex) {
+        if (running) {
+          LOGGER.warn("Betfair stream connection lost: {}", ex.getMessage());
+        }
+      } finally {
+        wasLive = live;
+        live = false;
+        closeSocket();
+      }
+      if (!running) {
+        return;
+      }
+      reconnects.incrementAndGet();
+      // Back off only while connecting keeps failing; a dropped live stream retries promptly.
+      delayMs = wasLive ? reconnectDelayMs : Math.min(MAX_RECONNECT_DELAY_MS, delayMs * 2);
+      try {
+        Thread.sleep(delayMs);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private void connectAndRead() throws IOException {
+    String session = resolveSessionToken();
+    if (appKey.isBlank() || session.isBlank()) {
+      throw new IOException("Betfair stream has no app key or session token");
+    }
+    Socket connection = httpTransport.openSocket(host, port, tls);
+    socket = connection;
+    // No data and no heartbeat within this window means the connection is dead.
+    connection.setSoTimeout((int) staleAfterMs());
+    BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+    writer =
+        new BufferedWriter(
+            new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8));
+
+    ObjectNode authentication = objectMapper.createObjectNode();
+    authentication.put("op", "authentication");
+    authenticationId = messageIds.incrementAndGet();
+    authentication.put("id", authenticationId);
+    authentication.put("appKey", appKey);
+    authentication.put("session", session);
+    send(authentication);
+
+    String line;
+    while (running && (line = reader.readLine()) != null) {
+      if (!line.isBlank()) {
+        handle(line);
+      }
+    }
+    if (running) {
+      throw new IOException("Betfair stream closed by server");
+    }
+  }
+
+  private void handle(String line) throws IOException {
+    JsonNode message = objectMapper.readTree(line);
+    String op = message.path("op").asText("");
+    if ("status".equals(op)) {
+      handleStatus(message);
+    } else if ("mcm".equals(op)) {
+      handleMarketChange(message, line);
+    }
+  }
+
+  private void handleStatus(JsonNode message) throws IOException {
+    String statusCode = message.path("statusCode").asText("");
+    if (!"SUCCESS".equals(statusCode)) {
+      throw new IOException(
+          "Betfair stream status "
+              + statusCode
+              + " "
+              + message.path("errorCode").asText("")
+              + " "
+              + message.path("errorMessage").asText(""));
+    }
+    if (message.path("id").asInt(-1) == authenticationId) {
+      sendSubscription(true);
+    }
+  }
+
+  private void handleMarketChange(JsonNode message, String line) throws IOException {
+    lastMessageAt = System.currentTimeMillis();
+    messagesReceived.incrementAndGet();
+    if (message.hasNonNull("initialClk")) {
+      initialClk = message.path("initialClk").asText();
+    }
+    if (message.hasNonNull("clk")) {
+      clk = message.path("clk").asText();
+    }
+    live = true;
+    if (lastMessageAt - lastPruneAt >= PRUNE_INTERVAL_MS) {
+      lastPruneAt = lastMessageAt;
+      boolean pruned;
+      synchronized (subscriptionLock) {
+        pruned = pruneSubscription(lastMessageAt);
+      }
+      if (pruned) {
+        sendSubscription(false);
+      }
+    }
+    if ("HEARTBEAT".equals(message.path("ct").asText(""))) {
+      return;
+    }
+    long publishTime = message.path("pt").asLong(lastMessageAt);
+    for (JsonNode marketChange : message.path("mc")) {
+      cache.apply(marketChange, publishTime);
+    }
+    record(line);
+  }
+
+  /**
+   * Drops CLOSED markets and markets nobody asked for within the idle window from the
+   * subscription. Returns whether any market was removed; callers hold {@code subscriptionLock}.
+   */
+  private boolean pruneSubscription(long now) {
+    closedMarketIds.values().removeIf(closedAt -> now - closedAt > CLOSED_MARKET_MEMORY_MS);
+    boolean removed = false;
+    for (Map.Entry<String, Long> entry : subscribedMarketIds.entrySet()) {
+      String marketId = entry.getKey();
+      boolean closed = cache.closed(marketId);
+      if (closed || now - entry.getValue() > idleUnsubscribeMs) {
+        if (closed) {
+          closedMarketIds.put(marketId, now);
+        }
+        subscribedMarketIds.remove(marketId);
+        unsubscribed.incrementAndGet();
+        removed = true;
+      }
+    }
+    return removed;
+  }
+
+  private void resubscribe() {
+    if (!live) {
+      return;
+    }
+    try {
+      sendSubscription(false);
+    } catch (IOException ex) {
+      LOGGER.warn("Betfair stream resubscription failed; reconnecting", ex);
+      closeSocket();
+    }
+  }
+
+  /**
+   * Sends the current market set. On reconnect ({@code resume}) the last clocks are reused when
+   * the set is unchanged, so only missed changes are replayed; a changed set starts a new
+   * subscription. Either way only images of markets that left the set are dropped.
+   */
+  private void sendSubscription(boolean resume) throws IOException {
+    Set<String> marketIds;
+    synchronized (subscriptionLock) {
+      marketIds = Set.copyOf(subscribedMarketIds.keySet());
+    }
+    ObjectNode subscription = objectMapper.createObjectNode();
+    subscription.put("op", "marketSubscription");
+    subscription.put("id", messageIds.incrementAndGet());
+    subscription.put("heartbeatMs", heartbeatMs);
+    if (resume && initialClk != null && clk != null && marketIds.equals(clockedMarketIds)) {
+      subscription.put("initialClk", initialClk);
+      subscription.put("clk", clk);
+    } else {
+      // Clocks belong to the previous market filter; the new subscription hands out its own.
+      initialClk = null;
+      clk = null;
+    }
+    clockedMarketIds = marketIds;
+    cache.retainOnly(marketIds);
+    subscription.set(
+        "marketFilter",
+        objectMapper
+            .createObjectNode()
+            .set("marketIds", objectMapper.valueToTree(new ArrayList<>(marketIds))));
+    ObjectNode dataFilter = objectMapper.createObjectNode();
+    dataFilter.set("fields", objectMapper.valueToTree(List.of("EX_BEST_OFFERS", "EX_MARKET_DEF")));
+    dataFilter.put("ladderLevels", 1);
+    subscription.set("marketDataFilter", dataFilter);
+    send(subscription);
+  }
+
+  private void send(JsonNode message) throws IOException {
+    synchronized (writeLock) {
+      BufferedWriter out = writer;
+      if (out == null) {
+        throw new IOException("Betfair stream is not connected");
+      }
+      out.write(objectMapper.writeValueAsString(message));
+      out.write("\r\n");
+      out.flush();
+    }
+  }
+
+  /** Appends raw change messages so a stand-in server can replay them later. */
+  private void record(String line) {
+    if (recordPath == null) {
+      return;
+    }
+    try {
+      Files.writeString(
+          recordPath,
+          line + System.lineSeparator(),
+          StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+    } catch (IOException ex) {
+      LOGGER.debug("Failed to record Betfair stream message to {}", recordPath, ex);
+    }
+  }
+
+  private void closeSocket() {
+    Socket current = socket;
+    socket = null;
+    synchronized (writeLock) {
+      writer = null;
+    }
+    if (current != null) {
+      try {
+        current.close();
+      } catch (IOException ignored) {
+        // already closed
+      }
+    }
+  }
+
+  private long staleAfterMs() {
+    return heartbeatMs * 3L;
+  }
+
+  private String resolveSessionToken() {
+    String cached = sessionStore.getSessionToken();
+    if (!cached.isBlank()) {
+      return cached;
+    }
+    return sessionToken;
+  }
+}
@@ -0,0 +1,281 @@
+package com.betfair.sim.service;
+
+import com.betfair.sim.model.EventMarket;
+import com.betfair.sim.model.EventSelection;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides when each selected game is captured next. After every capture a game's interval is
+ * derived from what its markets did:
+ *
+ * <ul>
+ *   <li>a market changing status (e.g. being suspended) or a move of
+ *       {@code capture.cadence.price-move-points} in any runner's implied probability keeps the
+ *       game at {@code floor-ms} for {@code hot-hold-ms}; a market that stays suspended does not;
+ *   <li>inside a {@code break-windows} range (minutes since kick-off around half-time and
+ *       full-time) the game is captured every {@code break-ms};
+ *   <li>after {@code idle-after} captures without any change the interval doubles, up to
+ *       {@code max-ms}, and a game whose markets are all closed waits {@code closed-ms};
+ *   <li>otherwise the game is captured every {@code base-ms}.
+ * </ul>
+ *
+ * A capture that returned no markets (failed, cancelled at the cycle deadline or unresolved)
+ * keeps what was last seen and retries after the current interval, at least {@code base-ms}.
+ *
+ * Every event fetch counts against {@code budget-per-minute}; when more games are due than the
+ * budget allows, active games go first and the rest are deferred to the next cycle. With
+ * {@code capture.cadence.enabled=false} every game is captured every {@code base-ms}.
+ */
+@Component
+public class CaptureCadence {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CaptureCadence.class);
+  private static final long BUDGET_WINDOW_MS = 60_000L;
+
+  private final boolean enabled;
+  private final long floorMs;
+  private final long baseMs;
+  private final long breakMs;
+  private final long maxMs;
+  private final long closedMs;
+  private final long hotHoldMs;
+  private final int idleAfter;
+  private final double priceMoveProbability;
+  private final int budgetPerMinute;
+  private final List<long[]> breakWindows;
+  private final Map<String, GameCadence> games = new HashMap<>();
+  private final Deque<Long> recentFetches = new ArrayDeque<>();
+  private long fetches;
+  private long deferred;
+
+  public CaptureCadence(
+      @Value("${capture.cadence.enabled:true}") boolean enabled,
+      @Value("${capture.cadence.floor-ms:5000}") long floorMs,
+      @Value("${capture.cadence.base-ms:30000}") long baseMs,
+      @Value("${capture.cadence.break-ms:10000}") long breakMs,
+      @Value("${capture.cadence.max-ms:120000}") long maxMs,
+      @Value("${capture.cadence.closed-ms:300000}") long closedMs,
+      @Value("${capture.cadence.hot-hold-ms:60000}") long hotHoldMs,
+      @Value("${capture.cadence.idle-after:3}") int idleAfter,
+      @Value("${capture.cadence.price-move-points:5}") double priceMovePoints,
+      @Value("${capture.cadence.budget-per-minute:240}") int budgetPerMinute,
+      @Value("${capture.cadence.break-windows:42-50,60-66,100-125}") String breakWindows) {
+    this.enabled = enabled;
+    this.floorMs = Math.max(1000L, floorMs);
+    this.baseMs = Math.max(this.floorMs, baseMs);
+    this.breakMs = Math.min(this.baseMs, Math.max(this.floorMs, breakMs));
+    this.maxMs = Math.max(this.baseMs, maxMs);
+    this.closedMs = Math.max(this.baseMs, closedMs);
+    this.hotHoldMs = Math.max(0L, hotHoldMs);
+    this.idleAfter = Math.max(1, idleAfter);
+    this.priceMoveProbability = Math.max(0.0, priceMovePoints) / 100.0;
+    this.budgetPerMinute = Math.max(0, budgetPerMinute);
+    this.breakWindows = parseWindows(breakWindows);
+  }
+
+  /**
+   * Returns the games of {@code started} due for a capture at {@code now}, most urgent first and
+   * limited by the request budget. The returned games are charged against the budget.
+   */
+  public synchronized List<String> selectDue(Collection<String> started, Instant now) {
+    long nowMs = now.toEpochMilli();
+    games.keySet().retainAll(started);
+    List<GameCadence> due = new ArrayList<>();
+    for (String key : started) {
+      GameCadence game = games.computeIfAbsent(key, GameCadence::new);
+      if (game.nextDueAt <= nowMs) {
+        due.add(game);
+      }
+    }
+    due.sort(
+        Comparator.comparing((GameCadence game) -> game.hotUntil <= nowMs)
+            .thenComparingLong(game -> game.nextDueAt));
+
+    int permits = permits(nowMs, due.size());
+    List<String> selected = new ArrayList<>();
+    for (int i = 0; i < due.size() && i < permits; i++) {
+      selected.add(due.get(i).key);
+      recentFetches.addLast(nowMs);
+    }
+    if (selected.size() < due.size()) {
+      deferred += due.size() - selected.size();
+      LOGGER.debug(
+          "Capture budget of {} requests/minute reached; deferring {} games",
+          budgetPerMinute,
+          due.size() - selected.size());
+    }
+    fetches += selected.size();
+    return selected;
+  }
+
+  /** Charges one request made outside the capture cycle (e.g. pre-warming) against the budget. */
+  public synchronized boolean tryAcquire(Instant now) {
+    long nowMs = now.toEpochMilli();
+    if (permits(nowMs, 1) == 0) {
+      return false;
+    }
+    recentFetches.addLast(nowMs);
+    return true;
+  }
+
+  /** Schedules the next capture of {@code key} from the markets sampled at {@code sampledAt}. */
+  public synchronized void observe(
+      String key, List<EventMarket> markets, long gameMinute, Instant sampledAt) {
+    GameCadence game = games.computeIfAbsent(key, GameCadence::new);
+    long nowMs = sampledAt.toEpochMilli();
+    if (markets.isEmpty()) {
+      game.intervalMs = Math.max(baseMs, game.intervalMs);
+      game.reason = "missed";
+      game.nextDueAt = nowMs + game.intervalMs;
+      return;
+    }
+    boolean triggered = false;
+    boolean changed = false;
+    boolean allClosed = true;
+    Map<String, String> statuses = new HashMap<>();
+    Map<String, Double> probabilities = new HashMap<>();
+    for (EventMarket market : markets) {
+      String marketId = market.getMarketId();
+      String status = market.getMarketStatus() == null ? "" : market.getMarketStatus().toUpperCase();
+      statuses.put(marketId, status);
+      allClosed &= "CLOSED".equals(status);
+      String previousStatus = game.statuses.get(marketId);
+      // Only the change counts: a market left suspended (e.g. awaiting settlement) is not activity.
+      if (previousStatus != null && !previousStatus.equals(status)) {
+        triggered = true;
+      }
+      for (EventSelection selection : market.getSelections()) {
+        if (selection == null || selection.getBackOdds() == null || selection.getBackOdds() <= 1.0) {
+          continue;
+        }
+        String runnerKey = marketId + "|" + selection.getSelectionId();
+        double probability = 1.0 / selection.getBackOdds();
+        probabilities.put(runnerKey, probability);
+        Double previous = game.probabilities.get(runnerKey);
+        if (previous == null) {
+          continue;
+        }
+        double move = Math.abs(probability - previous);
+        changed |= move > 0.0;
+        triggered |= priceMoveProbability > 0.0 && move >= priceMoveProbability;
+      }
+    }
+    changed |= triggered || !statuses.equals(game.statuses);
+    game.statuses = statuses;
+    game.probabilities = probabilities;
+    game.idleSamples = changed ? 0 : game.idleSamples + 1;
+    if (triggered) {
+      game.hotUntil = nowMs + hotHoldMs;
+    }
+
+    if (!enabled) {
+      game.intervalMs = baseMs;
+      game.reason = "fixed";
+    } else if (allClosed) {
+      game.intervalMs = closedMs;
+      game.reason = "closed";
+    } else if (nowMs < game.hotUntil || triggered) {
+      game.intervalMs = floorMs;
+      game.reason = "active";
+    } else if (inBreakWindow(gameMinute)) {
+      game.intervalMs = breakMs;
+      game.reason = "break";
+    } else if (game.idleSamples >= idleAfter) {
+      game.intervalMs = Math.min(maxMs, Math.max(baseMs, game.intervalMs * 2L));
+      game.reason = "idle";
+    } else {
+      game.intervalMs = baseMs;
+      game.reason = "normal";
+    }
+    game.nextDueAt = nowMs + game.intervalMs;
+  }
+
+  public synchronized Map<String, Object> stats() {
+    long nowMs = System.currentTimeMillis();
+    Map<String, Object> perGame = new LinkedHashMap<>();
+    for (GameCadence game : games.values()) {
+      Map<String, Object> entry = new LinkedHashMap<>();
+      entry.put("intervalMs", game.intervalMs);
+      entry.put("reason", game.reason);
+      entry.put("dueInMs", Math.max(0L, game.nextDueAt - nowMs));
+      perGame.put(game.key, entry);
+    }
+    long recent = recentFetches.stream().filter(at -> at > nowMs - BUDGET_WINDOW_MS).count();
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("enabled", enabled);
+    stats.put("floorMs", floorMs);
+    stats.put("baseMs", baseMs);
+    stats.put("maxMs", maxMs);
+    stats.put("budgetPerMinute", budgetPerMinute);
+    stats.put("requestsLastMinute", recent);
+    stats.put("fetches", fetches);
+    stats.put("deferred", deferred);
+    stats.put("games", perGame);
+    return stats;
+  }
+
+  private int permits(long nowMs, int wanted) {
+    while (!recentFetches.isEmpty() && recentFetches.peekFirst() <= nowMs - BUDGET_WINDOW_MS) {
+      recentFetches.pollFirst();
+    }
+    if (budgetPerMinute == 0) {
+      return wanted;
+    }
+    return Math.min(wanted, Math.max(0, budgetPerMinute - recentFetches.size()));
+  }
+
+  private boolean inBreakWindow(long gameMinute) {
+    for (long[] window : breakWindows) {
+      if (gameMinute >= window[0] && gameMinute <= window[1]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Parses "from-to" minute ranges separated by commas; malformed ranges are ignored. */
+  private static List<long[]> parseWindows(String value) {
+    List<long[]> windows = new ArrayList<>();
+    if (value == null || value.isBlank()) {
+      return windows;
+    }
+    for (String range : value.split(",")) {
+      String[] bounds = range.trim().split("-", 2);
+      try {
+        long from = Long.parseLong(bounds[0].trim());
+        long to = bounds.length > 1 ? Long.parseLong(bounds[1].trim()) : from;
+        windows.add(new long[] {Math.min(from, to), Math.max(from, to)});
+      } catch (NumberFormatException ex) {
+        LOGGER.warn("Ignoring malformed capture break window '{}'", range);
+      }
+    }
+    return windows;
+  }
+
+  private static final class GameCadence {
+    private final String key;
+    private long nextDueAt;
+    private long intervalMs;
+    private long hotUntil;
+    private int idleSamples;
+    private String reason = "new";
+    private Map<String, String> statuses = new HashMap<>();
+    private Map<String, Double> probabilities = new HashMap<>();
+
+    private GameCadence(String key) {
+      this.key = key;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.betfair.sim.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency of the odds capture: how long each stage takes (event identity, market catalogue,
+ * market book, write) and how stale a row is when it is handed to the writer, per market type and
+ * source. Streamed prices are measured from the exchange's publish time ({@code pt}), polled ones
+ * from when the listMarketBook request was sent, so the round trip counts; the two are kept in
+ * separate histograms because they are not the same kind of number. Polled books also report how
+ * long ago the market last traded. Every stage and staleness measurement is also emitted as a JFR
+ * event ({@code com.betfair.sim.CaptureStage} and {@code com.betfair.sim.CaptureStaleness}) so a
+ * recording shows them next to GC and I/O.
+ */
+@Component
+public class CaptureLatencyMetrics {
+  static final String STAGE_IDENTITY = "identity";
+  static final String STAGE_CATALOGUE = "catalogue";
+  static final String STAGE_BOOK = "book";
+  static final String STAGE_WRITE = "write";
+  static final String SOURCE_STREAM = "stream";
+  static final String SOURCE_POLLED = "polled";
+
+  private final Map<String, LatencyHistogram> stages = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, LatencyHistogram>> staleness = new ConcurrentHashMap<>();
+  private final Map<String, LatencyHistogram> sinceLastTrade = new ConcurrentHashMap<>();
+
+  /** Starts timing {@code stage}; {@link Timer#stop()} records it. */
+  Timer start(String stage) {
+    return new Timer(stage);
+  }
+
+  /**
+   * Records how old the prices published at {@code publishTime} by {@code source}
+   * ({@link #SOURCE_STREAM} or {@link #SOURCE_POLLED}) were when written at {@code writtenAt}.
+   */
+  void recordStaleness(String marketType, String source, long publishTime, long writtenAt) {
+    String resolvedSource = source == null ? SOURCE_POLLED : source;
+    long stalenessMs = Math.max(0L, writtenAt - publishTime);
+    staleness
+        .computeIfAbsent(marketType, key -> new ConcurrentHashMap<>())
+        .computeIfAbsent(resolvedSource, key -> new LatencyHistogram())
+        .record(stalenessMs);
+    CaptureStalenessEvent event = new CaptureStalenessEvent();
+    if (event.shouldCommit()) {
+      event.marketType = marketType;
+      event.source = resolvedSource;
+      event.stalenessMs = stalenessMs;
+      event.commit();
+    }
+  }
+
+  /** Records how long before {@code writtenAt} the market last traded, at {@code lastMatchTime}. */
+  void recordSinceLastTrade(String marketType, long lastMatchTime, long writtenAt) {
+    sinceLastTrade
+        .computeIfAbsent(marketType, key -> new LatencyHistogram())
+        .record(Math.max(0L, writtenAt - lastMatchTime));
+  }
+
+  public Map<String, Object> snapshot() {
+    Map<String, Object> stageStats = new LinkedHashMap<>();
+    new TreeMap<>(stages).forEach((stage, histogram) -> stageStats.put(stage, histogram.snapshot()));
+    Map<String, Object> stalenessStats = new LinkedHashMap<>();
+    new TreeMap<>(staleness)
+        .forEach(
+            (marketType, bySource) -> {
+              Map<String, Object> sourceStats = new LinkedHashMap<>();
+              new TreeMap<>(bySource)
+                  .forEach((source, histogram) -> sourceStats.put(source, histogram.snapshot()));
+              stalenessStats.put(marketType, sourceStats);
+            });
+    Map<String, Object> lastTradeStats = new LinkedHashMap<>();
+    new TreeMap<>(sinceLastTrade)
+        .forEach((marketType, histogram) -> lastTradeStats.put(marketType, histogram.snapshot()));
+    Map<String, Object> snapshot = new LinkedHashMap<>();
+    snapshot.put("stages", stageStats);
+    snapshot.put("stalenessByMarketType", stalenessStats);
+    snapshot.put("sinceLastTradeByMarketType", lastTradeStats);
+    return snapshot;
+  }
+
+  final class Timer {
+    private final String stage;
+    private final long startedAt = System.nanoTime();
+    private final CaptureStageEvent event = new CaptureStageEvent();
+
+    private Timer(String stage) {
+      this.stage = stage;
+      event.begin();
+    }
+
+    void stop() {
+      long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+      stages.computeIfAbsent(stage, key -> new LatencyHistogram()).record(elapsedMs);
+      event.end();
+      if (event.shouldCommit()) {
+        event.stage = stage;
+        event.commit();
+      }
+    }
+  }
+
+  @Name("com.betfair.sim.CaptureStage")
+  @Label("Capture Stage")
+  @Category({"Betfair", "Capture"})
+  @StackTrace(false)
+  static final class CaptureStageEvent extends Event {
+    @Label("Stage")
+    String stage;
+  }
+
+  @Name("com.betfair.sim.CaptureStaleness")
+  @Label("Capture Staleness")
+  @Category({"Betfair", "Capture"})
+  @StackTrace(false)
+  static final class CaptureStalenessEvent extends Event {
+    @Label("Market Type")
+    String marketType;
+
+    @Label("Source")
+    String source;
+
+    @Label("Staleness (ms)")
+    long stalenessMs;
+  }
+}
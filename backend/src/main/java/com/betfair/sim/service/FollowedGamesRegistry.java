@@ -0,0 +1,317 @@
+package com.betfair.sim.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory view of the game lists kept in the followed-games folder ({@code selectedGames-*},
+ * {@code bestStrategyGames-*} and {@code balancedGames-*}). Every list file is parsed once at
+ * startup; afterwards a file is re-read only when it is written through one of the save paths
+ * ({@link #refresh(Path)}) or when the folder's {@link WatchService} reports it changed.
+ *
+ * <p>The selected games working set merges all {@code selectedGames-*} files (a later date wins
+ * for the same market) and leaves out finished games: games reported finished by the capture and
+ * games that kicked off more than {@code betfair.followed-games.registry.retention-hours} ago.
+ */
+@Component
+public class FollowedGamesRegistry {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FollowedGamesRegistry.class);
+  static final String SELECTED_PREFIX = "selectedGames-";
+  static final String BEST_STRATEGY_PREFIX = "bestStrategyGames-";
+  static final String BALANCED_PREFIX = "balancedGames-";
+  private static final String LIST_SUFFIX = ".txt";
+
+  private final Path followedGamesDir;
+  private final long retentionMs;
+  private final boolean watch;
+  private final Map<Path, List<FollowedGame>> lists = new ConcurrentHashMap<>();
+  private final Set<String> finishedMarketIds = ConcurrentHashMap.newKeySet();
+  private volatile WorkingSet selectedWorkingSet;
+  private volatile WatchService watchService;
+
+  public FollowedGamesRegistry(
+      @Value("${betfair.followed-games.dir:backend/data}") String followedGamesDir,
+      @Value("${betfair.followed-games.registry.retention-hours:6}") long retentionHours,
+      @Value("${betfair.followed-games.registry.watch:true}") boolean watch) {
+    this.followedGamesDir = FollowedGamesPathResolver.resolve(followedGamesDir);
+    this.retentionMs = Math.max(1L, retentionHours) * 3_600_000L;
+    this.watch = watch;
+  }
+
+  @PostConstruct
+  public void start() {
+    try {
+      Files.createDirectories(followedGamesDir);
+      if (watch) {
+        // Register before the initial scan so no change made in between is missed.
+        WatchService service = followedGamesDir.getFileSystem().newWatchService();
+        followedGamesDir.register(
+            service,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+        watchService = service;
+        Thread watcher = new Thread(this::watchLoop, "followed-games-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+      }
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(followedGamesDir, "*" + LIST_SUFFIX)) {
+        for (Path file : stream) {
+          if (isListFile(file)) {
+            load(file);
+          }
+        }
+      }
+    } catch (IOException ex) {
+      LOGGER.warn("Failed to load followed game lists from {}", followedGamesDir, ex);
+    }
+    selectedWorkingSet = null;
+    LOGGER.info("Loaded {} followed game lists from {}", lists.size(), followedGamesDir);
+  }
+
+  @PreDestroy
+  public void stop() {
+    WatchService service = watchService;
+    if (service != null) {
+      try {
+        service.close();
+      } catch (IOException ignored) {
+        // shutting down
+      }
+    }
+  }
+
+  /** Re-reads {@code file} after it was written; call from every path that saves a list file. */
+  public void refresh(Path file) {
+    if (isListFile(file)) {
+      load(file);
+    }
+  }
+
+  /** Selected games that are not finished, merged across all {@code selectedGames-*} files. */
+  public List<FollowedGame> selectedGames(Instant now) {
+    WorkingSet current = selectedWorkingSet;
+    if (current == null || now.toEpochMilli() >= current.expiresAt) {
+      current = rebuildSelectedWorkingSet(now);
+    }
+    return current.games;
+  }
+
+  /** Entries of {@code bestStrategyGames-<date>.txt} in file order. */
+  public List<FollowedGame> bestStrategyGames(String date) {
+    return list(BEST_STRATEGY_PREFIX + date + LIST_SUFFIX);
+  }
+
+  /** Entries of {@code balancedGames-<date>.txt} in file order. */
+  public List<FollowedGame> balancedGames(String date) {
+    return list(BALANCED_PREFIX + date + LIST_SUFFIX);
+  }
+
+  /** Drops {@code marketId} from the selected working set, e.g. once its markets closed. */
+  public synchronized void markFinished(String marketId) {
+    if (marketId != null && finishedMarketIds.add(marketId)) {
+      selectedWorkingSet = null;
+    }
+  }
+
+  private List<FollowedGame> list(String fileName) {
+    List<FollowedGame> games = lists.get(followedGamesDir.resolve(fileName));
+    return games == null ? List.of() : games;
+  }
+
+  private synchronized WorkingSet rebuildSelectedWorkingSet(Instant now) {
+    WorkingSet current = selectedWorkingSet;
+    long nowMs = now.toEpochMilli();
+    if (current != null && nowMs < current.expiresAt) {
+      return current;
+    }
+    Map<String, List<FollowedGame>> selectedFiles = new TreeMap<>();
+    for (Map.Entry<Path, List<FollowedGame>> entry : lists.entrySet()) {
+      String name = entry.getKey().getFileName().toString();
+      if (name.startsWith(SELECTED_PREFIX)) {
+        selectedFiles.put(name, entry.getValue());
+      }
+    }
+    Map<String, FollowedGame> byMarketId = new LinkedHashMap<>();
+    for (List<FollowedGame> games : selectedFiles.values()) {
+      for (FollowedGame game : games) {
+        byMarketId.put(game.marketId(), game);
+      }
+    }
+    List<FollowedGame> active = new ArrayList<>();
+    long expiresAt = Long.MAX_VALUE;
+    for (FollowedGame game : byMarketId.values()) {
+      Instant kickoff = parseInstant(game.startTime());
+      long agedOutAt = kickoff == null ? Long.MAX_VALUE : kickoff.toEpochMilli() + retentionMs;
+      if (agedOutAt <= nowMs) {
+        finishedMarketIds.remove(game.marketId());
+        continue;
+      }
+      if (finishedMarketIds.contains(game.marketId())) {
+        continue;
+      }
+      expiresAt = Math.min(expiresAt, agedOutAt);
+      active.add(game);
+    }
+    current = new WorkingSet(List.copyOf(active), expiresAt);
+    selectedWorkingSet = current;
+    return current;
+  }
+
+  private synchronized void load(Path file) {
+    try {
+      List<FollowedGame> games = new ArrayList<>();
+      for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        FollowedGame game = FollowedGame.parse(line);
+        if (game != null) {
+          games.add(game);
+        }
+      }
+      lists.put(file, List.copyOf(games));
+    } catch (NoSuchFileException ex) {
+      lists.remove(file);
+    } catch (IOException ex) {
+      LOGGER.warn("Failed to read followed game list {}", file, ex);
+      return;
+    }
+    if (file.getFileName().toString().startsWith(SELECTED_PREFIX)) {
+      selectedWorkingSet = null;
+    }
+  }
+
+  private void watchLoop() {
+    WatchService service = watchService;
+    try {
+      while (true) {
+        WatchKey key = service.take();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            LOGGER.debug("Followed games watch overflowed; reloading all lists");
+            reloadAll();
+            continue;
+          }
+          Path file = followedGamesDir.resolve((Path) event.context());
+          if (isListFile(file)) {
+            load(file);
+          }
+        }
+        if (!key.reset()) {
+          LOGGER.warn("Followed games folder {} is no longer watched", followedGamesDir);
+          return;
+        }
+      }
+    } catch (ClosedWatchServiceException ex) {
+      // shutting down
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void reloadAll() {
+    lists.keySet().removeIf(file -> !Files.exists(file));
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(followedGamesDir, "*" + LIST_SUFFIX)) {
+      for (Path file : stream) {
+        if (isListFile(file)) {
+          load(file);
+        }
+      }
+    } catch (IOException ex) {
+      LOGGER.warn("Failed to reload followed game lists from {}", followedGamesDir, ex);
+    }
+    selectedWorkingSet = null;
+  }
+
+  private boolean isListFile(Path file) {
+    if (file == null || !followedGamesDir.equals(file.toAbsolutePath().normalize().getParent())) {
+      return false;
+    }
+    String name = file.getFileName().toString();
+    return name.endsWith(LIST_SUFFIX)
+        && (name.startsWith(SELECTED_PREFIX)
+            || name.startsWith(BEST_STRATEGY_PREFIX)
+            || name.startsWith(BALANCED_PREFIX));
+  }
+
+  private static Instant parseInstant(String value) {
+    if (value == null || value.isBlank()) {
+      return null;
+    }
+    try {
+      return Instant.parse(value);
+    } catch (Exception ex) {
+      return null;
+    }
+  }
+
+  private static final class WorkingSet {
+    private final List<FollowedGame> games;
+    private final long expiresAt;
+
+    private WorkingSet(List<FollowedGame> games, long expiresAt) {
+      this.games = games;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /** One {@code marketId,startTime,teams} line of a game list file. */
+  public static final class FollowedGame {
+    private final String marketId;
+    private final String startTime;
+    private final String teams;
+
+    private FollowedGame(String marketId, String startTime, String teams) {
+      this.marketId = marketId;
+      this.startTime = startTime;
+      this.teams = teams;
+    }
+
+    static FollowedGame parse(String line) {
+      if (line == null || line.isBlank()) {
+        return null;
+      }
+      String[] parts = line.split(",", 3);
+      String marketId = parts.length > 0 ? parts[0].trim() : "";
+      String startTime = parts.length > 1 ? parts[1].trim() : "";
+      String teams = parts.length > 2 ? parts[2].trim() : "";
+      if (marketId.isBlank()) {
+        return null;
+      }
+      return new FollowedGame(marketId, startTime, teams);
+    }
+
+    public String marketId() {
+      return marketId;
+    }
+
+    public String startTime() {
+      return startTime;
+    }
+
+    public String teams() {
+      return teams;
+    }
+  }
+}
@@ -8,7 +8,6 @@ import com.betfair.sim.model.LiveGameEntry;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
@@ -30,6 +29,7 @@ import java.util.Arrays;
 import java.util.stream.Collectors;
 import java.text.Normalizer;
 import java.util.Locale;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -61,6 +61,10 @@ public class GameService {
 
   private final BetfairApiClient betfairApiClient;
   private final StatpalLiveClient statpalLiveClient;
+  private final FollowedGamesRegistry followedGamesRegistry;
+  private final AnalyticsResultCache analyticsCache;
+  private final AnalyticsExecutor analyticsExecutor;
+  private final TickDayManifest dayManifest;
   private final Path followedGamesDir;
   private final int domScrapeMaxPerRequest;
   private final Map<String, LiveTracker> liveTrackers = new ConcurrentHashMap<>();
@@ -68,10 +72,18 @@ public class GameService {
   public GameService(
       BetfairApiClient betfairApiClient,
       StatpalLiveClient statpalLiveClient,
+      FollowedGamesRegistry followedGamesRegistry,
+      AnalyticsResultCache analyticsCache,
+      AnalyticsExecutor analyticsExecutor,
+      TickDayManifest dayManifest,
       @Value("${betfair.dom-score.max-scrapes-per-request:20}") int domScrapeMaxPerRequest,
       @Value("${betfair.followed-games.dir:backend/data}") String followedGamesDir) {
     this.betfairApiClient = betfairApiClient;
     this.statpalLiveClient = statpalLiveClient;
+    this.followedGamesRegistry = followedGamesRegistry;
+    this.analyticsCache = analyticsCache;
+    this.analyticsExecutor = analyticsExecutor;
+    this.dayManifest = dayManifest;
     this.domScrapeMaxPerRequest = Math.max(1, domScrapeMaxPerRequest);
     this.followedGamesDir = FollowedGamesPathResolver.resolve(followedGamesDir);
   }
@@ -405,6 +417,7 @@ public class GameService {
         }
       }
       Files.write(gamesToFollowFile, mergedMarketIds, StandardCharsets.UTF_8);
+      followedGamesRegistry.refresh(outputFile);
       return outputFile;
     } catch (IOException ex) {
       throw new UncheckedIOException("Failed to save selected games", ex);
@@ -419,6 +432,7 @@ public class GameService {
     try {
       Files.createDirectories(followedGamesDir);
       Files.write(outputFile, lines, StandardCharsets.UTF_8);
+      followedGamesRegistry.refresh(outputFile);
       return outputFile;
     } catch (IOException ex) {
       throw new UncheckedIOException("Failed to save balanced games", ex);
@@ -449,23 +463,30 @@ public class GameService {
       return List.of();
     }
 
+    long listStarted = System.nanoTime();
     Map<String, LinkedHashSet<String>> marketsByGame = new LinkedHashMap<>();
     Map<String, List<Path>> filesByGame = new HashMap<>();
-    try (DirectoryStream<Path> stream = Files.newDirectoryStream(inputDir, "*.txt")) {
-      for (Path file : stream) {
-        String fileName = file.getFileName().toString();
-        ParsedAnalyticsFile parsed = parseAnalyticsFileName(fileName, folder);
-        if (parsed == null) {
-          continue;
-        }
-        marketsByGame.computeIfAbsent(parsed.gameKey(), key -> new LinkedHashSet<>()).add(parsed.marketType());
-        filesByGame.computeIfAbsent(parsed.gameKey(), key -> new ArrayList<>()).add(file);
-      }
-    } catch (IOException ex) {
-      throw new UncheckedIOException("Failed to read analytics games", ex);
+    for (TickDayManifest.Entry file : dayManifest.entries(inputDir)) {
+      marketsByGame.computeIfAbsent(file.gameKey(), key -> new LinkedHashSet<>()).add(file.marketType());
+      filesByGame
+          .computeIfAbsent(file.gameKey(), key -> new ArrayList<>())
+          .add(inputDir.resolve(file.fileName()));
     }
+    analyticsExecutor.record(AnalyticsExecutor.STAGE_LIST, listStarted);
 
+    // Games are estimated in parallel; results come back in listing order.
+    long gamesStarted = System.nanoTime();
+    List<Callable<AnalyticsGoalsEstimate>> estimateTasks = new ArrayList<>();
+    for (String gameKey : marketsByGame.keySet()) {
+      List<Path> goalLines = goalLineFiles(filesByGame.get(gameKey));
+      estimateTasks.add(() -> cachedGoalsEstimate(folder, gameKey, goalLines));
+    }
+    List<AnalyticsGoalsEstimate> estimates = analyticsExecutor.invokeAll(estimateTasks);
+    analyticsExecutor.record(AnalyticsExecutor.STAGE_GAMES, gamesStarted);
+
+    long mergeStarted = System.nanoTime();
     List<AnalyticsGameEntry> entries = new ArrayList<>();
+    int index = 0;
     for (Map.Entry<String, LinkedHashSet<String>> entry : marketsByGame.entrySet()) {
       String gameKey = entry.getKey();
       List<String> markets = new ArrayList<>(entry.getValue());
@@ -475,10 +496,12 @@ public class GameService {
               gameKey,
               gameKey.replace('_', ' ').trim(),
               markets));
-      AnalyticsGoalsEstimate estimate = estimateGoalsFromFiles(gameKey, filesByGame.get(gameKey));
-      entries.get(entries.size() - 1).setGuessedGoals(estimate.getGuessedGoals());
+      entries.get(entries.size() - 1).setGuessedGoals(estimates.get(index++).getGuessedGoals());
     }
-    entries.sort(Comparator.comparing(AnalyticsGameEntry::getDisplayName, String::compareToIgnoreCase));
+    entries.sort(
+        Comparator.comparing(AnalyticsGameEntry::getDisplayName, String::compareToIgnoreCase)
+            .thenComparing(AnalyticsGameEntry::getGameKey));
+    analyticsExecutor.record(AnalyticsExecutor.STAGE_MERGE, mergeStarted);
     return entries;
   }
 
@@ -491,62 +514,130 @@ public class GameService {
       return new AnalyticsGoalsEstimate(gameKey == null ? "" : gameKey, "", 0, List.of());
     }
 
-    String prefix = gameKey + "_" + folder + "_OVER_UNDER_";
     List<Path> files = new ArrayList<>();
-    try (DirectoryStream<Path> stream = Files.newDirectoryStream(inputDir, "*.txt")) {
-      for (Path file : stream) {
-        String fileName = file.getFileName().toString();
-        if (fileName.startsWith(prefix)) {
-          files.add(file);
-        }
+    for (TickDayManifest.Entry file : dayManifest.entries(inputDir)) {
+      if (file.gameKey().equals(gameKey) && file.marketType().startsWith("OVER_UNDER_")) {
+        files.add(inputDir.resolve(file.fileName()));
       }
-    } catch (IOException ex) {
-      throw new UncheckedIOException("Failed to read analytics goal files", ex);
     }
-    return estimateGoalsFromFiles(gameKey, files);
+    return cachedGoalsEstimate(folder, gameKey, files);
   }
 
-  public List<InPlayStatusEntry> loadBalancedGameStatuses(String date) {
-    String resolvedDate = date == null || date.isBlank() ? LocalDate.now(ZoneOffset.UTC).toString() : date;
-    Path inputFile = followedGamesDir.resolve("balancedGames-" + resolvedDate + ".txt");
-    if (!Files.exists(inputFile)) {
-      return List.of();
+  /**
+   * The tick files of {@code date} as listed in the day's {@link TickDayManifest}: game, market,
+   * snapshot count, first and last capture time and last market status of each.
+   */
+  public List<Map<String, Object>> analyticsFilesByDate(String date) {
+    Path inputDir = analyticsDayDir(date);
+    List<Map<String, Object>> files = new ArrayList<>();
+    for (TickDayManifest.Entry file : dayManifest.entries(inputDir)) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      row.put("fileName", file.fileName());
+      row.put("gameKey", file.gameKey());
+      row.put("marketType", file.marketType());
+      row.put("marketId", file.marketId());
+      row.put("snapshots", file.snapshots());
+      row.put("firstTimestamp", file.firstTimestamp());
+      row.put("lastTimestamp", file.lastTimestamp());
+      row.put("lastStatus", file.lastStatus());
+      files.add(row);
+    }
+    return files;
+  }
+
+  /** Rebuilds the {@link TickDayManifest} of {@code date} from its tick files. */
+  public Map<String, Object> rebuildAnalyticsManifest(String date) {
+    Path inputDir = analyticsDayDir(date);
+    if (!Files.isDirectory(inputDir)) {
+      return Map.of("folder", inputDir.toString(), "files", 0);
     }
+    return dayManifest.rebuild(inputDir);
+  }
+
+  /** Hit, miss and size counters of the analytics cache, see {@link AnalyticsResultCache}. */
+  public Map<String, Object> getAnalyticsCacheStats() {
+    return analyticsCache.stats();
+  }
+
+  /**
+   * Analytics cache counters ({@link AnalyticsResultCache}) and the pool and per-stage timing of
+   * the analytics work ({@link AnalyticsExecutor}).
+   */
+  public Map<String, Object> getAnalyticsStats() {
+    Map<String, Object> stats = new LinkedHashMap<>(analyticsExecutor.stats());
+    stats.put("cache", analyticsCache.stats());
+    return stats;
+  }
+
+  /**
+   * The snapshot of one market of {@code gameKey} at game minute {@code minute}: the first capture
+   * at or after that minute, read from the tick file's index rather than from its first line.
+   */
+  public Map<String, Object> analyticsSnapshotAtMinute(
+      String date, String gameKey, String marketType, long minute) {
+    Path inputDir = analyticsDayDir(date);
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("gameKey", gameKey);
+    result.put("marketType", marketType);
+    result.put("minute", minute);
+    if (!Files.isDirectory(inputDir) || gameKey == null || marketType == null) {
+      return result;
+    }
+    String wanted = marketType.trim().toUpperCase(Locale.ROOT);
     try {
-      List<String> lines = Files.readAllLines(inputFile, StandardCharsets.UTF_8);
-      List<InPlayStatusEntry> entries = new ArrayList<>();
-      List<String> marketIds = new ArrayList<>();
-      for (String line : lines) {
-        if (line == null || line.isBlank()) {
-          continue;
-        }
-        String[] parts = line.split(",", 3);
-        String marketId = parts.length > 0 ? parts[0].trim() : "";
-        String startTime = parts.length > 1 ? parts[1].trim() : "";
-        String teams = parts.length > 2 ? parts[2].trim() : "";
-        if (marketId.isBlank()) {
+      for (TickDayManifest.Entry file : dayManifest.entries(inputDir)) {
+        if (!file.gameKey().equals(gameKey) || !file.marketType().equals(wanted)) {
           continue;
         }
-        entries.add(new InPlayStatusEntry(marketId, startTime, teams, "Scheduled"));
-        marketIds.add(marketId);
-      }
-      if (marketIds.isEmpty() || !betfairApiClient.isEnabled()) {
-        return entries;
+        TickFileReader.forEachSnapshotFrom(
+            inputDir.resolve(file.fileName()),
+            minute,
+            Long.MIN_VALUE,
+            snapshot -> {
+              List<Map<String, Object>> runners = new ArrayList<>();
+              for (TickFileReader.TickRunner runner : snapshot.runners()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("selectionId", runner.runnerId());
+                row.put("selectionName", runner.runnerName());
+                row.put("backOdds", Double.isNaN(runner.backOdds()) ? null : runner.backOdds());
+                row.put("layOdds", Double.isNaN(runner.layOdds()) ? null : runner.layOdds());
+                runners.add(row);
+              }
+              result.put("timestamp", snapshot.timestamp());
+              result.put("gameMinute", snapshot.gameMinute());
+              result.put("marketStatus", snapshot.marketStatus());
+              result.put("runners", runners);
+              return false;
+            });
       }
-      Map<String, BetfairApiClient.MarketStatus> statusByMarket =
-          betfairApiClient.getMarketStatuses(marketIds);
-      Instant now = Instant.now();
-      for (InPlayStatusEntry entry : entries) {
-        BetfairApiClient.MarketStatus status = statusByMarket.get(entry.marketId);
-        if (status == null) {
-          continue;
-        }
-        entry.status = resolveStatus(status, entry.startTime, now);
-      }
-      return entries;
     } catch (IOException ex) {
-      throw new UncheckedIOException("Failed to read balanced games", ex);
+      throw new UncheckedIOException("Failed to read analytics snapshot", ex);
     }
+    return result;
+  }
+
+  public List<InPlayStatusEntry> loadBalancedGameStatuses(String date) {
+    String resolvedDate = date == null || date.isBlank() ? LocalDate.now(ZoneOffset.UTC).toString() : date;
+    List<InPlayStatusEntry> entries = new ArrayList<>();
+    List<String> marketIds = new ArrayList<>();
+    for (FollowedGamesRegistry.FollowedGame game : followedGamesRegistry.balancedGames(resolvedDate)) {
+      entries.add(new InPlayStatusEntry(game.marketId(), game.startTime(), game.teams(), "Scheduled"));
+      marketIds.add(game.marketId());
+    }
+    if (marketIds.isEmpty() || !betfairApiClient.isEnabled()) {
+      return entries;
+    }
+    Map<String, BetfairApiClient.MarketStatus> statusByMarket =
+        betfairApiClient.getMarketStatuses(marketIds);
+    Instant now = Instant.now();
+    for (InPlayStatusEntry entry : entries) {
+      BetfairApiClient.MarketStatus status = statusByMarket.get(entry.marketId);
+      if (status == null) {
+        continue;
+      }
+      entry.status = resolveStatus(status, entry.startTime, now);
+    }
+    return entries;
   }
 
   private String resolveStatus(BetfairApiClient.MarketStatus status, String startTimeText, Instant now) {
@@ -580,22 +671,26 @@ public class GameService {
     return "Scheduled";
   }
 
-  private ParsedAnalyticsFile parseAnalyticsFileName(String fileName, String folderDate) {
-    if (fileName == null || !fileName.endsWith(".txt")) {
-      return null;
-    }
-    String stem = fileName.substring(0, fileName.length() - 4);
-    String marker = "_" + folderDate + "_";
-    int markerIndex = stem.indexOf(marker);
-    if (markerIndex <= 0) {
-      return null;
-    }
-    String gameKey = stem.substring(0, markerIndex);
-    String marketType = stem.substring(markerIndex + marker.length());
-    if (gameKey.isBlank() || marketType.isBlank()) {
-      return null;
+  private Path analyticsDayDir(String date) {
+    String resolvedDate = date == null || date.isBlank() ? LocalDate.now(ZoneOffset.UTC).toString() : date;
+    return followedGamesDir.resolve(
+        LocalDate.parse(resolvedDate).format(java.time.format.DateTimeFormatter.BASIC_ISO_DATE));
+  }
+
+  private AnalyticsGoalsEstimate cachedGoalsEstimate(
+      String folder, String gameKey, List<Path> files) {
+    return analyticsCache.estimate(
+        folder, gameKey, files, () -> estimateGoalsFromFiles(gameKey, files));
+  }
+
+  private List<Path> goalLineFiles(List<Path> files) {
+    List<Path> goalLines = new ArrayList<>();
+    for (Path file : files) {
+      if (TickFileReader.stem(file.getFileName().toString()).contains("_OVER_UNDER_")) {
+        goalLines.add(file);
+      }
     }
-    return new ParsedAnalyticsFile(gameKey, marketType);
+    return goalLines;
   }
 
   private AnalyticsGoalsEstimate estimateGoalsFromFiles(String gameKey, List<Path> files) {
@@ -603,11 +698,10 @@ public class GameService {
       return new AnalyticsGoalsEstimate(gameKey, gameKey.replace('_', ' ').trim(), 0, List.of());
     }
 
-    List<GoalLineResult> lineResults = new ArrayList<>();
+    List<Callable<GoalLineResult>> lineTasks = new ArrayList<>();
     for (Path file : files) {
       String fileName = file.getFileName().toString();
-      int extension = fileName.lastIndexOf('.');
-      String stem = extension > 0 ? fileName.substring(0, extension) : fileName;
+      String stem = TickFileReader.stem(fileName);
       int suffixStart = stem.lastIndexOf("_OVER_UNDER_");
       if (suffixStart < 0) {
         continue;
@@ -617,12 +711,19 @@ public class GameService {
       if (threshold == null) {
         continue;
       }
-      boolean closedBeforeEnd = isMarketClosedBeforeEnd(file);
-      boolean overFavouredAtLatestSnapshot = isOverFavouredAtLatestSnapshot(file);
-      lineResults.add(
-          new GoalLineResult(
-              threshold, marketType, closedBeforeEnd, overFavouredAtLatestSnapshot));
-    }
+      lineTasks.add(
+          () -> {
+            long fileStarted = System.nanoTime();
+            GoalLineAnalyzer analysis = GoalLineAnalyzer.analyze(file);
+            analyticsExecutor.record(AnalyticsExecutor.STAGE_FILE, fileStarted);
+            return new GoalLineResult(
+                threshold,
+                marketType,
+                analysis.closedBeforeEnd(),
+                analysis.overFavouredAtLatestSnapshot());
+          });
+    }
+    List<GoalLineResult> lineResults = new ArrayList<>(analyticsExecutor.invokeAll(lineTasks));
 
     lineResults.sort(Comparator.comparingDouble(GoalLineResult::threshold));
     List<String> closedLines = new ArrayList<>();
@@ -652,88 +753,6 @@ public class GameService {
     }
   }
 
-  private boolean isMarketClosedBeforeEnd(Path file) {
-    try {
-      List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
-      for (String line : lines) {
-        if (line == null || line.isBlank() || line.startsWith("timestamp")) {
-          continue;
-        }
-        String[] parts = line.split(",");
-        if (parts.length < 5) {
-          continue;
-        }
-        String status = parts[4].trim().toUpperCase();
-        if (!"CLOSED".equals(status)) {
-          continue;
-        }
-        long minute = parseMinute(parts[1]);
-        if (minute < 120) {
-          return true;
-        }
-      }
-      return false;
-    } catch (IOException ex) {
-      return false;
-    }
-  }
-
-  private boolean isOverFavouredAtLatestSnapshot(Path file) {
-    try {
-      List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
-      Quote overQuote = null;
-      Quote underQuote = null;
-      for (String line : lines) {
-        if (line == null || line.isBlank() || line.startsWith("timestamp")) {
-          continue;
-        }
-        String[] parts = line.split(",");
-        if (parts.length < 9) {
-          continue;
-        }
-        String runnerName = parts[6].trim().toUpperCase();
-        double backOdds = parseOdds(parts[7]);
-        if (backOdds <= 0) {
-          continue;
-        }
-        long minute = parseMinute(parts[1]);
-        String timestamp = parts[0].trim();
-        Quote quote = new Quote(minute, timestamp, backOdds);
-        if (runnerName.startsWith("OVER ")) {
-          if (overQuote == null || quote.isAfter(overQuote)) {
-            overQuote = quote;
-          }
-        } else if (runnerName.startsWith("UNDER ")) {
-          if (underQuote == null || quote.isAfter(underQuote)) {
-            underQuote = quote;
-          }
-        }
-      }
-      if (overQuote == null || underQuote == null) {
-        return false;
-      }
-      return overQuote.backOdds() < underQuote.backOdds();
-    } catch (IOException ex) {
-      return false;
-    }
-  }
-
-  private double parseOdds(String value) {
-    try {
-      return Double.parseDouble(value == null ? "0" : value.trim());
-    } catch (Exception ex) {
-      return 0.0;
-    }
-  }
-
-  private long parseMinute(String value) {
-    try {
-      return Long.parseLong(value == null ? "0" : value.trim());
-    } catch (Exception ex) {
-      return 0L;
-    }
-  }
-
   private void applySyntheticOdds(List<Game> games, LocalDate date) {
     for (Game game : games) {
       if (game.getHomeOdds() != null || game.getDrawOdds() != null || game.getAwayOdds() != null) {
@@ -1062,24 +1081,6 @@ public class GameService {
     private String lastKnownScore;
   }
 
-  private static final class ParsedAnalyticsFile {
-    private final String gameKey;
-    private final String marketType;
-
-    private ParsedAnalyticsFile(String gameKey, String marketType) {
-      this.gameKey = gameKey;
-      this.marketType = marketType;
-    }
-
-    private String gameKey() {
-      return gameKey;
-    }
-
-    private String marketType() {
-      return marketType;
-    }
-  }
-
   private static final class GoalLineResult {
     private final double threshold;
     private final String marketType;
@@ -1117,27 +1118,4 @@ public class GameService {
       return closedBeforeEnd || overFavouredAtLatestSnapshot;
     }
   }
-
-  private static final class Quote {
-    private final long minute;
-    private final String timestamp;
-    private final double backOdds;
-
-    private Quote(long minute, String timestamp, double backOdds) {
-      this.minute = minute;
-      this.timestamp = timestamp;
-      this.backOdds = backOdds;
-    }
-
-    private double backOdds() {
-      return backOdds;
-    }
-
-    private boolean isAfter(Quote other) {
-      if (minute != other.minute) {
-        return minute > other.minute;
-      }
-      return timestamp.compareTo(other.timestamp) > 0;
-    }
-  }
 }
@@ -0,0 +1,87 @@
+package com.betfair.sim.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Everything the goals estimate needs from one OVER_UNDER tick file, gathered in a single pass:
+ * whether the market closed before minute 120 and whether OVER was the favourite at the latest
+ * back prices of both sides. Reading stops as soon as the market is seen closed early, since the
+ * line then counts as reached whatever the prices say.
+ */
+final class GoalLineAnalyzer implements TickFileReader.SnapshotConsumer {
+  private static final int CLOSED_BEFORE_MINUTE = 120;
+  private static final int OVER = 0;
+  private static final int UNDER = 1;
+
+  private final long[] quoteMinute = new long[2];
+  private final String[] quoteTimestamp = new String[2];
+  private final double[] quoteBackOdds = new double[2];
+  private boolean closedBeforeEnd;
+
+  private GoalLineAnalyzer() {}
+
+  /** Analyzes {@code file}; an unreadable file counts as neither closed nor OVER favoured. */
+  static GoalLineAnalyzer analyze(Path file) {
+    GoalLineAnalyzer analyzer = new GoalLineAnalyzer();
+    try {
+      TickFileReader.forEachSnapshot(file, analyzer);
+    } catch (IOException ex) {
+      return new GoalLineAnalyzer();
+    }
+    return analyzer;
+  }
+
+  @Override
+  public boolean accept(TickFileReader.TickSnapshot snapshot) {
+    if (snapshot.gameMinute() < CLOSED_BEFORE_MINUTE
+        && "CLOSED".equalsIgnoreCase(snapshot.marketStatus())) {
+      closedBeforeEnd = true;
+      return false;
+    }
+    for (TickFileReader.TickRunner runner : snapshot.runners()) {
+      double backOdds = runner.backOdds();
+      if (!(backOdds > 0)) {
+        continue;
+      }
+      int side = side(runner.runnerName());
+      if (side < 0) {
+        continue;
+      }
+      if (quoteTimestamp[side] == null
+          || isAfter(snapshot.gameMinute(), snapshot.timestamp(), side)) {
+        quoteMinute[side] = snapshot.gameMinute();
+        quoteTimestamp[side] = snapshot.timestamp();
+        quoteBackOdds[side] = backOdds;
+      }
+    }
+    return true;
+  }
+
+  boolean closedBeforeEnd() {
+    return closedBeforeEnd;
+  }
+
+  boolean overFavouredAtLatestSnapshot() {
+    return quoteTimestamp[OVER] != null
+        && quoteTimestamp[UNDER] != null
+        && quoteBackOdds[OVER] < quoteBackOdds[UNDER];
+  }
+
+  private boolean isAfter(long minute, String timestamp, int side) {
+    if (minute != quoteMinute[side]) {
+      return minute > quoteMinute[side];
+    }
+    return timestamp.compareTo(quoteTimestamp[side]) > 0;
+  }
+
+  private static int side(String runnerName) {
+    if (runnerName.regionMatches(true, 0, "OVER ", 0, 5)) {
+      return OVER;
+    }
+    if (runnerName.regionMatches(true, 0, "UNDER ", 0, 6)) {
+      return UNDER;
+    }
+    return -1;
+  }
+}
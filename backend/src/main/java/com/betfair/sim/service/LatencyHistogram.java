@@ -0,0 +1,74 @@
+package com.betfair.sim.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free millisecond histogram over fixed, roughly logarithmic buckets. Percentiles are
+ * reported as the upper bound of the bucket they fall in, which is precise enough to spot a stage
+ * or market type drifting from tens to thousands of milliseconds.
+ */
+final class LatencyHistogram {
+  private static final long[] BOUNDS_MS = {
+    1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 30_000, 60_000, 300_000
+  };
+
+  private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MS.length + 1);
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong sumMs = new AtomicLong();
+  private final AtomicLong maxMs = new AtomicLong();
+
+  void record(long valueMs) {
+    long value = Math.max(0L, valueMs);
+    counts.incrementAndGet(bucket(value));
+    total.incrementAndGet();
+    sumMs.addAndGet(value);
+    maxMs.accumulateAndGet(value, Math::max);
+  }
+
+  /** Upper bound of the bucket holding the {@code percentile} (0-100), or the max beyond the last. */
+  long percentile(double percentile) {
+    long count = total.get();
+    if (count == 0L) {
+      return 0L;
+    }
+    long rank = (long) Math.ceil(count * percentile / 100.0);
+    long seen = 0L;
+    for (int i = 0; i < BOUNDS_MS.length; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(BOUNDS_MS[i], maxMs.get());
+      }
+    }
+    return maxMs.get();
+  }
+
+  Map<String, Object> snapshot() {
+    long count = total.get();
+    Map<String, Object> snapshot = new LinkedHashMap<>();
+    snapshot.put("count", count);
+    snapshot.put("avgMs", count == 0L ? 0.0 : sumMs.get() / (double) count);
+    snapshot.put("p50Ms", percentile(50));
+    snapshot.put("p90Ms", percentile(90));
+    snapshot.put("p99Ms", percentile(99));
+    snapshot.put("maxMs", maxMs.get());
+    Map<String, Long> buckets = new LinkedHashMap<>();
+    for (int i = 0; i < BOUNDS_MS.length; i++) {
+      buckets.put("<=" + BOUNDS_MS[i], counts.get(i));
+    }
+    buckets.put(">" + BOUNDS_MS[BOUNDS_MS.length - 1], counts.get(BOUNDS_MS.length));
+    snapshot.put("buckets", buckets);
+    return snapshot;
+  }
+
+  private static int bucket(long valueMs) {
+    for (int i = 0; i < BOUNDS_MS.length; i++) {
+      if (valueMs <= BOUNDS_MS[i]) {
+        return i;
+      }
+    }
+    return BOUNDS_MS.length;
+  }
+}
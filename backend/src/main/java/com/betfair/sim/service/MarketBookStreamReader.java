@@ -0,0 +1,391 @@
+package com.betfair.sim.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decodes a listMarketBook JSON-RPC envelope straight from the response stream. Each market book
+ * is written into one reusable {@link MarketBook} cursor and handed to an accumulator, so no JSON
+ * tree or intermediate response string is built.
+ */
+final class MarketBookStreamReader {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MarketBookStreamReader.class);
+
+  private final ObjectMapper objectMapper;
+
+  MarketBookStreamReader(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Reads every call response in the envelope and returns one accumulated result per call, routed
+   * by JSON-RPC id. Calls without a response stay {@code null}; calls rejected as TOO_MUCH_DATA are
+   * reported by index to {@code tooMuchData}.
+   */
+  <T> List<T> read(
+      InputStream body,
+      int callCount,
+      Supplier<T> newResult,
+      BiConsumer<T, MarketBook> accumulator,
+      IntConsumer tooMuchData)
+      throws IOException {
+    List<T> results = new ArrayList<>(Collections.<T>nCopies(callCount, null));
+    MarketBook cursor = new MarketBook();
+    try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+      JsonToken token = parser.nextToken();
+      if (token == null) {
+        return results;
+      }
+      if (token != JsonToken.START_ARRAY) {
+        LOGGER.warn("Betfair listMarketBook envelope returned a non-array response");
+        return results;
+      }
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        T result = newResult.get();
+        int id = 0;
+        boolean rejectedAsTooMuchData = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String field = parser.getCurrentName();
+          parser.nextToken();
+          if ("id".equals(field)) {
+            id = parser.getValueAsInt(0);
+          } else if ("result".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+              cursor.reset();
+              readMarket(parser, cursor);
+              accumulator.accept(result, cursor);
+            }
+          } else if ("error".equals(field) && parser.currentToken() != JsonToken.VALUE_NULL) {
+            JsonNode error = parser.readValueAsTree();
+            rejectedAsTooMuchData = BetfairBatchPlanner.isTooMuchData(error);
+            LOGGER.warn("Betfair listMarketBook error: {}", error.toString());
+          } else {
+            parser.skipChildren();
+          }
+        }
+        if (id < 1 || id > callCount) {
+          LOGGER.warn("Betfair listMarketBook envelope returned a response with unknown id {}", id);
+          continue;
+        }
+        results.set(id - 1, result);
+        if (rejectedAsTooMuchData) {
+          tooMuchData.accept(id - 1);
+        }
+      }
+    }
+    return results;
+  }
+
+  private void readMarket(JsonParser parser, MarketBook market) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      if ("marketId".equals(field)) {
+        market.marketId = parser.getValueAsString("");
+      } else if ("status".equals(field)) {
+        market.status = parser.getValueAsString("");
+      } else if ("inplay".equals(field)) {
+        market.inPlay = parser.getValueAsBoolean(false);
+      } else if ("lastMatchTime".equals(field)) {
+        market.lastMatchTime = parseEpochMillis(parser.getValueAsString(""));
+      } else if ("runners".equals(field) && value == JsonToken.START_ARRAY) {
+        readRunners(parser, market);
+      } else if ("marketDefinition".equals(field) && value == JsonToken.START_OBJECT) {
+        market.hasDefinition = true;
+        readDefinition(parser, market);
+      } else if ("score".equals(field)) {
+        market.marketScore = readTree(parser);
+      } else if ("homeScore".equals(field)
+          || "scoreHome".equals(field)
+          || "awayScore".equals(field)
+          || "scoreAway".equals(field)) {
+        if (market.marketScoreFields == null) {
+          market.marketScoreFields = objectMapper.createObjectNode();
+        }
+        market.marketScoreFields.set(field, readTree(parser));
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private static long parseEpochMillis(String value) {
+    if (value == null || value.isBlank()) {
+      return 0L;
+    }
+    try {
+      return Instant.parse(value).toEpochMilli();
+    } catch (DateTimeParseException ex) {
+      return 0L;
+    }
+  }
+
+  private void readRunners(JsonParser parser, MarketBook market) throws IOException {
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      int index = market.addRunner();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if ("selectionId".equals(field)) {
+          market.selectionIds[index] = parser.getValueAsLong(-1L);
+        } else if ("status".equals(field)) {
+          String status = parser.getValueAsString("");
+          if (!market.runnerWinnerFound && "WINNER".equalsIgnoreCase(status)) {
+            market.runnerWinnerFound = true;
+            market.runnerWinnerIndex = index;
+          }
+        } else if ("runnerName".equals(field)) {
+          market.runnerNames[index] = parser.getValueAsString("");
+        } else if ("name".equals(field)) {
+          if (market.runnerNames[index] == null) {
+            market.runnerNames[index] = parser.getValueAsString("");
+          }
+        } else if ("ex".equals(field) && value == JsonToken.START_OBJECT) {
+          readExchangePrices(parser, market, index);
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  private void readExchangePrices(JsonParser parser, MarketBook market, int index)
+      throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      if (value != JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        continue;
+      }
+      if ("availableToBack".equals(field)) {
+        market.bestBack[index] = readBestPrice(parser);
+      } else if ("availableToLay".equals(field)) {
+        market.bestLay[index] = readBestPrice(parser);
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  /** Reads the price of the first ladder level and skips the rest of the array. */
+  private double readBestPrice(JsonParser parser) throws IOException {
+    double best = Double.NaN;
+    boolean first = true;
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      if (first && parser.currentToken() == JsonToken.START_OBJECT) {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String field = parser.getCurrentName();
+          parser.nextToken();
+          if ("price".equals(field)) {
+            best = parser.getValueAsDouble(Double.NaN);
+          } else {
+            parser.skipChildren();
+          }
+        }
+      } else {
+        parser.skipChildren();
+      }
+      first = false;
+    }
+    return best;
+  }
+
+  private void readDefinition(JsonParser parser, MarketBook market) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      if ("status".equals(field)) {
+        market.definitionStatus = parser.getValueAsString("");
+      } else if ("score".equals(field)) {
+        market.definitionScore = readTree(parser);
+      } else if ("runners".equals(field) && value == JsonToken.START_ARRAY) {
+        readDefinitionRunners(parser, market);
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private void readDefinitionRunners(JsonParser parser, MarketBook market) throws IOException {
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      long selectionId = -1L;
+      boolean winner = false;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        if ("selectionId".equals(field)) {
+          selectionId = parser.getValueAsLong(-1L);
+        } else if ("status".equals(field)) {
+          winner = "WINNER".equalsIgnoreCase(parser.getValueAsString(""));
+        } else {
+          parser.skipChildren();
+        }
+      }
+      if (winner && !market.definitionWinnerFound) {
+        market.definitionWinnerFound = true;
+        market.definitionWinnerId = selectionId;
+      }
+    }
+  }
+
+  private JsonNode readTree(JsonParser parser) throws IOException {
+    return objectMapper.readTree(parser);
+  }
+
+  /**
+   * One decoded market book. The instance is reused for every market in a response, so
+   * accumulators must copy out what they keep.
+   */
+  static final class MarketBook {
+    private static final int INITIAL_RUNNERS = 32;
+
+    private String marketId;
+    private String status;
+    private boolean inPlay;
+    private long lastMatchTime;
+    private boolean hasDefinition;
+    private String definitionStatus;
+    private boolean definitionWinnerFound;
+    private long definitionWinnerId;
+    private JsonNode definitionScore;
+    private JsonNode marketScore;
+    private ObjectNode marketScoreFields;
+    private int runnerCount;
+    private boolean runnerWinnerFound;
+    private int runnerWinnerIndex;
+    private long[] selectionIds = new long[INITIAL_RUNNERS];
+    private double[] bestBack = new double[INITIAL_RUNNERS];
+    private double[] bestLay = new double[INITIAL_RUNNERS];
+    private String[] runnerNames = new String[INITIAL_RUNNERS];
+
+    private void reset() {
+      marketId = "";
+      status = "";
+      inPlay = false;
+      lastMatchTime = 0L;
+      hasDefinition = false;
+      definitionStatus = null;
+      definitionWinnerFound = false;
+      definitionWinnerId = -1L;
+      definitionScore = null;
+      marketScore = null;
+      marketScoreFields = null;
+      Arrays.fill(runnerNames, 0, runnerCount, null);
+      runnerCount = 0;
+      runnerWinnerFound = false;
+      runnerWinnerIndex = -1;
+    }
+
+    private int addRunner() {
+      if (runnerCount == selectionIds.length) {
+        int capacity = runnerCount * 2;
+        selectionIds = Arrays.copyOf(selectionIds, capacity);
+        bestBack = Arrays.copyOf(bestBack, capacity);
+        bestLay = Arrays.copyOf(bestLay, capacity);
+        runnerNames = Arrays.copyOf(runnerNames, capacity);
+      }
+      int index = runnerCount++;
+      selectionIds[index] = -1L;
+      bestBack[index] = Double.NaN;
+      bestLay[index] = Double.NaN;
+      return index;
+    }
+
+    String marketId() {
+      return marketId;
+    }
+
+    String status() {
+      return status;
+    }
+
+    boolean inPlay() {
+      return inPlay;
+    }
+
+    /** Time of the market's last match in epoch millis, 0 when none was returned. */
+    long lastMatchTime() {
+      return lastMatchTime;
+    }
+
+    /** Market definition status when a definition was returned, otherwise the book status. */
+    String effectiveStatus() {
+      if (hasDefinition && definitionStatus != null) {
+        return definitionStatus;
+      }
+      return status;
+    }
+
+    /**
+     * Selection id of the first WINNER runner, read from the market definition when present and
+     * from the book runners otherwise; {@code null} when there is none.
+     */
+    Long winnerSelectionId() {
+      if (hasDefinition) {
+        return definitionWinnerFound ? definitionWinnerId : null;
+      }
+      return runnerWinnerFound ? selectionIds[runnerWinnerIndex] : null;
+    }
+
+    JsonNode definitionScore() {
+      return definitionScore;
+    }
+
+    JsonNode marketScore() {
+      return marketScore;
+    }
+
+    JsonNode marketScoreFields() {
+      return marketScoreFields;
+    }
+
+    int runnerCount() {
+      return runnerCount;
+    }
+
+    long selectionId(int index) {
+      return selectionIds[index];
+    }
+
+    /** Best available-to-back price, or NaN when the ladder is empty. */
+    double bestBack(int index) {
+      return bestBack[index];
+    }
+
+    /** Best available-to-lay price, or NaN when the ladder is empty. */
+    double bestLay(int index) {
+      return bestLay[index];
+    }
+
+    String runnerName(int index) {
+      String name = runnerNames[index];
+      return name == null ? "" : name;
+    }
+
+    String runnerName(long selectionId) {
+      for (int i = 0; i < runnerCount; i++) {
+        if (selectionIds[i] == selectionId) {
+          return runnerName(i);
+        }
+      }
+      return "";
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package com.betfair.sim.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Market state rebuilt from Exchange Stream API market change messages. A market only becomes
+ * readable once a full image has been applied; later deltas patch the best back/lay level and the
+ * market definition in place.
+ */
+final class MarketStreamCache {
+  private final Map<String, MarketState> markets = new ConcurrentHashMap<>();
+
+  /** Applies one {@code mc} entry of a market change message published at {@code publishTime}. */
+  void apply(JsonNode marketChange, long publishTime) {
+    String marketId = marketChange.path("id").asText("");
+    if (marketId.isBlank()) {
+      return;
+    }
+    MarketState state = markets.computeIfAbsent(marketId, id -> new MarketState());
+    synchronized (state) {
+      if (marketChange.path("img").asBoolean(false)) {
+        state.prices = new RunnerPrices.Builder(state.prices.runnerCount());
+        state.imaged = true;
+      }
+      JsonNode definition = marketChange.path("marketDefinition");
+      if (definition.isObject()) {
+        state.status = definition.path("status").asText(state.status);
+        state.inPlay = definition.path("inPlay").asBoolean(state.inPlay);
+      }
+      for (JsonNode runnerChange : marketChange.path("rc")) {
+        long selectionId = runnerChange.path("id").asLong(-1L);
+        if (selectionId < 0L) {
+          continue;
+        }
+        double back = bestLevelPrice(runnerChange.path("batb"));
+        if (back != 0.0) {
+          state.prices.back(selectionId, back);
+        }
+        double lay = bestLevelPrice(runnerChange.path("batl"));
+        if (lay != 0.0) {
+          state.prices.lay(selectionId, lay);
+        }
+      }
+      state.publishTime = Math.max(state.publishTime, publishTime);
+    }
+  }
+
+  /** Latest state of an imaged market, or {@code null} when the stream has not covered it yet. */
+  Snapshot snapshot(String marketId) {
+    MarketState state = markets.get(marketId);
+    if (state == null) {
+      return null;
+    }
+    synchronized (state) {
+      if (!state.imaged) {
+        return null;
+      }
+      return new Snapshot(state.status, state.inPlay, state.prices.build(), state.publishTime);
+    }
+  }
+
+  /** Whether the stream last reported the market CLOSED. */
+  boolean closed(String marketId) {
+    MarketState state = markets.get(marketId);
+    if (state == null) {
+      return false;
+    }
+    synchronized (state) {
+      return "CLOSED".equalsIgnoreCase(state.status);
+    }
+  }
+
+  /** Drops the images of markets outside {@code marketIds}; the others stay readable. */
+  void retainOnly(Set<String> marketIds) {
+    markets.keySet().retainAll(marketIds);
+  }
+
+  int size() {
+    return markets.size();
+  }
+
+  /**
+   * Best-offer deltas are {@code [level, price, size]}. Returns the new top price, {@code NaN} when
+   * a zero size removed the top level, or {@code 0} when the change did not touch it.
+   */
+  private static double bestLevelPrice(JsonNode levels) {
+    double result = 0.0;
+    for (JsonNode level : levels) {
+      if (level.size() < 3 || level.get(0).asInt(-1) != 0) {
+        continue;
+      }
+      double price = level.get(1).asDouble(0.0);
+      double size = level.get(2).asDouble(0.0);
+      result = size <= 0.0 || price <= 0.0 ? Double.NaN : price;
+    }
+    return result;
+  }
+
+  static final class Snapshot {
+    private final String status;
+    private final boolean inPlay;
+    private final RunnerPrices prices;
+    private final long publishTime;
+
+    private Snapshot(String status, boolean inPlay, RunnerPrices prices, long publishTime) {
+      this.status = status;
+      this.inPlay = inPlay;
+      this.prices = prices;
+      this.publishTime = publishTime;
+    }
+
+    String status() {
+      return status;
+    }
+
+    boolean inPlay() {
+      return inPlay;
+    }
+
+    RunnerPrices prices() {
+      return prices;
+    }
+
+    long publishTime() {
+      return publishTime;
+    }
+  }
+
+  private static final class MarketState {
+    private RunnerPrices.Builder prices = new RunnerPrices.Builder(0);
+    private String status = "";
+    private boolean inPlay;
+    private boolean imaged;
+    private long publishTime;
+  }
+}
@@ -0,0 +1,236 @@
+package com.betfair.sim.service;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The last {@code capture.recent-ticks.minutes} of captured prices per market, kept off-heap so
+ * recent series can be served without reading tick files. The memory budget
+ * ({@code capture.recent-ticks.budget-mb}) is one direct buffer cut into fixed-size chunks; each
+ * market owns one chunk used as a ring of 32-byte rows:
+ *
+ * <pre>
+ *   long   capture time (epoch millis)
+ *   double best back (NaN when none)
+ *   double best lay (NaN when none)
+ *   int    game minute
+ *   short  runner index in the market's runner dictionary
+ *   byte   status index in the market's status dictionary
+ *   byte   unused
+ * </pre>
+ *
+ * A full ring overwrites its oldest rows; when every chunk is taken, the market written least
+ * recently gives up its chunk. Markets without a capture for the window are released.
+ */
+@Component
+public class RecentTickBuffer {
+  private static final int ROW_BYTES = 32;
+  private static final int MAX_RUNNERS = Short.MAX_VALUE;
+
+  private final boolean enabled;
+  private final long windowMs;
+  private final int rowsPerMarket;
+  private final int chunkCount;
+  private final Map<String, MarketRing> markets = new LinkedHashMap<>();
+  private final Deque<Integer> freeChunks = new ArrayDeque<>();
+  private ByteBuffer slab;
+  private long rowsRecorded;
+  private long marketsEvicted;
+
+  public RecentTickBuffer(
+      @Value("${capture.recent-ticks.enabled:true}") boolean enabled,
+      @Value("${capture.recent-ticks.minutes:30}") long minutes,
+      @Value("${capture.recent-ticks.rows-per-market:8192}") int rowsPerMarket,
+      @Value("${capture.recent-ticks.budget-mb:64}") long budgetMb) {
+    this.enabled = enabled;
+    this.windowMs = Math.max(1L, minutes) * 60_000L;
+    this.rowsPerMarket = Math.max(64, rowsPerMarket);
+    long chunkBytes = (long) this.rowsPerMarket * ROW_BYTES;
+    long budgetBytes = Math.max(chunkBytes, Math.max(0L, budgetMb) * 1024L * 1024L);
+    this.chunkCount = (int) Math.min(Integer.MAX_VALUE / chunkBytes, budgetBytes / chunkBytes);
+    for (int i = 0; i < chunkCount; i++) {
+      freeChunks.addLast(i);
+    }
+  }
+
+  /** Records one capture of {@code runners} for {@code marketId}. */
+  synchronized void record(
+      String marketId,
+      String marketType,
+      long capturedAt,
+      long gameMinute,
+      String status,
+      List<TickFileReader.TickRunner> runners) {
+    if (!enabled || marketId == null || runners.isEmpty()) {
+      return;
+    }
+    releaseIdle(capturedAt);
+    // Re-inserting keeps the map ordered from least to most recently written.
+    MarketRing ring = markets.remove(marketId);
+    if (ring == null) {
+      ring = new MarketRing(marketType, takeChunk());
+    }
+    markets.put(marketId, ring);
+    int statusIndex = ring.statusIndex(status == null ? "" : status);
+    for (TickFileReader.TickRunner runner : runners) {
+      int runnerIndex = ring.runnerIndex(runner);
+      if (runnerIndex < 0) {
+        continue;
+      }
+      int offset = ring.chunkOffset + ring.next * ROW_BYTES;
+      slab.putLong(offset, capturedAt);
+      slab.putDouble(offset + 8, runner.backOdds());
+      slab.putDouble(offset + 16, runner.layOdds());
+      slab.putInt(offset + 24, (int) gameMinute);
+      slab.putShort(offset + 28, (short) runnerIndex);
+      slab.put(offset + 30, (byte) statusIndex);
+      ring.next = (ring.next + 1) % rowsPerMarket;
+      ring.size = Math.min(rowsPerMarket, ring.size + 1);
+      rowsRecorded++;
+    }
+    ring.lastCapturedAt = capturedAt;
+  }
+
+  /**
+   * The market's captures of the last {@code minutes} (the whole window when not positive), oldest
+   * first, one entry per capture time with its runners.
+   */
+  public synchronized Map<String, Object> recentSeries(String marketId, long minutes) {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("marketId", marketId);
+    MarketRing ring = markets.get(marketId);
+    if (ring == null) {
+      result.put("snapshots", List.of());
+      return result;
+    }
+    long since =
+        ring.lastCapturedAt - (minutes > 0L ? Math.min(windowMs, minutes * 60_000L) : windowMs);
+    List<Map<String, Object>> snapshots = new ArrayList<>();
+    Map<String, Object> snapshot = null;
+    List<Map<String, Object>> snapshotRunners = null;
+    long snapshotAt = Long.MIN_VALUE;
+    int first = (ring.next - ring.size + rowsPerMarket) % rowsPerMarket;
+    for (int i = 0; i < ring.size; i++) {
+      int offset = ring.chunkOffset + ((first + i) % rowsPerMarket) * ROW_BYTES;
+      long capturedAt = slab.getLong(offset);
+      if (capturedAt <= since) {
+        continue;
+      }
+      if (snapshot == null || capturedAt != snapshotAt) {
+        snapshotAt = capturedAt;
+        snapshotRunners = new ArrayList<>();
+        snapshot = new LinkedHashMap<>();
+        snapshot.put("timestamp", Instant.ofEpochMilli(capturedAt).toString());
+        snapshot.put("gameMinute", slab.getInt(offset + 24));
+        snapshot.put("status", ring.statuses.get(slab.get(offset + 30)));
+        snapshot.put("runners", snapshotRunners);
+        snapshots.add(snapshot);
+      }
+      TickFileReader.TickRunner runner = ring.runners.get(slab.getShort(offset + 28));
+      Map<String, Object> row = new LinkedHashMap<>();
+      row.put("selectionId", runner.runnerId());
+      row.put("selectionName", runner.runnerName());
+      row.put("backOdds", price(slab.getDouble(offset + 8)));
+      row.put("layOdds", price(slab.getDouble(offset + 16)));
+      snapshotRunners.add(row);
+    }
+    result.put("marketType", ring.marketType);
+    result.put("lastCapturedAt", Instant.ofEpochMilli(ring.lastCapturedAt).toString());
+    result.put("snapshots", snapshots);
+    return result;
+  }
+
+  public synchronized Map<String, Object> stats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("enabled", enabled);
+    stats.put("windowMinutes", windowMs / 60_000L);
+    stats.put("rowsPerMarket", rowsPerMarket);
+    stats.put("budgetBytes", (long) chunkCount * rowsPerMarket * ROW_BYTES);
+    stats.put("allocatedBytes", slab == null ? 0L : (long) slab.capacity());
+    stats.put("markets", markets.size());
+    stats.put("marketCapacity", chunkCount);
+    stats.put("rowsRecorded", rowsRecorded);
+    stats.put("marketsEvicted", marketsEvicted);
+    return stats;
+  }
+
+  private void releaseIdle(long now) {
+    Iterator<MarketRing> iterator = markets.values().iterator();
+    while (iterator.hasNext()) {
+      MarketRing ring = iterator.next();
+      if (ring.lastCapturedAt >= now - windowMs) {
+        // Every later market was written more recently.
+        return;
+      }
+      freeChunks.addLast(ring.chunkOffset / (rowsPerMarket * ROW_BYTES));
+      iterator.remove();
+    }
+  }
+
+  private int takeChunk() {
+    if (slab == null) {
+      slab = ByteBuffer.allocateDirect(chunkCount * rowsPerMarket * ROW_BYTES);
+    }
+    if (freeChunks.isEmpty()) {
+      Iterator<MarketRing> eldest = markets.values().iterator();
+      MarketRing evicted = eldest.next();
+      eldest.remove();
+      freeChunks.addLast(evicted.chunkOffset / (rowsPerMarket * ROW_BYTES));
+      marketsEvicted++;
+    }
+    return freeChunks.pollFirst() * rowsPerMarket * ROW_BYTES;
+  }
+
+  private static Double price(double value) {
+    return Double.isNaN(value) ? null : value;
+  }
+
+  private static final class MarketRing {
+    private final String marketType;
+    private final int chunkOffset;
+    private final List<TickFileReader.TickRunner> runners = new ArrayList<>();
+    private final Map<String, Integer> runnerIndexes = new HashMap<>();
+    private final List<String> statuses = new ArrayList<>();
+    private int next;
+    private int size;
+    private long lastCapturedAt;
+
+    private MarketRing(String marketType, int chunkOffset) {
+      this.marketType = marketType;
+      this.chunkOffset = chunkOffset;
+    }
+
+    /** Index of the runner in this market's dictionary, or -1 once the dictionary is full. */
+    private int runnerIndex(TickFileReader.TickRunner runner) {
+      Integer index = runnerIndexes.get(runner.runnerId());
+      if (index != null) {
+        return index;
+      }
+      if (runners.size() >= MAX_RUNNERS) {
+        return -1;
+      }
+      runners.add(new TickFileReader.TickRunner(runner.runnerId(), runner.runnerName(), 0.0, 0.0));
+      runnerIndexes.put(runner.runnerId(), runners.size() - 1);
+      return runners.size() - 1;
+    }
+
+    private int statusIndex(String status) {
+      int index = statuses.indexOf(status);
+      if (index < 0 && statuses.size() < Byte.MAX_VALUE) {
+        statuses.add(status);
+        index = statuses.size() - 1;
+      }
+      return Math.max(0, index);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.betfair.sim.service;
+
+import java.util.Arrays;
+
+/**
+ * Best back and lay price per runner of one market, held as selection ids sorted ascending with
+ * parallel price arrays. A missing price is {@code NaN}. Markets carry at most a few dozen runners,
+ * so a binary search over the primitive arrays beats a boxed {@code Map<Long, Double>} on both
+ * lookup cost and footprint.
+ */
+final class RunnerPrices {
+  static final RunnerPrices EMPTY = new RunnerPrices(new long[0], new double[0], new double[0]);
+
+  private final long[] selectionIds;
+  private final double[] back;
+  private final double[] lay;
+
+  private RunnerPrices(long[] selectionIds, double[] back, double[] lay) {
+    this.selectionIds = selectionIds;
+    this.back = back;
+    this.lay = lay;
+  }
+
+  /** Best back price, or {@code NaN} when the runner has none. */
+  double back(long selectionId) {
+    int index = Arrays.binarySearch(selectionIds, selectionId);
+    return index < 0 ? Double.NaN : back[index];
+  }
+
+  /** Best lay price, or {@code NaN} when the runner has none. */
+  double lay(long selectionId) {
+    int index = Arrays.binarySearch(selectionIds, selectionId);
+    return index < 0 ? Double.NaN : lay[index];
+  }
+
+  /** Boxed form of {@link #back(long)} for the nullable odds fields of the API models. */
+  Double backOrNull(long selectionId) {
+    return boxed(back(selectionId));
+  }
+
+  /** Boxed form of {@link #lay(long)} for the nullable odds fields of the API models. */
+  Double layOrNull(long selectionId) {
+    return boxed(lay(selectionId));
+  }
+
+  int size() {
+    return selectionIds.length;
+  }
+
+  private static Double boxed(double price) {
+    return Double.isNaN(price) ? null : price;
+  }
+
+  /** Collects runner prices in any order; a later price for the same runner replaces the earlier. */
+  static final class Builder {
+    private long[] selectionIds;
+    private double[] back;
+    private double[] lay;
+    private int size;
+    private boolean sorted = true;
+
+    Builder(int expectedRunners) {
+      int capacity = Math.max(1, expectedRunners);
+      this.selectionIds = new long[capacity];
+      this.back = new double[capacity];
+      this.lay = new double[capacity];
+    }
+
+    Builder back(long selectionId, double price) {
+      int index = slot(selectionId);
+      back[index] = price;
+      return this;
+    }
+
+    Builder lay(long selectionId, double price) {
+      int index = slot(selectionId);
+      lay[index] = price;
+      return this;
+    }
+
+    int runnerCount() {
+      return size;
+    }
+
+    RunnerPrices build() {
+      if (size == 0) {
+        return EMPTY;
+      }
+      long[] ids = Arrays.copyOf(selectionIds, size);
+      double[] backs = Arrays.copyOf(back, size);
+      double[] lays = Arrays.copyOf(lay, size);
+      if (!sorted) {
+        sortBySelectionId(ids, backs, lays);
+      }
+      return new RunnerPrices(ids, backs, lays);
+    }
+
+    /** Insertion sort of the parallel arrays by selection id; markets hold only a few runners. */
+    private static void sortBySelectionId(long[] ids, double[] backs, double[] lays) {
+      for (int i = 1; i < ids.length; i++) {
+        long id = ids[i];
+        double backPrice = backs[i];
+        double layPrice = lays[i];
+        int j = i - 1;
+        while (j >= 0 && ids[j] > id) {
+          ids[j + 1] = ids[j];
+          backs[j + 1] = backs[j];
+          lays[j + 1] = lays[j];
+          j--;
+        }
+        ids[j + 1] = id;
+        backs[j + 1] = backPrice;
+        lays[j + 1] = layPrice;
+      }
+    }
+
+    private int slot(long selectionId) {
+      // Runners arrive in Betfair's sort-priority order, so the last slot is the usual match.
+      if (size > 0 && selectionIds[size - 1] == selectionId) {
+        return size - 1;
+      }
+      for (int i = 0; i < size - 1; i++) {
+        if (selectionIds[i] == selectionId) {
+          return i;
+        }
+      }
+      if (size == selectionIds.length) {
+        int capacity = size * 2;
+        selectionIds = Arrays.copyOf(selectionIds, capacity);
+        back = Arrays.copyOf(back, capacity);
+        lay = Arrays.copyOf(lay, capacity);
+      }
+      if (size > 0 && selectionIds[size - 1] > selectionId) {
+        sorted = false;
+      }
+      selectionIds[size] = selectionId;
+      back[size] = Double.NaN;
+      lay[size] = Double.NaN;
+      return size++;
+    }
+  }
+}
@@ -2,23 +2,32 @@ package com.betfair.sim.service;
 
 import com.betfair.sim.model.EventMarket;
 import com.betfair.sim.model.EventSelection;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.DirectoryStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -46,100 +55,380 @@ public class SelectedGamesOddsCaptureService {
           "OVER_UNDER_85");
 
   private final BetfairApiClient betfairApiClient;
+  private final TickFileAppenderPool appenderPool;
+  private final CaptureCadence cadence;
+  private final FollowedGamesRegistry followedGamesRegistry;
+  private final CaptureLatencyMetrics latencyMetrics;
+  private final RecentTickBuffer recentTicks;
+  private final TickDayManifest dayManifest;
   private final Path followedGamesDir;
+  private final boolean deltaCapture;
+  private final long keyframeIntervalMs;
+  private final boolean binaryFormat;
+  private final Map<Path, CaptureFileState> fileStates = new ConcurrentHashMap<>();
+  private final int captureParallelism;
+  private final long cycleDeadlineMs;
+  private final ExecutorService captureExecutor;
+  private final CycleStats cycleStats = new CycleStats();
+  private final long prewarmMs;
+  private final long prewarmRefreshMs;
+  private final Map<String, Long> prewarmedAt = new ConcurrentHashMap<>();
+  private final AtomicLong prewarms = new AtomicLong();
+  private final AtomicLong prewarmedFiles = new AtomicLong();
 
   public SelectedGamesOddsCaptureService(
       BetfairApiClient betfairApiClient,
-      @Value("${betfair.followed-games.dir:backend/data}") String followedGamesDir) {
+      TickFileAppenderPool appenderPool,
+      CaptureCadence cadence,
+      FollowedGamesRegistry followedGamesRegistry,
+      CaptureLatencyMetrics latencyMetrics,
+      RecentTickBuffer recentTicks,
+      TickDayManifest dayManifest,
+      @Value("${betfair.followed-games.dir:backend/data}") String followedGamesDir,
+      @Value("${capture.delta.enabled:false}") boolean deltaCapture,
+      @Value("${capture.delta.keyframe-interval-ms:600000}") long keyframeIntervalMs,
+      @Value("${capture.format:csv}") String format,
+      @Value("${capture.parallelism:8}") int captureParallelism,
+      @Value("${capture.cycle-deadline-ms:25000}") long cycleDeadlineMs,
+      @Value("${capture.prewarm.minutes:10}") long prewarmMinutes,
+      @Value("${capture.prewarm.refresh-ms:120000}") long prewarmRefreshMs) {
     this.betfairApiClient = betfairApiClient;
+    this.appenderPool = appenderPool;
+    this.cadence = cadence;
+    this.followedGamesRegistry = followedGamesRegistry;
+    this.latencyMetrics = latencyMetrics;
+    this.recentTicks = recentTicks;
+    this.dayManifest = dayManifest;
     this.followedGamesDir = FollowedGamesPathResolver.resolve(followedGamesDir);
+    this.deltaCapture = deltaCapture;
+    this.keyframeIntervalMs = Math.max(0L, keyframeIntervalMs);
+    this.binaryFormat = "binary".equalsIgnoreCase(format == null ? "" : format.trim());
+    this.captureParallelism = Math.max(1, captureParallelism);
+    this.cycleDeadlineMs = Math.max(1000L, cycleDeadlineMs);
+    this.prewarmMs = Math.max(0L, prewarmMinutes) * 60_000L;
+    this.prewarmRefreshMs = Math.max(10_000L, prewarmRefreshMs);
+    AtomicInteger threadCount = new AtomicInteger();
+    this.captureExecutor =
+        Executors.newFixedThreadPool(
+            this.captureParallelism,
+            runnable -> {
+              Thread thread = new Thread(runnable, "odds-capture-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
   }
 
-  @Scheduled(fixedDelay = 30000)
+  /** Runs every cadence tick; {@link CaptureCadence} decides which games are actually due. */
+  @Scheduled(fixedDelayString = "${capture.cadence.tick-ms:5000}")
   public void captureSelectedGamesOdds() {
     if (!betfairApiClient.isEnabled()) {
       return;
     }
 
     Instant now = Instant.now();
-    List<SelectedGameRef> selectedGames = readSelectedGames();
+    evictStaleFileStates(now);
+    List<SelectedGameRef> selectedGames = readSelectedGames(now);
     if (selectedGames.isEmpty()) {
       return;
     }
 
+    Map<String, SelectedGameRef> startedByMarketId = new LinkedHashMap<>();
+    for (SelectedGameRef game : selectedGames) {
+      if (hasStarted(game.startTime(), now)) {
+        startedByMarketId.putIfAbsent(game.marketId(), game);
+      }
+    }
     List<SelectedGameRef> startedGames =
-        selectedGames.stream()
-            .filter(game -> hasStarted(game.startTime(), now))
+        cadence.selectDue(startedByMarketId.keySet(), now).stream()
+            .map(startedByMarketId::get)
             .toList();
     if (startedGames.isEmpty()) {
       return;
     }
 
+    long cycleStarted = System.nanoTime();
+    long deadline = cycleStarted + TimeUnit.MILLISECONDS.toNanos(cycleDeadlineMs);
+    CaptureLatencyMetrics.Timer identityTimer =
+        latencyMetrics.start(CaptureLatencyMetrics.STAGE_IDENTITY);
     Map<String, BetfairApiClient.EventIdentity> identityByMarketId =
         betfairApiClient.resolveEventIdentityForMarketIds(
             startedGames.stream().map(SelectedGameRef::marketId).toList());
+    identityTimer.stop();
 
+    // Fetch every event's markets in parallel; files are then written on this thread only.
+    List<SelectedGameRef> fetchedGames = new ArrayList<>();
+    List<Future<GameCapture>> fetches = new ArrayList<>();
     for (SelectedGameRef game : startedGames) {
       BetfairApiClient.EventIdentity identity = identityByMarketId.get(game.marketId());
       if (identity == null || identity.getEventId() == null || identity.getEventId().isBlank()) {
         LOGGER.debug("Skipping selected market {} because event identity could not be resolved", game.marketId());
+        cadence.observe(game.marketId(), List.of(), gameMinute(game, now), now);
         continue;
       }
+      fetchedGames.add(game);
+      fetches.add(captureExecutor.submit(() -> fetchGame(game, identity)));
+    }
 
-      String[] teams = resolveTeams(game, identity.getEventName());
-      List<EventMarket> markets =
-          betfairApiClient.listMarketsForEvent(identity.getEventId(), ALLOWED_MARKET_TYPES);
-      if (markets.isEmpty()) {
-        LOGGER.debug(
-            "No allowed markets found for selected market {} eventId={} ({})",
-            game.marketId(),
-            identity.getEventId(),
-            identity.getEventName());
-        continue;
+    List<String> stragglers = new ArrayList<>();
+    List<GameCapture> captures = new ArrayList<>();
+    for (int i = 0; i < fetches.size(); i++) {
+      Future<GameCapture> fetch = fetches.get(i);
+      try {
+        long remaining = deadline - System.nanoTime();
+        captures.add(
+            remaining > 0L ? fetch.get(remaining, TimeUnit.NANOSECONDS) : fetchIfDone(fetch));
+      } catch (TimeoutException ex) {
+        fetch.cancel(true);
+        SelectedGameRef game = fetchedGames.get(i);
+        stragglers.add(game.marketId());
+        // Reschedule the straggler, otherwise it stays due and is fetched again next tick.
+        cadence.observe(game.marketId(), List.of(), gameMinute(game, now), now);
+      } catch (ExecutionException ex) {
+        SelectedGameRef game = fetchedGames.get(i);
+        LOGGER.warn("Capture failed for selected market {}", game.marketId(), ex.getCause());
+        cadence.observe(game.marketId(), List.of(), gameMinute(game, now), now);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        fetches.forEach(pending -> pending.cancel(true));
+        return;
       }
+    }
 
-      for (EventMarket market : markets) {
-        appendMarketSnapshot(game, teams[0], teams[1], market, now);
+    for (GameCapture capture : captures) {
+      cadence.observe(
+          capture.game.marketId(),
+          capture.markets,
+          gameMinute(capture.game, capture.sampledAt),
+          capture.sampledAt);
+      if (!capture.markets.isEmpty()
+          && capture.markets.stream()
+              .allMatch(market -> "CLOSED".equalsIgnoreCase(market.getMarketStatus()))) {
+        followedGamesRegistry.markFinished(capture.game.marketId());
+      }
+      for (EventMarket market : capture.markets) {
+        CaptureLatencyMetrics.Timer writeTimer = latencyMetrics.start(CaptureLatencyMetrics.STAGE_WRITE);
+        appendMarketSnapshot(capture.game, capture.homeTeam, capture.awayTeam, market, capture.sampledAt);
+        writeTimer.stop();
       }
     }
+    dayManifest.flush();
+    recordCycle(cycleStarted, captures, stragglers);
   }
 
-  private List<SelectedGameRef> readSelectedGames() {
-    if (!Files.exists(followedGamesDir)) {
-      return List.of();
+  /**
+   * Gets selected games kicking off within {@code capture.prewarm.minutes} ready for their first
+   * in-play capture: the event identity is resolved, the market catalogue and stream subscription
+   * are warmed and the tick files are opened. Games are re-warmed every
+   * {@code capture.prewarm.refresh-ms} so the catalogue is still cached at kick-off.
+   */
+  @Scheduled(fixedDelayString = "${capture.cadence.tick-ms:5000}")
+  public void prewarmUpcomingGames() {
+    if (!betfairApiClient.isEnabled() || prewarmMs == 0L) {
+      return;
+    }
+    Instant now = Instant.now();
+    long nowMs = now.toEpochMilli();
+    Map<String, SelectedGameRef> upcoming = new LinkedHashMap<>();
+    for (SelectedGameRef game : readSelectedGames(now)) {
+      Instant kickoff = parseInstant(game.startTime());
+      if (kickoff != null && kickoff.isAfter(now) && kickoff.toEpochMilli() - nowMs <= prewarmMs) {
+        upcoming.putIfAbsent(game.marketId(), game);
+      }
+    }
+    prewarmedAt.keySet().retainAll(upcoming.keySet());
+    List<SelectedGameRef> due = new ArrayList<>();
+    for (SelectedGameRef game : upcoming.values()) {
+      Long warmedAt = prewarmedAt.get(game.marketId());
+      if ((warmedAt == null || nowMs - warmedAt >= prewarmRefreshMs) && cadence.tryAcquire(now)) {
+        due.add(game);
+      }
+    }
+    if (due.isEmpty()) {
+      return;
     }
 
-    Map<String, SelectedGameRef> byMarketId = new LinkedHashMap<>();
-    try (DirectoryStream<Path> stream = Files.newDirectoryStream(followedGamesDir, "selectedGames-*.txt")) {
-      for (Path file : stream) {
-        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
-        for (String line : lines) {
-          SelectedGameRef ref = parseSelectedGameLine(line);
-          if (ref == null) {
-            continue;
+    Map<String, BetfairApiClient.EventIdentity> identityByMarketId =
+        betfairApiClient.resolveEventIdentityForMarketIds(
+            due.stream().map(SelectedGameRef::marketId).toList());
+    for (SelectedGameRef game : due) {
+      BetfairApiClient.EventIdentity identity = identityByMarketId.get(game.marketId());
+      if (identity == null || identity.getEventId() == null || identity.getEventId().isBlank()) {
+        continue;
+      }
+      String[] teams = resolveTeams(game, identity.getEventName());
+      List<EventMarket> markets =
+          betfairApiClient.prewarmEventMarkets(identity.getEventId(), ALLOWED_MARKET_TYPES);
+      for (EventMarket market : markets) {
+        String marketType = normalizeMarketType(market.getMarketType());
+        if (!marketType.isBlank()) {
+          prepareOutputFile(
+              outputFile(game, teams[0], teams[1], marketType, now), market.getMarketId(), marketType);
+        }
+      }
+      if (!markets.isEmpty()) {
+        prewarmedAt.put(game.marketId(), nowMs);
+        prewarms.incrementAndGet();
+      }
+    }
+  }
+
+  /** Opens the tick file and its capture state so the first in-play append finds both ready. */
+  private void prepareOutputFile(Path outputFile, String marketId, String marketType) {
+    try {
+      CaptureFileState state = fileStates.computeIfAbsent(outputFile, key -> new CaptureFileState());
+      synchronized (state) {
+        state.touchedAt = System.currentTimeMillis();
+        if (binaryFormat) {
+          if (state.encoder == null) {
+            appenderPool.close(outputFile);
+            state.encoder = TickBinaryFormat.Encoder.forFile(outputFile);
           }
-          byMarketId.put(ref.marketId(), ref);
+          appenderPool.prepare(outputFile, TickBinaryFormat.header(marketId, marketType));
+        } else {
+          appenderPool.prepare(
+              outputFile, deltaCapture ? TickFileReader.DELTA_HEADER : TickFileReader.HEADER);
         }
       }
-    } catch (IOException ex) {
-      LOGGER.warn("Failed to read selected games files", ex);
+      if (Files.exists(outputFile)) {
+        dayManifest.record(outputFile, marketId, null, null, false);
+      }
+      prewarmedFiles.incrementAndGet();
+    } catch (IOException | UncheckedIOException ex) {
+      fileStates.remove(outputFile);
+      LOGGER.warn("Failed to prepare tick file {}", outputFile, ex);
     }
-    return new ArrayList<>(byMarketId.values());
   }
 
-  private SelectedGameRef parseSelectedGameLine(String line) {
-    if (line == null || line.isBlank()) {
-      return null;
+  /** The capture's market list is empty when the event had no allowed markets. */
+  private GameCapture fetchGame(SelectedGameRef game, BetfairApiClient.EventIdentity identity) {
+    String[] teams = resolveTeams(game, identity.getEventName());
+    CaptureLatencyMetrics.Timer catalogueTimer =
+        latencyMetrics.start(CaptureLatencyMetrics.STAGE_CATALOGUE);
+    List<EventMarket> markets =
+        betfairApiClient.listEventMarketCatalogue(identity.getEventId(), ALLOWED_MARKET_TYPES);
+    catalogueTimer.stop();
+    if (!markets.isEmpty()) {
+      CaptureLatencyMetrics.Timer bookTimer = latencyMetrics.start(CaptureLatencyMetrics.STAGE_BOOK);
+      boolean priced = betfairApiClient.fillMarketBookOdds(markets);
+      bookTimer.stop();
+      if (!priced) {
+        markets = List.of();
+      }
     }
-    String[] parts = line.split(",", 3);
-    String marketId = parts.length > 0 ? parts[0].trim() : "";
-    String startTime = parts.length > 1 ? parts[1].trim() : "";
-    String teams = parts.length > 2 ? parts[2].trim() : "";
-    if (marketId.isBlank()) {
-      return null;
+    Instant sampledAt = Instant.now();
+    if (markets.isEmpty()) {
+      LOGGER.debug(
+          "No allowed markets found for selected market {} eventId={} ({})",
+          game.marketId(),
+          identity.getEventId(),
+          identity.getEventName());
+    }
+    return new GameCapture(game, teams[0], teams[1], markets, sampledAt);
+  }
+
+  private long gameMinute(SelectedGameRef game, Instant now) {
+    Instant kickoff = parseInstant(game.startTime());
+    return kickoff == null ? 0L : Math.max(0L, (now.getEpochSecond() - kickoff.getEpochSecond()) / 60L);
+  }
+
+  /** Past the deadline, only fetches that already finished are kept. */
+  private static GameCapture fetchIfDone(Future<GameCapture> fetch)
+      throws ExecutionException, InterruptedException, TimeoutException {
+    if (!fetch.isDone()) {
+      throw new TimeoutException();
+    }
+    return fetch.get();
+  }
+
+  private void recordCycle(long cycleStarted, List<GameCapture> captures, List<String> stragglers) {
+    long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - cycleStarted);
+    long spreadMs = 0L;
+    if (!captures.isEmpty()) {
+      long first = Long.MAX_VALUE;
+      long last = Long.MIN_VALUE;
+      for (GameCapture capture : captures) {
+        first = Math.min(first, capture.sampledAt.toEpochMilli());
+        last = Math.max(last, capture.sampledAt.toEpochMilli());
+      }
+      spreadMs = last - first;
+    }
+    synchronized (cycleStats) {
+      cycleStats.cycles++;
+      cycleStats.totalDurationMs += durationMs;
+      cycleStats.lastDurationMs = durationMs;
+      cycleStats.maxDurationMs = Math.max(cycleStats.maxDurationMs, durationMs);
+      cycleStats.lastSampleSpreadMs = spreadMs;
+      cycleStats.lastGamesCaptured = captures.size();
+      cycleStats.stragglers += stragglers.size();
+      cycleStats.lastStragglers = List.copyOf(stragglers);
+      if (durationMs > cycleDeadlineMs) {
+        cycleStats.deadlineOverruns++;
+      }
+    }
+    if (!stragglers.isEmpty()) {
+      LOGGER.warn(
+          "Capture cycle hit its {} ms deadline; skipped {} selected markets: {}",
+          cycleDeadlineMs,
+          stragglers.size(),
+          stragglers);
+    }
+  }
+
+  public Map<String, Object> getCaptureStats() {
+    Map<String, Object> cycles = new LinkedHashMap<>();
+    synchronized (cycleStats) {
+      cycles.put("deadlineMs", cycleDeadlineMs);
+      cycles.put("parallelism", captureParallelism);
+      cycles.put("cycles", cycleStats.cycles);
+      cycles.put("lastDurationMs", cycleStats.lastDurationMs);
+      cycles.put("maxDurationMs", cycleStats.maxDurationMs);
+      cycles.put(
+          "avgDurationMs",
+          cycleStats.cycles == 0 ? 0.0 : cycleStats.totalDurationMs / (double) cycleStats.cycles);
+      cycles.put("deadlineOverruns", cycleStats.deadlineOverruns);
+      cycles.put("lastGamesCaptured", cycleStats.lastGamesCaptured);
+      cycles.put("lastSampleSpreadMs", cycleStats.lastSampleSpreadMs);
+      cycles.put("stragglers", cycleStats.stragglers);
+      cycles.put("lastStragglers", cycleStats.lastStragglers);
+    }
+    Map<String, Object> prewarm = new LinkedHashMap<>();
+    prewarm.put("minutes", prewarmMs / 60_000L);
+    prewarm.put("upcomingGames", prewarmedAt.size());
+    prewarm.put("prewarms", prewarms.get());
+    prewarm.put("files", prewarmedFiles.get());
+    return Map.of(
+        "writer", appenderPool.stats(),
+        "cycles", cycles,
+        "cadence", cadence.stats(),
+        "prewarm", prewarm,
+        "recentTicks", recentTicks.stats());
+  }
+
+  /** The market's recent captures from memory, see {@link RecentTickBuffer}. */
+  public Map<String, Object> getRecentTicks(String marketId, long minutes) {
+    return recentTicks.recentSeries(marketId, minutes);
+  }
+
+  /**
+   * Per-stage timing, per-market-type staleness (by source) and time-since-last-trade histograms,
+   * see {@link CaptureLatencyMetrics}.
+   */
+  public Map<String, Object> getLatencyStats() {
+    return latencyMetrics.snapshot();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    captureExecutor.shutdownNow();
+  }
+
+  private List<SelectedGameRef> readSelectedGames(Instant now) {
+    List<SelectedGameRef> selected = new ArrayList<>();
+    for (FollowedGamesRegistry.FollowedGame game : followedGamesRegistry.selectedGames(now)) {
+      String[] split = splitTeams(game.teams());
+      selected.add(new SelectedGameRef(game.marketId(), game.startTime(), split[0], split[1]));
     }
-    String[] split = splitTeams(teams);
-    return new SelectedGameRef(marketId, startTime, split[0], split[1]);
+    return selected;
   }
 
   private boolean hasStarted(String startTime, Instant now) {
@@ -183,36 +472,16 @@ public class SelectedGamesOddsCaptureService {
       return;
     }
 
-    Instant kickoff = parseInstant(selectedGame.startTime());
-    long gameMinute = kickoff == null ? 0L : Math.max(0L, (now.getEpochSecond() - kickoff.getEpochSecond()) / 60L);
-    LocalDate folderDate = (kickoff == null ? now : kickoff).atOffset(ZoneOffset.UTC).toLocalDate();
-    String day = DATE_FOLDER_FORMAT.format(folderDate);
-    Path outputDir = followedGamesDir.resolve(day);
-    Path outputFile =
-        outputDir.resolve(
-            sanitizeFileName(homeTeam)
-                + "_"
-                + sanitizeFileName(awayTeam)
-                + "_"
-                + day
-                + "_"
-                + marketType
-                + ".txt");
+    long gameMinute = gameMinute(selectedGame, now);
+    Path outputFile = outputFile(selectedGame, homeTeam, awayTeam, marketType, now);
 
     try {
-      Files.createDirectories(outputDir);
-      if (!Files.exists(outputFile)) {
-        Files.write(
-            outputFile,
-            List.of(
-                "timestamp,game_minute,market_id,market_type,market_status,runner_id,runner_name,back_odds,lay_odds"),
-            StandardCharsets.UTF_8,
-            StandardOpenOption.CREATE,
-            StandardOpenOption.APPEND);
-      }
-
       Set<String> seenRunnerKeys = new LinkedHashSet<>();
+      List<String> runnerKeys = new ArrayList<>();
+      List<String> runnerStates = new ArrayList<>();
       List<String> lines = new ArrayList<>();
+      List<TickFileReader.TickRunner> runners = new ArrayList<>();
+      String status = sanitizeCsv(market.getMarketStatus());
       List<EventSelection> selections =
           market.getSelections() == null ? List.of() : market.getSelections();
       for (EventSelection selection : selections) {
@@ -223,6 +492,8 @@ public class SelectedGamesOddsCaptureService {
         if (!seenRunnerKeys.add(runnerKey)) {
           continue;
         }
+        String backOdds = formatOdds(selection.getBackOdds());
+        String layOdds = formatOdds(selection.getLayOdds());
         lines.add(
             String.join(
                 ",",
@@ -230,26 +501,167 @@ public class SelectedGamesOddsCaptureService {
                 String.valueOf(gameMinute),
                 sanitizeCsv(market.getMarketId()),
                 sanitizeCsv(marketType),
-                sanitizeCsv(market.getMarketStatus()),
+                status,
+                String.valueOf(selection.getSelectionId()),
+                sanitizeCsv(selection.getSelectionName()),
+                backOdds,
+                layOdds));
+        runners.add(
+            new TickFileReader.TickRunner(
                 String.valueOf(selection.getSelectionId()),
                 sanitizeCsv(selection.getSelectionName()),
-                formatOdds(selection.getBackOdds()),
-                formatOdds(selection.getLayOdds())));
+                selection.getBackOdds() == null ? Double.NaN : selection.getBackOdds(),
+                selection.getLayOdds() == null ? Double.NaN : selection.getLayOdds()));
+        runnerKeys.add(runnerKey);
+        runnerStates.add(status + "," + backOdds + "," + layOdds);
       }
-
-      if (!lines.isEmpty()) {
-        Files.write(
-            outputFile,
-            lines,
-            StandardCharsets.UTF_8,
-            StandardOpenOption.CREATE,
-            StandardOpenOption.APPEND);
+      if (runnerKeys.isEmpty()) {
+        return;
       }
-    } catch (IOException ex) {
+      recentTicks.record(
+          market.getMarketId(), marketType, now.toEpochMilli(), gameMinute, status, runners);
+
+      CaptureFileState state = fileStates.computeIfAbsent(outputFile, key -> new CaptureFileState());
+      // Pre-warm runs on another scheduler thread and may prepare this file at kick-off.
+      synchronized (state) {
+        long nowMs = now.toEpochMilli();
+        boolean keyframe = !deltaCapture || isKeyframeDue(state, nowMs);
+        List<Integer> written =
+            selectRunnersToWrite(state, runnerKeys, runnerStates, keyframe, nowMs);
+        if (binaryFormat) {
+          appendBinary(
+              outputFile,
+              state,
+              market.getMarketId(),
+              marketType,
+              nowMs,
+              gameMinute,
+              status,
+              keyframe,
+              runners,
+              written);
+        } else if (!written.isEmpty()) {
+          List<String> writtenLines = new ArrayList<>();
+          for (int index : written) {
+            String line = lines.get(index);
+            if (deltaCapture) {
+              line += "," + (keyframe ? TickFileReader.KEYFRAME : TickFileReader.DELTA);
+            }
+            writtenLines.add(line);
+          }
+          appenderPool.append(
+              outputFile,
+              deltaCapture ? TickFileReader.DELTA_HEADER : TickFileReader.HEADER,
+              writtenLines);
+        }
+        if (binaryFormat || !written.isEmpty()) {
+          dayManifest.record(outputFile, sanitizeCsv(market.getMarketId()), now, status, true);
+        }
+        long writtenAt = System.currentTimeMillis();
+        if (market.getPublishTime() != null) {
+          latencyMetrics.recordStaleness(
+              marketType, market.getPublishSource(), market.getPublishTime(), writtenAt);
+        }
+        if (market.getLastMatchTime() != null) {
+          latencyMetrics.recordSinceLastTrade(marketType, market.getLastMatchTime(), writtenAt);
+        }
+        if ("CLOSED".equalsIgnoreCase(market.getMarketStatus())) {
+          fileStates.remove(outputFile);
+          appenderPool.close(outputFile);
+        }
+      }
+    } catch (IOException | UncheckedIOException ex) {
+      // Forget the file's state so the next capture reloads it from what reached the disk.
+      fileStates.remove(outputFile);
       LOGGER.warn("Failed to write odds snapshot for market {}", market.getMarketId(), ex);
     }
   }
 
+  private Path outputFile(
+      SelectedGameRef selectedGame, String homeTeam, String awayTeam, String marketType, Instant now) {
+    Instant kickoff = parseInstant(selectedGame.startTime());
+    LocalDate folderDate = (kickoff == null ? now : kickoff).atOffset(ZoneOffset.UTC).toLocalDate();
+    String day = DATE_FOLDER_FORMAT.format(folderDate);
+    return followedGamesDir
+        .resolve(day)
+        .resolve(
+            sanitizeFileName(homeTeam)
+                + "_"
+                + sanitizeFileName(awayTeam)
+                + "_"
+                + day
+                + "_"
+                + marketType
+                + (binaryFormat ? TickBinaryFormat.EXTENSION : TickFileReader.CSV_EXTENSION));
+  }
+
+  private boolean isKeyframeDue(CaptureFileState state, long nowMs) {
+    return state.keyframeAt < 0L || nowMs - state.keyframeAt >= keyframeIntervalMs;
+  }
+
+  /**
+   * Indexes of the runners to write: all of them on a keyframe, otherwise (delta capture) only
+   * those whose price or status changed since the last write to this file.
+   */
+  private List<Integer> selectRunnersToWrite(
+      CaptureFileState state,
+      List<String> runnerKeys,
+      List<String> runnerStates,
+      boolean keyframe,
+      long nowMs) {
+    List<Integer> written = new ArrayList<>();
+    for (int i = 0; i < runnerKeys.size(); i++) {
+      if (keyframe || !runnerStates.get(i).equals(state.lastStates.get(runnerKeys.get(i)))) {
+        written.add(i);
+      }
+    }
+    if (keyframe) {
+      state.lastStates.clear();
+      state.keyframeAt = nowMs;
+    }
+    for (int i = 0; i < runnerKeys.size(); i++) {
+      state.lastStates.put(runnerKeys.get(i), runnerStates.get(i));
+    }
+    state.touchedAt = nowMs;
+    return written;
+  }
+
+  /** Binary captures also record a marker when nothing changed, so every capture time is kept. */
+  private void appendBinary(
+      Path outputFile,
+      CaptureFileState state,
+      String marketId,
+      String marketType,
+      long nowMs,
+      long gameMinute,
+      String status,
+      boolean keyframe,
+      List<TickFileReader.TickRunner> runners,
+      List<Integer> written)
+      throws IOException {
+    if (state.encoder == null) {
+      // Flush anything still buffered before reading the file's runner dictionary back.
+      appenderPool.close(outputFile);
+      state.encoder = TickBinaryFormat.Encoder.forFile(outputFile);
+    }
+    List<TickFileReader.TickRunner> changed = new ArrayList<>();
+    for (int index : written) {
+      changed.add(runners.get(index));
+    }
+    byte[] records = state.encoder.encode(nowMs, gameMinute, status, keyframe, changed);
+    appenderPool.append(
+        outputFile,
+        TickBinaryFormat.header(marketId, marketType),
+        records,
+        Math.max(1, changed.size()));
+  }
+
+  /** A file not captured for several keyframe intervals would get a keyframe next anyway. */
+  private void evictStaleFileStates(Instant now) {
+    long cutoff = now.toEpochMilli() - Math.max(keyframeIntervalMs * 3L, 3_600_000L);
+    fileStates.values().removeIf(state -> state.touchedAt < cutoff);
+  }
+
   private Instant parseInstant(String value) {
     if (value == null || value.isBlank()) {
       return null;
@@ -287,6 +699,47 @@ public class SelectedGamesOddsCaptureService {
     return String.format("%.2f", value);
   }
 
+  private static final class GameCapture {
+    private final SelectedGameRef game;
+    private final String homeTeam;
+    private final String awayTeam;
+    private final List<EventMarket> markets;
+    private final Instant sampledAt;
+
+    private GameCapture(
+        SelectedGameRef game,
+        String homeTeam,
+        String awayTeam,
+        List<EventMarket> markets,
+        Instant sampledAt) {
+      this.game = game;
+      this.homeTeam = homeTeam;
+      this.awayTeam = awayTeam;
+      this.markets = markets;
+      this.sampledAt = sampledAt;
+    }
+  }
+
+  private static final class CycleStats {
+    private long cycles;
+    private long totalDurationMs;
+    private long lastDurationMs;
+    private long maxDurationMs;
+    private long lastSampleSpreadMs;
+    private long deadlineOverruns;
+    private int lastGamesCaptured;
+    private long stragglers;
+    private List<String> lastStragglers = List.of();
+  }
+
+  /** What the capture remembers about one tick file between cycles. */
+  private static final class CaptureFileState {
+    private final Map<String, String> lastStates = new HashMap<>();
+    private long keyframeAt = -1L;
+    private long touchedAt;
+    private TickBinaryFormat.Encoder encoder;
+  }
+
   private static final class SelectedGameRef {
     private final String marketId;
     private final String startTime;
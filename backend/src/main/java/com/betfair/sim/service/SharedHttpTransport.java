@@ -0,0 +1,198 @@
+package com.betfair.sim.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * HTTP transport shared by the Betfair and Statpal clients. BetfairApiClient, BetfairAuthService
+ * and StatpalLiveClient build their RestTemplate through {@link #newRestTemplate}: one JDK
+ * HttpClient keeps connections alive per host, requests gzip and inflates it transparently,
+ * applies connect/read timeouts and caps the number of concurrent requests per host.
+ * BetfairStreamClient opens its socket through {@link #openSocket} with the same connect timeout
+ * and TLS context.
+ */
+@Component
+public class SharedHttpTransport {
+  private final HttpClient httpClient;
+  private final long connectTimeoutMs;
+  private final JdkClientHttpRequestFactory requestFactory;
+  private final boolean gzipEnabled;
+  private final int maxConcurrentPerHost;
+  private final long acquireTimeoutMs;
+  private final Map<String, Semaphore> permitsByHost = new ConcurrentHashMap<>();
+
+  public SharedHttpTransport(
+      @Value("${http.transport.connect-timeout-ms:5000}") long connectTimeoutMs,
+      @Value("${http.transport.read-timeout-ms:20000}") long readTimeoutMs,
+      @Value("${http.transport.gzip:true}") boolean gzipEnabled,
+      @Value("${http.transport.max-concurrent-per-host:8}") int maxConcurrentPerHost) {
+    this.connectTimeoutMs = Math.max(1L, connectTimeoutMs);
+    this.httpClient =
+        HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(this.connectTimeoutMs))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    this.requestFactory = new JdkClientHttpRequestFactory(httpClient);
+    this.requestFactory.setReadTimeout(Duration.ofMillis(Math.max(1L, readTimeoutMs)));
+    this.gzipEnabled = gzipEnabled;
+    this.maxConcurrentPerHost = Math.max(1, maxConcurrentPerHost);
+    // A request waiting for a host permit gives up after the time one full request may take.
+    this.acquireTimeoutMs = Math.max(1L, connectTimeoutMs) + Math.max(1L, readTimeoutMs);
+  }
+
+  /** Builds a RestTemplate that sends its requests over the shared transport. */
+  public RestTemplate newRestTemplate(RestTemplateBuilder restTemplateBuilder) {
+    RestTemplate restTemplate = restTemplateBuilder.build();
+    restTemplate.setRequestFactory(requestFactory);
+    restTemplate.getInterceptors().add(new TransportInterceptor());
+    return restTemplate;
+  }
+
+  /**
+   * Opens a socket to the host with the transport's connect timeout; TLS sockets share the HTTP
+   * client's SSL context, so its session cache serves both.
+   */
+  public Socket openSocket(String host, int port, boolean tls) throws IOException {
+    Socket socket =
+        tls ? httpClient.sslContext().getSocketFactory().createSocket() : new Socket();
+    try {
+      socket.connect(
+          new InetSocketAddress(host, port), (int) Math.min(Integer.MAX_VALUE, connectTimeoutMs));
+    } catch (IOException ex) {
+      socket.close();
+      throw ex;
+    }
+    return socket;
+  }
+
+  private Semaphore permitsFor(URI uri) {
+    String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase();
+    return permitsByHost.computeIfAbsent(
+        host + ":" + uri.getPort(), key -> new Semaphore(maxConcurrentPerHost, true));
+  }
+
+  private final class TransportInterceptor implements ClientHttpRequestInterceptor {
+    @Override
+    public ClientHttpResponse intercept(
+        HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+      if (gzipEnabled && !request.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+        request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+      }
+      Semaphore permits = permitsFor(request.getURI());
+      try {
+        if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+          throw new IOException(
+              "Timed out waiting for a connection slot to " + request.getURI().getHost());
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted waiting for a connection slot", ex);
+      }
+      try {
+        return new TransportResponse(execution.execute(request, body), permits);
+      } catch (IOException | RuntimeException ex) {
+        permits.release();
+        throw ex;
+      }
+    }
+  }
+
+  /** Inflates gzip bodies and hands the host permit back once the caller closes the response. */
+  private static final class TransportResponse implements ClientHttpResponse {
+    private final ClientHttpResponse delegate;
+    private final Semaphore permits;
+    private final boolean gzipped;
+    private HttpHeaders headers;
+    private InputStream body;
+    private boolean closed;
+
+    private TransportResponse(ClientHttpResponse delegate, Semaphore permits) {
+      this.delegate = delegate;
+      this.permits = permits;
+      String encoding = delegate.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+      this.gzipped = encoding != null && encoding.trim().equalsIgnoreCase("gzip");
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() throws IOException {
+      return delegate.getStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+      return delegate.getStatusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      if (headers == null) {
+        if (gzipped) {
+          // Callers see the inflated body, so the wire encoding and length no longer apply.
+          HttpHeaders inflated = new HttpHeaders();
+          inflated.putAll(delegate.getHeaders());
+          inflated.remove(HttpHeaders.CONTENT_ENCODING);
+          inflated.remove(HttpHeaders.CONTENT_LENGTH);
+          headers = HttpHeaders.readOnlyHttpHeaders(inflated);
+        } else {
+          headers = delegate.getHeaders();
+        }
+      }
+      return headers;
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+      if (body == null) {
+        InputStream raw = delegate.getBody();
+        body = gzipped ? inflate(raw) : raw;
+      }
+      return body;
+    }
+
+    private static InputStream inflate(InputStream raw) throws IOException {
+      // An empty body has no gzip header to read, so hand it through untouched.
+      PushbackInputStream pushback = new PushbackInputStream(raw, 1);
+      int first = pushback.read();
+      if (first < 0) {
+        return pushback;
+      }
+      pushback.unread(first);
+      return new GZIPInputStream(pushback);
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        delegate.close();
+      } finally {
+        permits.release();
+      }
+    }
+  }
+}
@@ -30,9 +30,10 @@ public class StatpalLiveClient {
   public StatpalLiveClient(
       RestTemplateBuilder restTemplateBuilder,
       ObjectMapper objectMapper,
+      SharedHttpTransport httpTransport,
       @Value("${statpal.live.base-url:https://statpal.io/api/v2/soccer/matches/live}") String baseUrl,
       @Value("${statpal.access-key:b5b07a3f-b019-4a18-8969-6045169feda9}") String accessKey) {
-    this.restTemplate = restTemplateBuilder.build();
+    this.restTemplate = httpTransport.newRestTemplate(restTemplateBuilder);
     this.objectMapper = objectMapper;
     this.baseUrl = baseUrl;
     this.accessKey = accessKey;
@@ -0,0 +1,379 @@
+package com.betfair.sim.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary tick file ({@code .ticks}), version 1. A file starts with the magic {@code BFTK}, a
+ * version short and the market id and type (modified UTF-8), followed by records:
+ *
+ * <ul>
+ *   <li>{@code 0x02} runner: dictionary index (u16), selection id (i64), runner name (UTF);
+ *       written once per runner before its first tick.
+ *   <li>{@code 0x01} tick, always {@value #TICK_RECORD_BYTES} bytes: flags (u8: bit 0 keyframe,
+ *       bits 1-3 market status), runner index (u16, {@code 0xFFFF} for a capture at which nothing
+ *       changed), epoch millis (i64), game minute (u16), back and lay price as Betfair ladder
+ *       ticks (u16 each, 0 for none).
+ * </ul>
+ *
+ * Ticks follow the same keyframe/delta rules as CSV delta files (see {@link TickFileReader}).
+ * A record cut short by a concurrent append ends the read cleanly.
+ */
+final class TickBinaryFormat {
+  static final String EXTENSION = ".ticks";
+  static final int VERSION = 1;
+  static final int TICK_RECORD_BYTES = 18;
+
+  private static final int MAGIC = 0x4246544B; // "BFTK"
+  private static final int RECORD_TICK = 0x01;
+  private static final int RECORD_RUNNER = 0x02;
+  private static final int MARKER_RUNNER = 0xFFFF;
+  private static final int MAX_RUNNERS = MARKER_RUNNER;
+  private static final int FLAG_KEYFRAME = 0x01;
+  // Status codes live in flag bits 1-3; anything else is stored as unknown (0).
+  private static final String[] STATUSES = {"", "OPEN", "SUSPENDED", "CLOSED", "INACTIVE"};
+
+  private TickBinaryFormat() {}
+
+  static boolean isBinary(Path file) {
+    return file.getFileName().toString().endsWith(EXTENSION);
+  }
+
+  static byte[] header(String marketId, String marketType) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeShort(VERSION);
+      out.writeUTF(marketId == null ? "" : marketId);
+      out.writeUTF(marketType == null ? "" : marketType);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return bytes.toByteArray();
+  }
+
+  static void forEachSnapshot(
+      InputStream source, String fileName, TickFileReader.SnapshotConsumer consumer)
+      throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(source, 65536))) {
+      if (!readHeader(in, fileName)) {
+        return;
+      }
+      String marketId = in.readUTF();
+      String marketType = in.readUTF();
+      TickFileReader.SnapshotAssembler assembler = new TickFileReader.SnapshotAssembler(consumer);
+      List<String> runnerIds = new ArrayList<>();
+      List<String> runnerNames = new ArrayList<>();
+      byte[] tick = new byte[TICK_RECORD_BYTES - 1];
+      long lastTimestamp = Long.MIN_VALUE;
+      String lastTimestampText = "";
+      try {
+        int tag;
+        while ((tag = in.read()) >= 0) {
+          if (tag == RECORD_RUNNER) {
+            int index = in.readUnsignedShort();
+            long selectionId = in.readLong();
+            String name = in.readUTF();
+            while (runnerIds.size() <= index) {
+              runnerIds.add("");
+              runnerNames.add("");
+            }
+            runnerIds.set(index, Long.toString(selectionId));
+            runnerNames.set(index, name);
+          } else if (tag == RECORD_TICK) {
+            in.readFully(tick);
+            int flags = tick[0] & 0xFF;
+            int runnerIndex = u16(tick, 1);
+            long timestamp = i64(tick, 3);
+            if (timestamp != lastTimestamp) {
+              lastTimestamp = timestamp;
+              lastTimestampText = Instant.ofEpochMilli(timestamp).toString();
+            }
+            TickFileReader.TickRunner runner = null;
+            if (runnerIndex != MARKER_RUNNER && runnerIndex < runnerIds.size()) {
+              runner =
+                  new TickFileReader.TickRunner(
+                      runnerIds.get(runnerIndex),
+                      runnerNames.get(runnerIndex),
+                      BetfairPriceLadder.toPrice(u16(tick, 13)),
+                      BetfairPriceLadder.toPrice(u16(tick, 15)));
+            }
+            boolean proceed =
+                assembler.row(
+                    lastTimestampText,
+                    u16(tick, 11),
+                    marketId,
+                    marketType,
+                    decodeStatus(flags),
+                    (flags & FLAG_KEYFRAME) != 0,
+                    runner);
+            if (!proceed) {
+              return;
+            }
+          } else {
+            throw new IOException("Unknown record tag " + tag + " in " + fileName);
+          }
+        }
+      } catch (EOFException truncated) {
+        // The writer is mid-append; everything before the partial record is complete.
+      }
+      assembler.finish();
+    }
+  }
+
+  /**
+   * Joins two binary tick files of the same market, {@code tail} written after {@code head} was
+   * closed: {@code head} is kept byte for byte and the records of {@code tail} follow it, their
+   * runner indexes mapped onto the dictionary of {@code head} ({@code tail}'s own header is
+   * dropped). {@code fileName} is only used in error messages.
+   */
+  static byte[] concat(byte[] head, byte[] tail, String fileName) throws IOException {
+    if (head.length == 0) {
+      return tail;
+    }
+    Encoder encoder = Encoder.continuing(new ByteArrayInputStream(head), fileName);
+    ByteArrayOutputStream merged = new ByteArrayOutputStream(head.length + tail.length);
+    merged.write(head);
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(tail));
+        DataOutputStream out = new DataOutputStream(merged)) {
+      if (!readHeader(in, fileName)) {
+        return head;
+      }
+      in.readUTF();
+      in.readUTF();
+      Map<Integer, Integer> indexes = new HashMap<>();
+      byte[] tick = new byte[TICK_RECORD_BYTES - 1];
+      int tag;
+      while ((tag = in.read()) >= 0) {
+        if (tag == RECORD_RUNNER) {
+          int index = in.readUnsignedShort();
+          long selectionId = in.readLong();
+          String name = in.readUTF();
+          indexes.put(index, encoder.runnerIndex(out, selectionId, name));
+        } else if (tag == RECORD_TICK) {
+          in.readFully(tick);
+          int runnerIndex = u16(tick, 1);
+          if (runnerIndex != MARKER_RUNNER) {
+            Integer mapped = indexes.get(runnerIndex);
+            if (mapped == null || mapped < 0) {
+              continue;
+            }
+            tick[1] = (byte) (mapped >>> 8);
+            tick[2] = mapped.byteValue();
+          }
+          out.writeByte(RECORD_TICK);
+          out.write(tick);
+        } else {
+          throw new IOException("Unknown record tag " + tag + " in " + fileName);
+        }
+      }
+    } catch (EOFException truncated) {
+      // A partial trailing record of the tail is dropped, as a reader would.
+    }
+    return merged.toByteArray();
+  }
+
+  private static boolean readHeader(DataInputStream in, String file) throws IOException {
+    try {
+      if (in.readInt() != MAGIC) {
+        throw new IOException(file + " is not a binary tick file");
+      }
+      int version = in.readUnsignedShort();
+      if (version != VERSION) {
+        throw new IOException("Unsupported tick file version " + version + " in " + file);
+      }
+      return true;
+    } catch (EOFException empty) {
+      return false;
+    }
+  }
+
+  private static int encodeStatus(String status) {
+    String normalized = status == null ? "" : status.trim().toUpperCase();
+    for (int code = 0; code < STATUSES.length; code++) {
+      if (STATUSES[code].equals(normalized)) {
+        return code;
+      }
+    }
+    return 0;
+  }
+
+  private static String decodeStatus(int flags) {
+    int code = (flags >> 1) & 0x07;
+    return code < STATUSES.length ? STATUSES[code] : "";
+  }
+
+  private static int u16(byte[] bytes, int offset) {
+    return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+  }
+
+  private static long i64(byte[] bytes, int offset) {
+    long value = 0L;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (bytes[offset + i] & 0xFF);
+    }
+    return value;
+  }
+
+  /**
+   * Encodes captures for one file, assigning dictionary indexes to runners as they first appear.
+   * Not thread-safe; callers keep one encoder per file.
+   */
+  static final class Encoder {
+    private final Map<String, Integer> runnerIndexes = new HashMap<>();
+
+    /** Encoder continuing an existing file, whose runner dictionary is loaded first. */
+    static Encoder forFile(Path file) throws IOException {
+      if (!Files.exists(file) || Files.size(file) == 0L) {
+        return new Encoder();
+      }
+      return continuing(Files.newInputStream(file), file.toString());
+    }
+
+    /** Encoder continuing the binary tick file read from {@code source}, which is closed. */
+    private static Encoder continuing(InputStream source, String fileName) throws IOException {
+      Encoder encoder = new Encoder();
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(source, 65536))) {
+        if (!readHeader(in, fileName)) {
+          return encoder;
+        }
+        in.readUTF();
+        in.readUTF();
+        int tag;
+        while ((tag = in.read()) >= 0) {
+          if (tag == RECORD_RUNNER) {
+            int index = in.readUnsignedShort();
+            long selectionId = in.readLong();
+            String name = in.readUTF();
+            encoder.runnerIndexes.put(selectionId + "|" + name, index);
+          } else if (tag == RECORD_TICK) {
+            skipFully(in, TICK_RECORD_BYTES - 1);
+          } else {
+            throw new IOException("Unknown record tag " + tag + " in " + fileName);
+          }
+        }
+      } catch (EOFException truncated) {
+        // A partial trailing record carries no dictionary entry worth keeping.
+      }
+      return encoder;
+    }
+
+    /**
+     * Encodes one capture. An empty {@code runners} list writes a marker so the capture time is
+     * kept even though no runner changed.
+     */
+    byte[] encode(
+        long timestampMillis,
+        long gameMinute,
+        String status,
+        boolean keyframe,
+        Collection<TickFileReader.TickRunner> runners) {
+      ByteArrayOutputStream bytes =
+          new ByteArrayOutputStream(TICK_RECORD_BYTES * Math.max(1, runners.size()));
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        int flags = (keyframe ? FLAG_KEYFRAME : 0) | (encodeStatus(status) << 1);
+        int minute = (int) Math.max(0L, Math.min(0xFFFFL, gameMinute));
+        if (runners.isEmpty()) {
+          writeTick(out, flags, MARKER_RUNNER, timestampMillis, minute, 0, 0);
+        }
+        for (TickFileReader.TickRunner runner : runners) {
+          int index = runnerIndex(out, runner);
+          if (index < 0) {
+            continue;
+          }
+          writeTick(
+              out,
+              flags,
+              index,
+              timestampMillis,
+              minute,
+              BetfairPriceLadder.toTick(runner.backOdds()),
+              BetfairPriceLadder.toTick(runner.layOdds()));
+        }
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      return bytes.toByteArray();
+    }
+
+    private int runnerIndex(DataOutputStream out, TickFileReader.TickRunner runner)
+        throws IOException {
+      return runnerIndex(out, parseSelectionId(runner.runnerId()), runner.runnerName());
+    }
+
+    /** Dictionary index of a runner, writing its runner record first when it is new; -1 when full. */
+    private int runnerIndex(DataOutputStream out, long selectionId, String runnerName)
+        throws IOException {
+      String key = selectionId + "|" + runnerName;
+      Integer index = runnerIndexes.get(key);
+      if (index != null) {
+        return index;
+      }
+      if (runnerIndexes.size() >= MAX_RUNNERS) {
+        return -1;
+      }
+      int assigned = runnerIndexes.size();
+      runnerIndexes.put(key, assigned);
+      out.writeByte(RECORD_RUNNER);
+      out.writeShort(assigned);
+      out.writeLong(selectionId);
+      out.writeUTF(runnerName);
+      return assigned;
+    }
+
+    private static void writeTick(
+        DataOutputStream out,
+        int flags,
+        int runnerIndex,
+        long timestampMillis,
+        int minute,
+        int backTick,
+        int layTick)
+        throws IOException {
+      out.writeByte(RECORD_TICK);
+      out.writeByte(flags);
+      out.writeShort(runnerIndex);
+      out.writeLong(timestampMillis);
+      out.writeShort(minute);
+      out.writeShort(backTick);
+      out.writeShort(layTick);
+    }
+
+    private static long parseSelectionId(String value) {
+      try {
+        return Long.parseLong(value.trim());
+      } catch (NumberFormatException ex) {
+        return -1L;
+      }
+    }
+
+    private static void skipFully(InputStream in, int count) throws IOException {
+      int remaining = count;
+      while (remaining > 0) {
+        long skipped = in.skip(remaining);
+        if (skipped <= 0) {
+          if (in.read() < 0) {
+            throw new EOFException();
+          }
+          skipped = 1;
+        }
+        remaining -= (int) skipped;
+      }
+    }
+  }
+}
@@ -0,0 +1,395 @@
+package com.betfair.sim.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Rolls the tick files of a closed day folder into one compressed {@link TickDaySegment}. A day
+ * is closed once it is before today (UTC) and none of its tick files was written for
+ * {@code capture.compaction.quiet-hours}; today's folder, files written within the quiet period
+ * and files still held open by the {@link TickFileAppenderPool} are never touched. Files already in an earlier segment of the folder
+ * are carried over, and a loose file of the same name (rows written after that compaction) is
+ * appended to its segment entry rather than replacing it. Every compacted file is read back from
+ * the new segment and compared byte for byte, and a loose file is only deleted when its size and
+ * modification time are still the ones it was read with. The periodic
+ * run has its own thread, so a long compaction never delays the capture jobs.
+ */
+@Service
+public class TickDayCompactor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TickDayCompactor.class);
+  private static final DateTimeFormatter DATE_FOLDER_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+  private final TickFileAppenderPool appenderPool;
+  private final Path followedGamesDir;
+  private final boolean enabled;
+  private final long intervalMs;
+  private final long quietMs;
+  private final boolean deleteSource;
+  private ScheduledExecutorService scheduler;
+
+  public TickDayCompactor(
+      TickFileAppenderPool appenderPool,
+      @Value("${betfair.followed-games.dir:backend/data}") String followedGamesDir,
+      @Value("${capture.compaction.enabled:true}") boolean enabled,
+      @Value("${capture.compaction.interval-ms:3600000}") long intervalMs,
+      @Value("${capture.compaction.quiet-hours:6}") long quietHours,
+      @Value("${capture.compaction.delete-source:true}") boolean deleteSource) {
+    this.appenderPool = appenderPool;
+    this.followedGamesDir = FollowedGamesPathResolver.resolve(followedGamesDir);
+    this.enabled = enabled;
+    this.intervalMs = Math.max(60_000L, intervalMs);
+    this.quietMs = Math.max(0L, quietHours) * 3_600_000L;
+    this.deleteSource = deleteSource;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "tick-day-compactor");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.scheduleWithFixedDelay(
+        this::compactClosedDays, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  public void compactClosedDays() {
+    if (!enabled || !Files.isDirectory(followedGamesDir)) {
+      return;
+    }
+    LocalDate today = LocalDate.now(ZoneOffset.UTC);
+    long quietSince = System.currentTimeMillis() - quietMs;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(followedGamesDir, "[0-9]*")) {
+      for (Path dayDir : stream) {
+        LocalDate day = parseFolderDate(dayDir);
+        if (day == null || !day.isBefore(today) || !Files.isDirectory(dayDir)) {
+          continue;
+        }
+        List<Path> looseFiles = looseTickFiles(dayDir);
+        if (looseFiles.isEmpty() || lastModified(looseFiles) > quietSince) {
+          continue;
+        }
+        Path segment = TickDaySegment.segmentFile(dayDir);
+        if (!deleteSource
+            && Files.isRegularFile(segment)
+            && Files.getLastModifiedTime(segment).toMillis() >= lastModified(looseFiles)) {
+          // Loose files kept by an earlier run (delete-source off) that have not changed since.
+          continue;
+        }
+        Map<String, Object> result = compact(dayDir);
+        LOGGER.info("Compacted tick folder {}: {}", dayDir.getFileName(), result);
+      }
+    } catch (IOException | RuntimeException ex) {
+      LOGGER.warn("Tick folder compaction failed", ex);
+    }
+  }
+
+  /**
+   * Compacts the folder of {@code date} (yyyy-MM-dd) now, without waiting for the whole folder to
+   * go quiet. Today's (UTC) and later folders are left alone, as are files written within the
+   * quiet period (a game that kicked off before midnight may still be writing) and files still
+   * open for appending.
+   */
+  public Map<String, Object> compactDay(String date) {
+    LocalDate day = LocalDate.parse(date);
+    Path dayDir = followedGamesDir.resolve(day.format(DATE_FOLDER_FORMAT));
+    if (!day.isBefore(LocalDate.now(ZoneOffset.UTC))) {
+      Map<String, Object> result = new LinkedHashMap<>();
+      result.put("folder", dayDir.toString());
+      result.put("compacted", 0);
+      result.put("skipped", "day is still being captured");
+      return result;
+    }
+    if (!Files.isDirectory(dayDir)) {
+      Map<String, Object> result = new LinkedHashMap<>();
+      result.put("folder", dayDir.toString());
+      result.put("compacted", 0);
+      return result;
+    }
+    return compact(dayDir);
+  }
+
+  private synchronized Map<String, Object> compact(Path dayDir) {
+    String folder = dayDir.getFileName().toString();
+    Path segment = TickDaySegment.segmentFile(dayDir);
+    Path temp = segment.resolveSibling(segment.getFileName() + ".tmp");
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("folder", dayDir.toString());
+    try {
+      long quietSince = System.currentTimeMillis() - quietMs;
+      List<Path> looseFiles = new ArrayList<>();
+      List<String> open = new ArrayList<>();
+      List<String> recent = new ArrayList<>();
+      for (Path file : looseTickFiles(dayDir)) {
+        if (appenderPool.isOpen(file)) {
+          open.add(file.getFileName().toString());
+        } else if (Files.getLastModifiedTime(file).toMillis() > quietSince) {
+          recent.add(file.getFileName().toString());
+        } else {
+          looseFiles.add(file);
+        }
+      }
+      if (looseFiles.isEmpty()) {
+        result.put("compacted", 0);
+        result.put("skippedOpen", open);
+        result.put("skippedRecent", recent);
+        return result;
+      }
+      List<String> looseNames = new ArrayList<>();
+      for (Path file : looseFiles) {
+        looseNames.add(file.getFileName().toString());
+      }
+      Map<String, TickDaySegment.Entry> previous = new LinkedHashMap<>();
+      for (TickDaySegment.Entry entry : TickDaySegment.entries(dayDir)) {
+        previous.put(entry.fileName(), entry);
+      }
+
+      long sourceBytes = 0L;
+      List<String> failed = new ArrayList<>();
+      List<Path> compacted = new ArrayList<>();
+      // Size and modification time of each compacted file as read; only that much goes in.
+      Map<Path, long[]> readAs = new LinkedHashMap<>();
+      List<TickDaySegment.Entry> written;
+      try (TickDaySegment.Writer writer = new TickDaySegment.Writer(temp)) {
+        for (TickDaySegment.Entry entry : previous.values()) {
+          if (!looseNames.contains(entry.fileName())) {
+            writer.copy(segment, entry);
+          }
+        }
+        for (Path file : looseFiles) {
+          try {
+            long[] attributes = attributes(file);
+            byte[] raw = content(segment, previous, file, attributes[0]);
+            long[] summary = summarize(raw, file.getFileName().toString());
+            String stem = TickFileReader.stem(file.getFileName().toString());
+            String[] key = splitStem(stem, folder);
+            writer.add(
+                file.getFileName().toString(), key[0], key[1], raw, summary[0], summary[1], summary[2]);
+            sourceBytes += attributes[0];
+            compacted.add(file);
+            readAs.put(file, attributes);
+          } catch (IOException | RuntimeException ex) {
+            LOGGER.warn("Leaving tick file {} out of the day segment", file, ex);
+            failed.add(file.getFileName().toString());
+            TickDaySegment.Entry earlier = previous.get(file.getFileName().toString());
+            if (earlier != null) {
+              writer.copy(segment, earlier);
+            }
+          }
+        }
+        writer.finish();
+        written = writer.entries();
+      }
+
+      verify(temp, written, segment, previous, readAs);
+      Files.move(temp, segment, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      List<String> changed = new ArrayList<>();
+      if (deleteSource) {
+        for (Path file : compacted) {
+          // Rows appended since the read stay in the loose file for the next run to pick up.
+          if (!Arrays.equals(readAs.get(file), attributes(file))) {
+            changed.add(file.getFileName().toString());
+            continue;
+          }
+          Files.deleteIfExists(file);
+          TickFileIndex.delete(file);
+        }
+      }
+      result.put("compacted", compacted.size());
+      result.put("segmentEntries", TickDaySegment.entries(dayDir).size());
+      result.put("sourceBytes", sourceBytes);
+      result.put("segmentBytes", Files.size(segment));
+      result.put("deletedSource", deleteSource);
+      result.put("failed", failed);
+      result.put("skippedOpen", open);
+      result.put("skippedRecent", recent);
+      result.put("changedSinceRead", changed);
+      return result;
+    } catch (IOException ex) {
+      try {
+        Files.deleteIfExists(temp);
+      } catch (IOException ignored) {
+        // the next run overwrites it
+      }
+      throw new UncheckedIOException("Failed to compact tick folder " + dayDir, ex);
+    }
+  }
+
+  /**
+   * Content of the segment entry for loose file {@code file}: the file itself, or, when an earlier
+   * compaction already holds a file of that name, the earlier rows followed by the file's. A loose
+   * file that was kept after that compaction still starts with the earlier rows and is taken as is.
+   */
+  private static byte[] content(
+      Path segment, Map<String, TickDaySegment.Entry> previous, Path file, long size)
+      throws IOException {
+    byte[] loose = Files.readAllBytes(file);
+    if (loose.length > size) {
+      loose = Arrays.copyOf(loose, Math.toIntExact(size));
+    }
+    String fileName = file.getFileName().toString();
+    TickDaySegment.Entry entry = previous.get(fileName);
+    if (entry == null) {
+      return loose;
+    }
+    byte[] earlier;
+    try (InputStream in = TickDaySegment.open(segment, entry)) {
+      earlier = in.readAllBytes();
+    }
+    if (loose.length >= earlier.length
+        && Arrays.equals(loose, 0, earlier.length, earlier, 0, earlier.length)) {
+      return loose;
+    }
+    if (TickBinaryFormat.isBinary(file)) {
+      return TickBinaryFormat.concat(earlier, loose, fileName);
+    }
+    // The loose CSV starts with its own header line, which the reader accepts mid-file.
+    ByteArrayOutputStream joined = new ByteArrayOutputStream(earlier.length + loose.length + 1);
+    joined.write(earlier);
+    if (earlier.length > 0 && earlier[earlier.length - 1] != '\n') {
+      joined.write('\n');
+    }
+    joined.write(loose);
+    return joined.toByteArray();
+  }
+
+  /** Reads every compacted file back from the new segment and compares it with its content. */
+  private static void verify(
+      Path segment,
+      List<TickDaySegment.Entry> entries,
+      Path previousSegment,
+      Map<String, TickDaySegment.Entry> previous,
+      Map<Path, long[]> readAs)
+      throws IOException {
+    Map<String, TickDaySegment.Entry> byName = new LinkedHashMap<>();
+    for (TickDaySegment.Entry entry : entries) {
+      byName.put(entry.fileName(), entry);
+    }
+    for (Map.Entry<Path, long[]> compacted : readAs.entrySet()) {
+      Path file = compacted.getKey();
+      TickDaySegment.Entry entry = byName.get(file.getFileName().toString());
+      if (entry == null) {
+        throw new IOException("Segment is missing " + file.getFileName());
+      }
+      byte[] actual;
+      try (InputStream in = TickDaySegment.open(segment, entry)) {
+        actual = in.readAllBytes();
+      }
+      byte[] expected = content(previousSegment, previous, file, compacted.getValue()[0]);
+      if (!Arrays.equals(expected, actual)) {
+        throw new IOException("Segment copy of " + file.getFileName() + " differs from the source");
+      }
+    }
+  }
+
+  /** Snapshot rows, first and last capture time (epoch millis, 0 when unknown) of a tick file. */
+  private static long[] summarize(byte[] raw, String fileName) throws IOException {
+    long[] summary = new long[3];
+    String[] first = {null};
+    String[] last = {null};
+    TickFileReader.forEachSnapshot(
+        new ByteArrayInputStream(raw),
+        fileName,
+        snapshot -> {
+          summary[0]++;
+          if (first[0] == null) {
+            first[0] = snapshot.timestamp();
+          }
+          last[0] = snapshot.timestamp();
+          return true;
+        });
+    summary[1] = parseEpochMillis(first[0]);
+    summary[2] = parseEpochMillis(last[0]);
+    return summary;
+  }
+
+  /** Game key and market type of a {@code <game>_<yyyyMMdd>_<MARKET_TYPE>} file stem. */
+  private static String[] splitStem(String stem, String folder) {
+    String separator = "_" + folder + "_";
+    int index = stem.indexOf(separator);
+    if (index < 0) {
+      return new String[] {stem, ""};
+    }
+    return new String[] {stem.substring(0, index), stem.substring(index + separator.length())};
+  }
+
+  private static List<Path> looseTickFiles(Path dayDir) throws IOException {
+    List<Path> files = new ArrayList<>();
+    for (Path file : TickFileReader.listTickFiles(dayDir)) {
+      if (Files.isRegularFile(file)) {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  /** Size and modification time (epoch millis) of {@code file}. */
+  private static long[] attributes(Path file) throws IOException {
+    return new long[] {Files.size(file), Files.getLastModifiedTime(file).toMillis()};
+  }
+
+  private static long lastModified(List<Path> files) throws IOException {
+    long latest = 0L;
+    for (Path file : files) {
+      latest = Math.max(latest, Files.getLastModifiedTime(file).toMillis());
+    }
+    return latest;
+  }
+
+  private static LocalDate parseFolderDate(Path dayDir) {
+    try {
+      return LocalDate.parse(dayDir.getFileName().toString(), DATE_FOLDER_FORMAT);
+    } catch (DateTimeParseException ex) {
+      return null;
+    }
+  }
+
+  private static long parseEpochMillis(String timestamp) {
+    if (timestamp == null) {
+      return 0L;
+    }
+    try {
+      return Instant.parse(timestamp).toEpochMilli();
+    } catch (RuntimeException ex) {
+      return 0L;
+    }
+  }
+}
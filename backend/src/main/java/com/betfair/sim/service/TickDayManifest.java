@@ -0,0 +1,376 @@
+package com.betfair.sim.service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * What each day folder holds, kept in {@code <yyyyMMdd>.manifest} inside it: one line per tick
+ * file with its game key, market type, market id, snapshot count, first and last capture time and
+ * last market status. The capture records every write here, so analytics can list a day's games
+ * and files without scanning the folder or parsing file names. A folder without a manifest (days
+ * captured before it existed, or after {@link #invalidate(Path)}) gets one built from its tick
+ * files on first use.
+ */
+@Component
+public class TickDayManifest {
+  static final String EXTENSION = ".manifest";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TickDayManifest.class);
+  private static final String FILE_HEADER = "# tick-day-manifest v1";
+  private static final int MAX_CACHED_DAYS = 32;
+
+  private final Map<Path, Day> days = new LinkedHashMap<>(16, 0.75f, true);
+
+  static Path manifestFile(Path dayDir) {
+    return dayDir.resolve(dayDir.getFileName() + EXTENSION);
+  }
+
+  /** The tick files of {@code dayDir} in file name order; empty when the folder does not exist. */
+  List<Entry> entries(Path dayDir) {
+    if (!Files.isDirectory(dayDir)) {
+      return List.of();
+    }
+    Day day = day(dayDir);
+    synchronized (day) {
+      return new ArrayList<>(day.entries.values());
+    }
+  }
+
+  /**
+   * Records a capture written to {@code file}: {@code snapshot} is {@code false} when the file
+   * was only opened (pre-warming) and holds no capture yet.
+   */
+  void record(Path file, String marketId, Instant capturedAt, String status, boolean snapshot) {
+    Path dayDir = file.getParent();
+    Day day = day(dayDir);
+    String fileName = file.getFileName().toString();
+    boolean added;
+    synchronized (day) {
+      Entry entry = day.entries.get(fileName);
+      if (entry == null) {
+        entry = Entry.forFile(fileName, dayDir.getFileName().toString());
+        if (entry == null) {
+          return;
+        }
+        day.entries.put(fileName, entry);
+        day.added = true;
+      }
+      if (marketId != null && !marketId.isBlank()) {
+        entry.marketId = marketId;
+      }
+      // A manifest just rebuilt from the files has already counted this capture.
+      if (snapshot
+          && TickFileReader.epochMillis(entry.lastTimestamp) != capturedAt.toEpochMilli()) {
+        String timestamp = capturedAt.toString();
+        entry.snapshots++;
+        if (entry.firstTimestamp.isEmpty()) {
+          entry.firstTimestamp = timestamp;
+        }
+        entry.lastTimestamp = timestamp;
+        entry.lastStatus = status == null ? "" : status;
+      }
+      day.dirty = true;
+      added = day.added;
+    }
+    if (added) {
+      // New files are saved at once so a restart never loses track of them.
+      save(day);
+    }
+  }
+
+  /** Saves every manifest changed since the last save. */
+  @PreDestroy
+  public void flush() {
+    List<Day> loaded;
+    synchronized (days) {
+      loaded = new ArrayList<>(days.values());
+    }
+    for (Day day : loaded) {
+      save(day);
+    }
+  }
+
+  /** Drops the manifest of {@code dayDir}; it is rebuilt from the tick files on next use. */
+  public void invalidate(Path dayDir) {
+    synchronized (days) {
+      days.remove(dayDir);
+    }
+    try {
+      Files.deleteIfExists(manifestFile(dayDir));
+    } catch (IOException ex) {
+      LOGGER.warn("Failed to delete tick manifest of {}", dayDir, ex);
+    }
+  }
+
+  /** Rebuilds the manifest of {@code dayDir} from its tick files and saves it. */
+  public Map<String, Object> rebuild(Path dayDir) {
+    Day day = new Day(dayDir);
+    rebuildFromFiles(day);
+    synchronized (days) {
+      days.put(dayDir, day);
+    }
+    save(day);
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("folder", dayDir.toString());
+    result.put("files", day.entries.size());
+    return result;
+  }
+
+  private Day day(Path dayDir) {
+    Day day;
+    List<Day> evicted = new ArrayList<>();
+    synchronized (days) {
+      day = days.get(dayDir);
+      if (day == null) {
+        day = new Day(dayDir);
+        days.put(dayDir, day);
+      }
+      Iterator<Day> eldest = days.values().iterator();
+      while (days.size() > MAX_CACHED_DAYS && eldest.hasNext()) {
+        evicted.add(eldest.next());
+        eldest.remove();
+      }
+    }
+    for (Day old : evicted) {
+      save(old);
+    }
+    synchronized (day) {
+      if (!day.loaded) {
+        day.loaded = true;
+        if (!load(day)) {
+          rebuildFromFiles(day);
+          day.dirty = true;
+        }
+      }
+    }
+    if (day.dirty && !Files.exists(manifestFile(dayDir))) {
+      save(day);
+    }
+    return day;
+  }
+
+  private boolean load(Day day) {
+    Path file = manifestFile(day.dayDir);
+    if (!Files.isRegularFile(file)) {
+      return false;
+    }
+    try {
+      List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      if (lines.isEmpty() || !FILE_HEADER.equals(lines.get(0))) {
+        return false;
+      }
+      for (String line : lines.subList(1, lines.size())) {
+        String[] parts = line.split("\t", -1);
+        if (parts.length != 8) {
+          continue;
+        }
+        try {
+          Entry entry =
+              new Entry(
+                  parts[0], parts[1], parts[2], parts[3], Long.parseLong(parts[4]), parts[5], parts[6], parts[7]);
+          day.entries.put(entry.fileName, entry);
+        } catch (NumberFormatException ex) {
+          // skip a damaged line
+        }
+      }
+      return true;
+    } catch (IOException ex) {
+      LOGGER.warn("Failed to read tick manifest {}; rebuilding it", file, ex);
+      return false;
+    }
+  }
+
+  private void rebuildFromFiles(Day day) {
+    String folder = day.dayDir.getFileName().toString();
+    Map<String, Entry> entries = new LinkedHashMap<>();
+    try {
+      for (Path file : TickFileReader.listTickFiles(day.dayDir)) {
+        Entry entry = Entry.forFile(file.getFileName().toString(), folder);
+        if (entry == null) {
+          continue;
+        }
+        try {
+          TickFileReader.forEachSnapshot(
+              file,
+              snapshot -> {
+                entry.snapshots++;
+                if (entry.firstTimestamp.isEmpty()) {
+                  entry.firstTimestamp = snapshot.timestamp();
+                }
+                entry.lastTimestamp = snapshot.timestamp();
+                entry.lastStatus = snapshot.marketStatus();
+                entry.marketId = snapshot.marketId();
+                return true;
+              });
+        } catch (IOException ex) {
+          LOGGER.warn("Failed to read tick file {} for the day manifest", file, ex);
+        }
+        entries.put(entry.fileName, entry);
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to list tick files of " + day.dayDir, ex);
+    }
+    synchronized (day) {
+      day.entries.clear();
+      day.entries.putAll(entries);
+      day.dirty = true;
+    }
+    LOGGER.info("Built tick manifest of {} from {} files", day.dayDir, entries.size());
+  }
+
+  private void save(Day day) {
+    List<String> lines = new ArrayList<>();
+    synchronized (day) {
+      if (!day.dirty) {
+        return;
+      }
+      lines.add(FILE_HEADER);
+      List<Entry> sorted = new ArrayList<>(day.entries.values());
+      sorted.sort((left, right) -> left.fileName.compareTo(right.fileName));
+      for (Entry entry : sorted) {
+        lines.add(
+            String.join(
+                "\t",
+                entry.fileName,
+                entry.gameKey,
+                entry.marketType,
+                entry.marketId,
+                String.valueOf(entry.snapshots),
+                entry.firstTimestamp,
+                entry.lastTimestamp,
+                entry.lastStatus));
+      }
+      day.dirty = false;
+      day.added = false;
+    }
+    Path file = manifestFile(day.dayDir);
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(day.dayDir);
+      try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        for (String line : lines) {
+          writer.write(line);
+          writer.newLine();
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      synchronized (day) {
+        day.dirty = true;
+      }
+      LOGGER.warn("Failed to save tick manifest {}", file, ex);
+    }
+  }
+
+  private static final class Day {
+    private final Path dayDir;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private boolean loaded;
+    private boolean dirty;
+    private boolean added;
+
+    private Day(Path dayDir) {
+      this.dayDir = dayDir;
+    }
+  }
+
+  /** One tick file of the day. */
+  static final class Entry {
+    private final String fileName;
+    private final String gameKey;
+    private final String marketType;
+    private String marketId;
+    private long snapshots;
+    private String firstTimestamp;
+    private String lastTimestamp;
+    private String lastStatus;
+
+    private Entry(
+        String fileName,
+        String gameKey,
+        String marketType,
+        String marketId,
+        long snapshots,
+        String firstTimestamp,
+        String lastTimestamp,
+        String lastStatus) {
+      this.fileName = fileName;
+      this.gameKey = gameKey;
+      this.marketType = marketType;
+      this.marketId = marketId;
+      this.snapshots = snapshots;
+      this.firstTimestamp = firstTimestamp;
+      this.lastTimestamp = lastTimestamp;
+      this.lastStatus = lastStatus;
+    }
+
+    /**
+     * A new entry for a {@code <game>_<yyyyMMdd>_<MARKET_TYPE>} tick file of day {@code folder},
+     * or {@code null} when the name does not follow that pattern.
+     */
+    private static Entry forFile(String fileName, String folder) {
+      String stem = TickFileReader.stem(fileName);
+      if (stem.equals(fileName)) {
+        return null;
+      }
+      String marker = "_" + folder + "_";
+      int markerIndex = stem.indexOf(marker);
+      if (markerIndex <= 0) {
+        return null;
+      }
+      String gameKey = stem.substring(0, markerIndex);
+      String marketType = stem.substring(markerIndex + marker.length());
+      if (gameKey.isBlank() || marketType.isBlank()) {
+        return null;
+      }
+      return new Entry(fileName, gameKey, marketType, "", 0L, "", "", "");
+    }
+
+    String fileName() {
+      return fileName;
+    }
+
+    String gameKey() {
+      return gameKey;
+    }
+
+    String marketType() {
+      return marketType;
+    }
+
+    String marketId() {
+      return marketId;
+    }
+
+    long snapshots() {
+      return snapshots;
+    }
+
+    String firstTimestamp() {
+      return firstTimestamp;
+    }
+
+    String lastTimestamp() {
+      return lastTimestamp;
+    }
+
+    String lastStatus() {
+      return lastStatus;
+    }
+  }
+}
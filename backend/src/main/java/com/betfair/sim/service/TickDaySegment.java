@@ -0,0 +1,405 @@
+package com.betfair.sim.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A compacted day folder: every tick file of the day in one file ({@code <yyyyMMdd>.segment}
+ * inside the folder). Layout, version 1:
+ *
+ * <ul>
+ *   <li>magic {@code BFSG} and a version short;
+ *   <li>one zlib-compressed block per tick file, holding the file's original bytes (CSV or
+ *       binary), so the regular readers parse it unchanged;
+ *   <li>the table of contents: entry count, then per entry the original file name, game key,
+ *       market type, block offset and compressed length, original length, snapshot rows and the
+ *       first and last capture time (epoch millis);
+ *   <li>a trailer with the table of contents offset and the magic again.
+ * </ul>
+ *
+ * Readers load the table of contents once per segment version and seek straight to a file's
+ * block.
+ */
+final class TickDaySegment {
+  static final String EXTENSION = ".segment";
+  static final int VERSION = 1;
+
+  private static final int MAGIC = 0x42465347; // "BFSG"
+  private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+  private static final Map<Path, CachedContents> CONTENTS = new ConcurrentHashMap<>();
+
+  private TickDaySegment() {}
+
+  static Path segmentFile(Path dayDir) {
+    return dayDir.resolve(dayDir.getFileName() + EXTENSION);
+  }
+
+  /** Table of contents of the day's segment in file order; empty when the day is not compacted. */
+  static List<Entry> entries(Path dayDir) throws IOException {
+    return new ArrayList<>(contents(segmentFile(dayDir)).values());
+  }
+
+  /**
+   * Replays the segment entry standing in for {@code file}, a tick file that was compacted into
+   * its folder's segment. Returns {@code false} when the segment holds no such file.
+   */
+  static boolean forEachSnapshot(Path file, TickFileReader.SnapshotConsumer consumer)
+      throws IOException {
+    Path dayDir = file.getParent();
+    if (dayDir == null) {
+      return false;
+    }
+    Path segment = segmentFile(dayDir);
+    Entry entry = contents(segment).get(file.getFileName().toString());
+    if (entry == null) {
+      return false;
+    }
+    try (InputStream in = open(segment, entry)) {
+      TickFileReader.forEachSnapshot(in, entry.fileName(), consumer);
+    }
+    return true;
+  }
+
+  /** Decompressed bytes of {@code entry}, read from its block only. */
+  static InputStream open(Path segment, Entry entry) throws IOException {
+    FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ);
+    try {
+      channel.position(entry.offset);
+      InputStream block = new BoundedInputStream(Channels.newInputStream(channel), entry.compressedLength);
+      return new InflaterInputStream(new BufferedInputStream(block, 65536));
+    } catch (IOException | RuntimeException ex) {
+      channel.close();
+      throw ex;
+    }
+  }
+
+  private static Map<String, Entry> contents(Path segment) throws IOException {
+    if (!Files.isRegularFile(segment)) {
+      CONTENTS.remove(segment);
+      return Map.of();
+    }
+    long size = Files.size(segment);
+    FileTime modified = Files.getLastModifiedTime(segment);
+    CachedContents cached = CONTENTS.get(segment);
+    if (cached != null && cached.size == size && cached.modified.equals(modified)) {
+      return cached.entries;
+    }
+    Map<String, Entry> entries = readContents(segment, size);
+    CONTENTS.put(segment, new CachedContents(size, modified, entries));
+    return entries;
+  }
+
+  private static Map<String, Entry> readContents(Path segment, long size) throws IOException {
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+      if (size < Integer.BYTES + Short.BYTES + TRAILER_BYTES) {
+        throw new IOException(segment + " is too short to be a tick segment");
+      }
+      ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+      readFully(channel, trailer, size - TRAILER_BYTES);
+      trailer.flip();
+      long contentsOffset = trailer.getLong();
+      if (trailer.getInt() != MAGIC || contentsOffset < 0L || contentsOffset > size - TRAILER_BYTES) {
+        throw new IOException(segment + " is not a complete tick segment");
+      }
+      channel.position(0L);
+      DataInputStream in =
+          new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+      if (in.readInt() != MAGIC) {
+        throw new IOException(segment + " is not a tick segment");
+      }
+      int version = in.readUnsignedShort();
+      if (version != VERSION) {
+        throw new IOException("Unsupported tick segment version " + version + " in " + segment);
+      }
+      channel.position(contentsOffset);
+      in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+      int count = in.readInt();
+      Map<String, Entry> entries = new LinkedHashMap<>();
+      for (int i = 0; i < count; i++) {
+        Entry entry =
+            new Entry(
+                in.readUTF(),
+                in.readUTF(),
+                in.readUTF(),
+                in.readLong(),
+                in.readLong(),
+                in.readLong(),
+                in.readLong(),
+                in.readLong(),
+                in.readLong());
+        entries.put(entry.fileName, entry);
+      }
+      return Collections.unmodifiableMap(entries);
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new EOFException();
+      }
+    }
+  }
+
+  /** Table of contents entry for one compacted tick file. */
+  static final class Entry {
+    private final String fileName;
+    private final String gameKey;
+    private final String marketType;
+    private final long offset;
+    private final long compressedLength;
+    private final long rawLength;
+    private final long rows;
+    private final long firstTimestamp;
+    private final long lastTimestamp;
+
+    Entry(
+        String fileName,
+        String gameKey,
+        String marketType,
+        long offset,
+        long compressedLength,
+        long rawLength,
+        long rows,
+        long firstTimestamp,
+        long lastTimestamp) {
+      this.fileName = fileName;
+      this.gameKey = gameKey;
+      this.marketType = marketType;
+      this.offset = offset;
+      this.compressedLength = compressedLength;
+      this.rawLength = rawLength;
+      this.rows = rows;
+      this.firstTimestamp = firstTimestamp;
+      this.lastTimestamp = lastTimestamp;
+    }
+
+    String fileName() {
+      return fileName;
+    }
+
+    String gameKey() {
+      return gameKey;
+    }
+
+    String marketType() {
+      return marketType;
+    }
+
+    long compressedLength() {
+      return compressedLength;
+    }
+
+    long rawLength() {
+      return rawLength;
+    }
+
+    long rows() {
+      return rows;
+    }
+
+    long firstTimestamp() {
+      return firstTimestamp;
+    }
+
+    long lastTimestamp() {
+      return lastTimestamp;
+    }
+  }
+
+  /** Writes a new segment; blocks are appended in call order and the contents on {@link #finish()}. */
+  static final class Writer implements AutoCloseable {
+    private final DataOutputStream out;
+    private final List<Entry> entries = new ArrayList<>();
+    private long position;
+
+    Writer(Path target) throws IOException {
+      this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target), 65536));
+      out.writeInt(MAGIC);
+      out.writeShort(VERSION);
+      position = Integer.BYTES + Short.BYTES;
+    }
+
+    /** Compresses {@code raw}, the full content of tick file {@code fileName}. */
+    void add(
+        String fileName,
+        String gameKey,
+        String marketType,
+        byte[] raw,
+        long rows,
+        long firstTimestamp,
+        long lastTimestamp)
+        throws IOException {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+      Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+      try (OutputStream deflating = new DeflaterOutputStream(compressed, deflater, 65536)) {
+        deflating.write(raw);
+      } finally {
+        deflater.end();
+      }
+      writeBlock(
+          compressed.toByteArray(),
+          fileName,
+          gameKey,
+          marketType,
+          raw.length,
+          rows,
+          firstTimestamp,
+          lastTimestamp);
+    }
+
+    /** Copies an entry of an existing segment without recompressing it. */
+    void copy(Path segment, Entry entry) throws IOException {
+      byte[] block = new byte[Math.toIntExact(entry.compressedLength)];
+      try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+        readFully(channel, ByteBuffer.wrap(block), entry.offset);
+      }
+      writeBlock(
+          block,
+          entry.fileName,
+          entry.gameKey,
+          entry.marketType,
+          entry.rawLength,
+          entry.rows,
+          entry.firstTimestamp,
+          entry.lastTimestamp);
+    }
+
+    List<Entry> entries() {
+      return entries;
+    }
+
+    void finish() throws IOException {
+      long contentsOffset = position;
+      out.writeInt(entries.size());
+      for (Entry entry : entries) {
+        out.writeUTF(entry.fileName);
+        out.writeUTF(entry.gameKey);
+        out.writeUTF(entry.marketType);
+        out.writeLong(entry.offset);
+        out.writeLong(entry.compressedLength);
+        out.writeLong(entry.rawLength);
+        out.writeLong(entry.rows);
+        out.writeLong(entry.firstTimestamp);
+        out.writeLong(entry.lastTimestamp);
+      }
+      out.writeLong(contentsOffset);
+      out.writeInt(MAGIC);
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+
+    private void writeBlock(
+        byte[] block,
+        String fileName,
+        String gameKey,
+        String marketType,
+        long rawLength,
+        long rows,
+        long firstTimestamp,
+        long lastTimestamp)
+        throws IOException {
+      out.write(block);
+      entries.add(
+          new Entry(
+              fileName,
+              gameKey,
+              marketType,
+              position,
+              block.length,
+              rawLength,
+              rows,
+              firstTimestamp,
+              lastTimestamp));
+      position += block.length;
+    }
+  }
+
+  private static final class CachedContents {
+    private final long size;
+    private final FileTime modified;
+    private final Map<String, Entry> entries;
+
+    private CachedContents(long size, FileTime modified, Map<String, Entry> entries) {
+      this.size = size;
+      this.modified = modified;
+      this.entries = entries;
+    }
+  }
+
+  /** Stops at the end of one block and closes the underlying channel stream with it. */
+  private static final class BoundedInputStream extends FilterInputStream {
+    private long remaining;
+
+    private BoundedInputStream(InputStream in, long length) {
+      super(in);
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0L) {
+        return -1;
+      }
+      int value = super.read();
+      if (value >= 0) {
+        remaining--;
+      }
+      return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (remaining <= 0L) {
+        return -1;
+      }
+      int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+      if (read > 0) {
+        remaining -= read;
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+      long skipped = super.skip(Math.min(count, remaining));
+      remaining -= skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(super.available(), remaining);
+    }
+  }
+}
@@ -0,0 +1,345 @@
+package com.betfair.sim.service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends captured tick lines to their CSV files through one open, buffered FileChannel per file.
+ * Buffers are written out once they reach {@code capture.writer.flush-bytes} or have waited
+ * {@code capture.writer.flush-interval-ms}, optionally followed by an fsync. Files idle for
+ * {@code capture.writer.idle-close-ms}, files of closed markets and everything left at shutdown
+ * are flushed and closed. With {@code capture.writer.mode=direct} every append opens, writes and
+ * closes the file as before, so both paths can be compared through {@link #stats()}.
+ */
+@Component
+public class TickFileAppenderPool {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TickFileAppenderPool.class);
+
+  private final boolean pooled;
+  private final int flushBytes;
+  private final long flushIntervalMs;
+  private final long idleCloseMs;
+  private final boolean fsync;
+  private final int maxOpenFiles;
+  private final Map<Path, Appender> appenders = new ConcurrentHashMap<>();
+  private final AtomicLong appends = new AtomicLong();
+  private final AtomicLong recordsAppended = new AtomicLong();
+  private final AtomicLong bytesAppended = new AtomicLong();
+  private final AtomicLong appendNanos = new AtomicLong();
+  private final AtomicLong flushes = new AtomicLong();
+  private final AtomicLong syncs = new AtomicLong();
+  private final AtomicLong opens = new AtomicLong();
+  private final AtomicLong closes = new AtomicLong();
+
+  public TickFileAppenderPool(
+      @Value("${capture.writer.mode:pooled}") String mode,
+      @Value("${capture.writer.flush-bytes:65536}") int flushBytes,
+      @Value("${capture.writer.flush-interval-ms:5000}") long flushIntervalMs,
+      @Value("${capture.writer.idle-close-ms:300000}") long idleCloseMs,
+      @Value("${capture.writer.fsync:false}") boolean fsync,
+      @Value("${capture.writer.max-open-files:512}") int maxOpenFiles) {
+    this.pooled = !"direct".equalsIgnoreCase(mode == null ? "" : mode.trim());
+    this.flushBytes = Math.max(1024, flushBytes);
+    this.flushIntervalMs = Math.max(0L, flushIntervalMs);
+    this.idleCloseMs = Math.max(1000L, idleCloseMs);
+    this.fsync = fsync;
+    this.maxOpenFiles = Math.max(1, maxOpenFiles);
+  }
+
+  /**
+   * Appends {@code lines} to {@code file}, creating it with {@code header} as its first line when
+   * it does not exist yet.
+   */
+  public void append(Path file, String header, List<String> lines) throws IOException {
+    append(file, header == null ? null : encode(List.of(header)), encode(lines), lines.size());
+  }
+
+  /**
+   * Appends already encoded {@code records} (for binary tick files), writing {@code header} first
+   * when the file does not exist yet.
+   */
+  public void append(Path file, byte[] header, byte[] records, int recordCount)
+      throws IOException {
+    long started = System.nanoTime();
+    if (pooled) {
+      appendPooled(file, header, records);
+    } else {
+      appendDirect(file, header, records);
+    }
+    appends.incrementAndGet();
+    recordsAppended.addAndGet(recordCount);
+    bytesAppended.addAndGet(records.length);
+    appendNanos.addAndGet(System.nanoTime() - started);
+  }
+
+  /**
+   * Opens {@code file} ahead of its first append, creating it with {@code header} when it does not
+   * exist yet, and keeps it from being closed as idle. Direct mode has nothing to keep open.
+   */
+  public void prepare(Path file, byte[] header) throws IOException {
+    if (pooled) {
+      appendPooled(file, header, new byte[0]);
+    }
+  }
+
+  public void prepare(Path file, String header) throws IOException {
+    prepare(file, header == null ? null : encode(List.of(header)));
+  }
+
+  /** Flushes and closes the file's channel, e.g. once its market has closed. */
+  public void close(Path file) {
+    Appender appender = appenders.remove(file);
+    if (appender != null) {
+      closeQuietly(appender);
+    }
+  }
+
+  /**
+   * Whether the pool holds {@code file} open for appends, i.e. the capture is still writing it.
+   * Direct mode keeps nothing open and always answers {@code false}.
+   */
+  public boolean isOpen(Path file) {
+    if (appenders.containsKey(file)) {
+      return true;
+    }
+    Path normalized = file.toAbsolutePath().normalize();
+    for (Path open : appenders.keySet()) {
+      if (open.toAbsolutePath().normalize().equals(normalized)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Scheduled(fixedDelayString = "${capture.writer.flush-interval-ms:5000}")
+  public void flushDue() {
+    long now = System.currentTimeMillis();
+    for (Map.Entry<Path, Appender> entry : appenders.entrySet()) {
+      Appender appender = entry.getValue();
+      try {
+        synchronized (appender) {
+          if (appender.closed) {
+            continue;
+          }
+          if (now - appender.lastWriteAt >= idleCloseMs) {
+            appenders.remove(entry.getKey(), appender);
+            closeAppender(appender);
+          } else if (now - appender.bufferedSince >= flushIntervalMs) {
+            flush(appender);
+          }
+        }
+      } catch (IOException ex) {
+        LOGGER.warn("Failed to flush tick file {}", entry.getKey(), ex);
+        appenders.remove(entry.getKey(), appender);
+        closeQuietly(appender);
+      }
+    }
+  }
+
+  @PreDestroy
+  public void closeAll() {
+    for (Path file : new ArrayList<>(appenders.keySet())) {
+      close(file);
+    }
+  }
+
+  public Map<String, Object> stats() {
+    long appendCount = appends.get();
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("mode", pooled ? "pooled" : "direct");
+    stats.put("openFiles", appenders.size());
+    stats.put("appends", appendCount);
+    stats.put("records", recordsAppended.get());
+    stats.put("bytes", bytesAppended.get());
+    stats.put("appendMillis", appendNanos.get() / 1_000_000L);
+    stats.put(
+        "avgAppendMicros", appendCount == 0 ? 0.0 : appendNanos.get() / 1000.0 / appendCount);
+    stats.put("flushes", flushes.get());
+    stats.put("syncs", syncs.get());
+    stats.put("opens", opens.get());
+    stats.put("closes", closes.get());
+    return stats;
+  }
+
+  private void appendPooled(Path file, byte[] header, byte[] encoded) throws IOException {
+    while (true) {
+      Appender appender = appenders.get(file);
+      if (appender == null) {
+        try {
+          appender = appenders.computeIfAbsent(file, key -> open(key, header));
+        } catch (UncheckedIOException ex) {
+          throw ex.getCause();
+        }
+        evictIfOverLimit(file);
+      }
+      synchronized (appender) {
+        if (appender.closed) {
+          // Closed concurrently by the idle sweep or a closed market; reopen.
+          appenders.remove(file, appender);
+          continue;
+        }
+        try {
+          write(appender, encoded);
+        } catch (IOException ex) {
+          appenders.remove(file, appender);
+          closeQuietly(appender);
+          throw ex;
+        }
+        return;
+      }
+    }
+  }
+
+  private Appender open(Path file, byte[] header) {
+    try {
+      Path parent = file.getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      FileChannel channel =
+          FileChannel.open(
+              file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+      opens.incrementAndGet();
+      Appender appender = new Appender(channel, flushBytes);
+      if (channel.size() == 0L && header != null) {
+        write(appender, header);
+      }
+      return appender;
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private void write(Appender appender, byte[] encoded) throws IOException {
+    if (appender.buffer.position() == 0) {
+      appender.bufferedSince = System.currentTimeMillis();
+    }
+    if (encoded.length > appender.buffer.remaining()) {
+      flush(appender);
+      appender.bufferedSince = System.currentTimeMillis();
+    }
+    if (encoded.length > appender.buffer.capacity()) {
+      writeFully(appender.channel, ByteBuffer.wrap(encoded));
+    } else {
+      appender.buffer.put(encoded);
+    }
+    appender.lastWriteAt = System.currentTimeMillis();
+  }
+
+  private void flush(Appender appender) throws IOException {
+    if (appender.buffer.position() == 0) {
+      return;
+    }
+    appender.buffer.flip();
+    writeFully(appender.channel, appender.buffer);
+    appender.buffer.clear();
+    flushes.incrementAndGet();
+    if (fsync) {
+      appender.channel.force(false);
+      syncs.incrementAndGet();
+    }
+  }
+
+  private void closeAppender(Appender appender) throws IOException {
+    synchronized (appender) {
+      if (appender.closed) {
+        return;
+      }
+      appender.closed = true;
+      try {
+        flush(appender);
+      } finally {
+        appender.channel.close();
+        closes.incrementAndGet();
+      }
+    }
+  }
+
+  private void closeQuietly(Appender appender) {
+    try {
+      closeAppender(appender);
+    } catch (IOException ex) {
+      LOGGER.warn("Failed to close tick file", ex);
+    }
+  }
+
+  /** Keeps the descriptor count bounded by closing the least recently written file. */
+  private void evictIfOverLimit(Path justOpened) {
+    while (appenders.size() > maxOpenFiles) {
+      Path oldest = null;
+      long oldestWrite = Long.MAX_VALUE;
+      for (Map.Entry<Path, Appender> entry : appenders.entrySet()) {
+        if (!entry.getKey().equals(justOpened) && entry.getValue().lastWriteAt < oldestWrite) {
+          oldest = entry.getKey();
+          oldestWrite = entry.getValue().lastWriteAt;
+        }
+      }
+      if (oldest == null) {
+        return;
+      }
+      close(oldest);
+    }
+  }
+
+  private void appendDirect(Path file, byte[] header, byte[] encoded) throws IOException {
+    Path parent = file.getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    if (!Files.exists(file) && header != null) {
+      Files.write(file, header, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+    Files.write(file, encoded, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    opens.incrementAndGet();
+    closes.incrementAndGet();
+    flushes.incrementAndGet();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static byte[] encode(List<String> lines) {
+    StringBuilder builder = new StringBuilder();
+    for (String line : lines) {
+      builder.append(line).append(System.lineSeparator());
+    }
+    return builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static final class Appender {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long bufferedSince;
+    private volatile long lastWriteAt;
+    private boolean closed;
+
+    private Appender(FileChannel channel, int capacity) {
+      this.channel = channel;
+      this.buffer = ByteBuffer.allocate(capacity);
+      long now = System.currentTimeMillis();
+      this.bufferedSince = now;
+      this.lastWriteAt = now;
+    }
+  }
+}
@@ -0,0 +1,264 @@
+package com.betfair.sim.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Converts a day folder of captured tick files between CSV and the binary format. CSV to binary
+ * keeps every capture time (unchanged captures become markers) and writes a keyframe every
+ * {@code capture.delta.keyframe-interval-ms}; binary to CSV exports full snapshots in the
+ * original column layout so existing tooling can read them. Only days before today (UTC) are
+ * converted, and files the capture still holds open in {@link TickFileAppenderPool} are left
+ * alone, since rows appended after the conversion would be hidden behind the converted file.
+ */
+@Service
+public class TickFileConverter {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TickFileConverter.class);
+
+  private final Path followedGamesDir;
+  private final long keyframeIntervalMs;
+  private final TickDayManifest dayManifest;
+  private final TickFileAppenderPool appenderPool;
+
+  public TickFileConverter(
+      TickDayManifest dayManifest,
+      TickFileAppenderPool appenderPool,
+      @Value("${betfair.followed-games.dir:backend/data}") String followedGamesDir,
+      @Value("${capture.delta.keyframe-interval-ms:600000}") long keyframeIntervalMs) {
+    this.followedGamesDir = FollowedGamesPathResolver.resolve(followedGamesDir);
+    this.keyframeIntervalMs = Math.max(0L, keyframeIntervalMs);
+    this.dayManifest = dayManifest;
+    this.appenderPool = appenderPool;
+  }
+
+  /**
+   * Converts every tick file of {@code date} (yyyy-MM-dd) to {@code format} ("binary" or "csv"),
+   * skipping files already present in the target format and files still open for capture. The
+   * source file is removed afterwards when {@code deleteSource} is set. Today's folder is not
+   * converted.
+   *
+   * @throws IllegalArgumentException when {@code format} is neither "binary" nor "csv"
+   */
+  public Map<String, Object> convertDay(String date, String format, boolean deleteSource) {
+    String normalizedFormat = format == null ? "" : format.trim().toLowerCase(Locale.ROOT);
+    if (!"binary".equals(normalizedFormat) && !"csv".equals(normalizedFormat)) {
+      throw new IllegalArgumentException(
+          "Unknown tick file format '" + format + "'; expected binary or csv");
+    }
+    LocalDate day = LocalDate.parse(date);
+    Path dayDir = followedGamesDir.resolve(day.format(DateTimeFormatter.BASIC_ISO_DATE));
+    boolean toBinary = "binary".equals(normalizedFormat);
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("folder", dayDir.toString());
+    result.put("format", normalizedFormat);
+    if (!day.isBefore(LocalDate.now(ZoneOffset.UTC))) {
+      result.put("converted", 0);
+      result.put("skipped", "day is still being captured");
+      return result;
+    }
+    if (!Files.isDirectory(dayDir)) {
+      result.put("converted", 0);
+      return result;
+    }
+    int converted = 0;
+    long sourceBytes = 0L;
+    long targetBytes = 0L;
+    List<String> failed = new ArrayList<>();
+    List<String> open = new ArrayList<>();
+    try {
+      for (Path source : TickFileReader.listTickFiles(dayDir)) {
+        if (TickBinaryFormat.isBinary(source) == toBinary || !Files.exists(source)) {
+          // Already in the target format, or held in the day's compacted segment.
+          continue;
+        }
+        String stem = TickFileReader.stem(source.getFileName().toString());
+        Path target =
+            dayDir.resolve(
+                stem + (toBinary ? TickBinaryFormat.EXTENSION : TickFileReader.CSV_EXTENSION));
+        if (appenderPool.isOpen(source) || appenderPool.isOpen(target)) {
+          open.add(source.getFileName().toString());
+          continue;
+        }
+        try {
+          if (toBinary) {
+            toBinary(source, target);
+          } else {
+            toCsv(source, target);
+          }
+          sourceBytes += Files.size(source);
+          targetBytes += Files.size(target);
+          if (deleteSource) {
+            Files.delete(source);
+            TickFileIndex.delete(source);
+          }
+          converted++;
+        } catch (IOException | RuntimeException ex) {
+          LOGGER.warn("Failed to convert tick file {}", source, ex);
+          failed.add(source.getFileName().toString());
+        }
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to list tick files in " + dayDir, ex);
+    }
+    if (converted > 0) {
+      // The converted files go by new names; the manifest is rebuilt on next use.
+      dayManifest.invalidate(dayDir);
+    }
+    result.put("converted", converted);
+    result.put("sourceBytes", sourceBytes);
+    result.put("targetBytes", targetBytes);
+    result.put("failed", failed);
+    result.put("skippedOpen", open);
+    return result;
+  }
+
+  /** Writes {@code source} (CSV) as a binary tick file at {@code target}. */
+  public void toBinary(Path source, Path target) throws IOException {
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    try (OutputStream out = Files.newOutputStream(temp)) {
+      TickBinaryFormat.Encoder encoder = new TickBinaryFormat.Encoder();
+      Map<String, String> lastStates = new HashMap<>();
+      long[] keyframeAt = {-1L};
+      boolean[] headerWritten = {false};
+      IOException[] failure = new IOException[1];
+      TickFileReader.forEachSnapshot(
+          source,
+          snapshot -> {
+            try {
+              if (!headerWritten[0]) {
+                out.write(TickBinaryFormat.header(snapshot.marketId(), snapshot.marketType()));
+                headerWritten[0] = true;
+              }
+              long timestamp = parseEpochMillis(snapshot.timestamp());
+              Map<String, String> states = new HashMap<>();
+              for (TickFileReader.TickRunner runner : snapshot.runners()) {
+                states.put(runnerKey(runner), stateOf(snapshot.marketStatus(), runner));
+              }
+              // A runner dropping out of the snapshot can only be expressed by a keyframe.
+              boolean keyframe =
+                  keyframeAt[0] < 0L
+                      || timestamp - keyframeAt[0] >= keyframeIntervalMs
+                      || !states.keySet().containsAll(lastStates.keySet());
+              List<TickFileReader.TickRunner> written = new ArrayList<>();
+              for (TickFileReader.TickRunner runner : snapshot.runners()) {
+                String key = runnerKey(runner);
+                if (keyframe || !states.get(key).equals(lastStates.get(key))) {
+                  written.add(runner);
+                }
+              }
+              if (keyframe) {
+                keyframeAt[0] = timestamp;
+              }
+              lastStates.clear();
+              lastStates.putAll(states);
+              out.write(
+                  encoder.encode(
+                      timestamp,
+                      snapshot.gameMinute(),
+                      snapshot.marketStatus(),
+                      keyframe,
+                      written));
+              return true;
+            } catch (IOException ex) {
+              failure[0] = ex;
+              return false;
+            }
+          });
+      if (failure[0] != null) {
+        throw failure[0];
+      }
+      if (!headerWritten[0]) {
+        // An empty CSV still becomes a valid, empty binary file.
+        out.write(TickBinaryFormat.header("", ""));
+      }
+    }
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /** Writes {@code source} (binary) as a CSV tick file of full snapshots at {@code target}. */
+  public void toCsv(Path source, Path target) throws IOException {
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      writer.write(TickFileReader.HEADER);
+      writer.newLine();
+      IOException[] failure = new IOException[1];
+      TickFileReader.forEachSnapshot(
+          source,
+          snapshot -> {
+            try {
+              for (TickFileReader.TickRunner runner : snapshot.runners()) {
+                writer.write(
+                    String.join(
+                        ",",
+                        snapshot.timestamp(),
+                        String.valueOf(snapshot.gameMinute()),
+                        snapshot.marketId(),
+                        snapshot.marketType(),
+                        snapshot.marketStatus(),
+                        runner.runnerId(),
+                        runner.runnerName(),
+                        formatOdds(runner.backOdds()),
+                        formatOdds(runner.layOdds())));
+                writer.newLine();
+              }
+              return true;
+            } catch (IOException ex) {
+              failure[0] = ex;
+              return false;
+            }
+          });
+      if (failure[0] != null) {
+        throw failure[0];
+      }
+    }
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static String runnerKey(TickFileReader.TickRunner runner) {
+    return runner.runnerId() + "|" + runner.runnerName();
+  }
+
+  /** Compared at ladder resolution, since that is what the binary file can represent. */
+  private static String stateOf(String status, TickFileReader.TickRunner runner) {
+    return status
+        + ","
+        + BetfairPriceLadder.toTick(runner.backOdds())
+        + ","
+        + BetfairPriceLadder.toTick(runner.layOdds());
+  }
+
+  private static long parseEpochMillis(String timestamp) {
+    try {
+      return Instant.parse(timestamp).toEpochMilli();
+    } catch (RuntimeException ex) {
+      return 0L;
+    }
+  }
+
+  private static String formatOdds(double value) {
+    if (Double.isNaN(value)) {
+      return "";
+    }
+    return String.format("%.2f", value);
+  }
+}
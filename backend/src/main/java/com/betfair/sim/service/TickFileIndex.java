@@ -0,0 +1,355 @@
+package com.betfair.sim.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Sparse index of a CSV tick file, kept next to it as {@code <file>.idx}: one point per game
+ * minute and per wall-clock minute, giving the byte offset a replay has to start from to see that
+ * point's snapshot complete (the snapshot itself, or in delta files the keyframe before it) and
+ * the offset of the header line in force there.
+ *
+ * <p>The index is built lazily on the first seek and extended on later seeks over whatever was
+ * appended since, so it stays correct while the capture is still writing. Only complete lines
+ * are indexed; the scan state at the last one is saved with the points so the next extension
+ * carries on from there. An index whose file was truncated or replaced (the first bytes no longer
+ * match) is rebuilt.
+ */
+final class TickFileIndex {
+  static final String EXTENSION = ".idx";
+
+  private static final int MAGIC = 0x42464958; // "BFIX"
+  private static final int VERSION = 1;
+  private static final long BUCKET_MS = 60_000L;
+  private static final int HEAD_BYTES = 256;
+  private static final int MAX_CACHED = 4096;
+  private static final Map<Path, FileIndex> INDEXES = new ConcurrentHashMap<>();
+
+  private TickFileIndex() {}
+
+  static Path sidecar(Path file) {
+    return file.resolveSibling(file.getFileName() + EXTENSION);
+  }
+
+  /**
+   * Where to start replaying {@code file} to reach its first snapshot at or after game minute
+   * {@code fromMinute} and capture time {@code fromEpochMs}; {@code null} when the index has no
+   * point to offer.
+   */
+  static Position seek(Path file, long fromMinute, long fromEpochMs) throws IOException {
+    if (INDEXES.size() > MAX_CACHED) {
+      INDEXES.clear();
+    }
+    FileIndex index = INDEXES.computeIfAbsent(file, key -> new FileIndex());
+    synchronized (index) {
+      index.refresh(file);
+      Position start = null;
+      for (Point point : index.points) {
+        start = new Position(point.offset, point.headerOffset);
+        if (point.minute >= fromMinute && point.epochMs >= fromEpochMs) {
+          break;
+        }
+      }
+      return start;
+    }
+  }
+
+  /** Removes the sidecar of {@code file}, e.g. once the file itself is deleted. */
+  static void delete(Path file) throws IOException {
+    INDEXES.remove(file);
+    Files.deleteIfExists(sidecar(file));
+  }
+
+  /** Byte offsets to start a replay from: the data and the header line in force ({@code -1}: none). */
+  static final class Position {
+    private final long offset;
+    private final long headerOffset;
+
+    private Position(long offset, long headerOffset) {
+      this.offset = offset;
+      this.headerOffset = headerOffset;
+    }
+
+    long offset() {
+      return offset;
+    }
+
+    long headerOffset() {
+      return headerOffset;
+    }
+  }
+
+  private static final class Point {
+    private final long minute;
+    private final long epochMs;
+    private final long offset;
+    private final long headerOffset;
+
+    private Point(long minute, long epochMs, long offset, long headerOffset) {
+      this.minute = minute;
+      this.epochMs = epochMs;
+      this.offset = offset;
+      this.headerOffset = headerOffset;
+    }
+  }
+
+  /** Index points plus the scan state after the last complete line indexed. */
+  private static final class FileIndex {
+    private final List<Point> points = new ArrayList<>();
+    private int headLength;
+    private long headCrc;
+    private long indexedLength;
+    private long headerOffset = -1L;
+    private long keyframeOffset = -1L;
+    private long snapshotOffset = -1L;
+    private String snapshotTimestamp = "";
+    private long lastMinute = Long.MIN_VALUE;
+    private long lastBucket = Long.MIN_VALUE;
+    private boolean loaded;
+
+    private void refresh(Path file) throws IOException {
+      long size = Files.size(file);
+      if (!loaded) {
+        loaded = true;
+        load(file);
+      }
+      if (indexedLength > 0L && (size < indexedLength || headCrc != headCrc(file, headLength))) {
+        reset();
+      }
+      if (size > indexedLength) {
+        int before = points.size();
+        scan(file, size);
+        if (points.size() != before || !Files.exists(sidecar(file))) {
+          save(file);
+        }
+      }
+    }
+
+    private void reset() {
+      points.clear();
+      headLength = 0;
+      headCrc = 0L;
+      indexedLength = 0L;
+      headerOffset = -1L;
+      keyframeOffset = -1L;
+      snapshotOffset = -1L;
+      snapshotTimestamp = "";
+      lastMinute = Long.MIN_VALUE;
+      lastBucket = Long.MIN_VALUE;
+    }
+
+    /** Indexes the complete lines between {@link #indexedLength} and {@code size}. */
+    private void scan(Path file, long size) throws IOException {
+      TickFileReader.CsvLineProbe probe = new TickFileReader.CsvLineProbe();
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        if (headerOffset >= 0L) {
+          channel.position(headerOffset);
+          probe.probe(readLine(Channels.newInputStream(channel)));
+        }
+        channel.position(indexedLength);
+        InputStream in = new BoundedChannelStream(channel, size - indexedLength);
+        byte[] chunk = new byte[65536];
+        byte[] line = new byte[256];
+        int length = 0;
+        long position = indexedLength;
+        int read;
+        while ((read = in.read(chunk, 0, chunk.length)) > 0) {
+          for (int i = 0; i < read; i++) {
+            byte next = chunk[i];
+            position++;
+            if (next != '\n') {
+              if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+              }
+              line[length++] = next;
+              continue;
+            }
+            int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+            index(probe, new String(line, 0, end, StandardCharsets.UTF_8), indexedLength);
+            length = 0;
+            indexedLength = position;
+          }
+        }
+      }
+      // The head checked for replacement grows with the file up to HEAD_BYTES.
+      if (headLength < HEAD_BYTES && indexedLength > headLength) {
+        headLength = (int) Math.min(HEAD_BYTES, indexedLength);
+        headCrc = headCrc(file, headLength);
+      }
+    }
+
+    private void index(TickFileReader.CsvLineProbe probe, String line, long lineStart) {
+      int kind = probe.probe(line);
+      if (kind == TickFileReader.CsvLineProbe.HEADER) {
+        headerOffset = lineStart;
+        return;
+      }
+      if (kind != TickFileReader.CsvLineProbe.ROW) {
+        return;
+      }
+      boolean newSnapshot = !probe.timestamp().equals(snapshotTimestamp);
+      if (newSnapshot) {
+        snapshotTimestamp = probe.timestamp();
+        snapshotOffset = lineStart;
+        if (keyframeOffset < 0L) {
+          // Replaying from the first snapshot is the same as replaying the whole file.
+          keyframeOffset = lineStart;
+        }
+      }
+      if (probe.keyframe()) {
+        keyframeOffset = snapshotOffset;
+      }
+      if (!newSnapshot) {
+        return;
+      }
+      long epochMs = TickFileReader.epochMillis(probe.timestamp());
+      long bucket = epochMs == Long.MIN_VALUE ? lastBucket : Math.floorDiv(epochMs, BUCKET_MS);
+      if (probe.gameMinute() != lastMinute || bucket != lastBucket) {
+        points.add(new Point(probe.gameMinute(), epochMs, keyframeOffset, headerOffset));
+        lastMinute = probe.gameMinute();
+        lastBucket = bucket;
+      }
+    }
+
+    private void load(Path file) {
+      Path sidecar = sidecar(file);
+      if (!Files.isRegularFile(sidecar)) {
+        return;
+      }
+      try (DataInputStream in =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+        if (in.readInt() != MAGIC || in.readUnsignedShort() != VERSION) {
+          return;
+        }
+        headLength = in.readInt();
+        headCrc = in.readLong();
+        indexedLength = in.readLong();
+        headerOffset = in.readLong();
+        keyframeOffset = in.readLong();
+        snapshotOffset = in.readLong();
+        snapshotTimestamp = in.readUTF();
+        lastMinute = in.readLong();
+        lastBucket = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          points.add(new Point(in.readLong(), in.readLong(), in.readLong(), in.readLong()));
+        }
+      } catch (IOException ex) {
+        // A damaged sidecar is rebuilt from the file.
+        reset();
+      }
+    }
+
+    private void save(Path file) {
+      Path sidecar = sidecar(file);
+      Path temp = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+      try {
+        try (DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+          out.writeInt(MAGIC);
+          out.writeShort(VERSION);
+          out.writeInt(headLength);
+          out.writeLong(headCrc);
+          out.writeLong(indexedLength);
+          out.writeLong(headerOffset);
+          out.writeLong(keyframeOffset);
+          out.writeLong(snapshotOffset);
+          out.writeUTF(snapshotTimestamp);
+          out.writeLong(lastMinute);
+          out.writeLong(lastBucket);
+          out.writeInt(points.size());
+          for (Point point : points) {
+            out.writeLong(point.minute);
+            out.writeLong(point.epochMs);
+            out.writeLong(point.offset);
+            out.writeLong(point.headerOffset);
+          }
+        }
+        Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException ex) {
+        // The index still works from memory; the next extension tries to save it again.
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+          // nothing more to do
+        }
+      }
+    }
+
+    /** CRC of the file's first {@code length} bytes, to notice a replaced file. */
+    private static long headCrc(Path file, int length) throws IOException {
+      ByteBuffer head = ByteBuffer.allocate(length);
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        while (head.hasRemaining() && channel.read(head, head.position()) >= 0) {
+          // keep reading
+        }
+      }
+      CRC32 crc = new CRC32();
+      crc.update(head.array(), 0, head.position());
+      return crc.getValue();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+      StringBuilder line = new StringBuilder();
+      InputStream buffered = new BufferedInputStream(in, 4096);
+      int next;
+      while ((next = buffered.read()) >= 0 && next != '\n') {
+        line.append((char) next);
+      }
+      return line.toString().trim();
+    }
+  }
+
+  /** Reads at most {@code remaining} bytes from the channel's position. */
+  private static final class BoundedChannelStream extends InputStream {
+    private final InputStream in;
+    private long remaining;
+
+    private BoundedChannelStream(FileChannel channel, long remaining) {
+      this.in = Channels.newInputStream(channel);
+      this.remaining = remaining;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0L) {
+        return -1;
+      }
+      int value = in.read();
+      if (value >= 0) {
+        remaining--;
+      }
+      return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (remaining <= 0L) {
+        return -1;
+      }
+      int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+      if (read > 0) {
+        remaining -= read;
+      }
+      return read;
+    }
+  }
+}
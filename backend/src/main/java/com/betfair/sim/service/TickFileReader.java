@@ -0,0 +1,525 @@
+package com.betfair.sim.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads captured tick files as a series of full market snapshots, one per capture timestamp.
+ * Binary files are decoded by {@link TickBinaryFormat}. CSV columns are located from the file's
+ * header, so files written before {@code market_status} was captured read the same way. In delta
+ * files (trailing {@code row_kind} column) a {@code D} row carries only a runner whose price or
+ * status changed and is laid over the previous snapshot, while a timestamp with any {@code K} row
+ * is a keyframe that replaces it. Files without the column hold complete snapshots on every
+ * timestamp.
+ */
+final class TickFileReader {
+  static final String HEADER =
+      "timestamp,game_minute,market_id,market_type,market_status,runner_id,runner_name,back_odds,lay_odds";
+  static final String DELTA_HEADER = HEADER + ",row_kind";
+  static final String KEYFRAME = "K";
+  static final String DELTA = "D";
+  static final String CSV_EXTENSION = ".txt";
+
+  private TickFileReader() {}
+
+  interface SnapshotConsumer {
+    /** Returns {@code false} to stop reading. */
+    boolean accept(TickSnapshot snapshot);
+  }
+
+  /**
+   * Replays {@code file} snapshot by snapshot. The snapshot passed to the consumer is reused and
+   * only valid during the call.
+   */
+  static void forEachSnapshot(Path file, SnapshotConsumer consumer) throws IOException {
+    if (!Files.exists(file) && TickDaySegment.forEachSnapshot(file, consumer)) {
+      return;
+    }
+    try (InputStream in = Files.newInputStream(file)) {
+      forEachSnapshot(in, file.getFileName().toString(), consumer);
+    }
+  }
+
+  /** Replays a tick file read from {@code in}; {@code fileName} tells CSV and binary apart. */
+  static void forEachSnapshot(InputStream in, String fileName, SnapshotConsumer consumer)
+      throws IOException {
+    if (fileName.endsWith(TickBinaryFormat.EXTENSION)) {
+      TickBinaryFormat.forEachSnapshot(in, fileName, consumer);
+      return;
+    }
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 65536)) {
+      readCsv(reader, Columns.DEFAULT, consumer);
+    }
+  }
+
+  /**
+   * Replays the snapshots of {@code file} from the first one at or after game minute
+   * {@code fromMinute} and capture time {@code fromEpochMs} (epoch millis; pass
+   * {@code Long.MIN_VALUE} to ignore either). CSV files on disk are entered through their
+   * {@link TickFileIndex} instead of being read from the top; binary files and files held in a day
+   * segment are read from the start and the earlier snapshots skipped.
+   */
+  static void forEachSnapshotFrom(
+      Path file, long fromMinute, long fromEpochMs, SnapshotConsumer consumer) throws IOException {
+    SnapshotConsumer fromStart =
+        snapshot -> {
+          if (snapshot.gameMinute() < fromMinute
+              || (fromEpochMs != Long.MIN_VALUE && epochMillis(snapshot.timestamp()) < fromEpochMs)) {
+            return true;
+          }
+          return consumer.accept(snapshot);
+        };
+    TickFileIndex.Position position =
+        TickBinaryFormat.isBinary(file) || !Files.isRegularFile(file)
+            ? null
+            : TickFileIndex.seek(file, fromMinute, fromEpochMs);
+    if (position == null) {
+      forEachSnapshot(file, fromStart);
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Columns columns = Columns.DEFAULT;
+      if (position.headerOffset() >= 0L) {
+        channel.position(position.headerOffset());
+        BufferedReader header =
+            new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8), 4096);
+        String line = header.readLine();
+        if (line != null && line.startsWith("timestamp")) {
+          columns = Columns.fromHeader(line);
+        }
+      }
+      channel.position(position.offset());
+      BufferedReader reader =
+          new BufferedReader(
+              new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8), 65536);
+      readCsv(reader, columns, fromStart);
+    }
+  }
+
+  private static void readCsv(BufferedReader reader, Columns initialColumns, SnapshotConsumer consumer)
+      throws IOException {
+    Columns columns = initialColumns;
+    SnapshotAssembler assembler = new SnapshotAssembler(consumer);
+    CsvFields parts = new CsvFields();
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isBlank()) {
+        continue;
+      }
+      if (line.startsWith("timestamp")) {
+        columns = Columns.fromHeader(line);
+        continue;
+      }
+      parts.parse(line);
+      // Rows appended to an old file after market_status was added are in the current layout.
+      Columns row =
+          columns.marketStatus < 0 && parts.size() > columns.size ? Columns.DEFAULT : columns;
+      if (parts.size() <= row.required) {
+        continue;
+      }
+      String kind = row.rowKind < parts.size() ? parts.get(row.rowKind) : KEYFRAME;
+      boolean proceed =
+          assembler.row(
+              parts.get(row.timestamp),
+              parseMinute(parts.get(row.gameMinute)),
+              parts.get(row.marketId),
+              parts.get(row.marketType),
+              row.marketStatus >= 0 ? parts.get(row.marketStatus) : null,
+              !DELTA.equals(kind),
+              new TickRunner(
+                  parts.get(row.runnerId),
+                  parts.get(row.runnerName),
+                  parseOdds(parts.get(row.backOdds)),
+                  row.layOdds < parts.size() ? parseOdds(parts.get(row.layOdds)) : Double.NaN));
+      if (!proceed) {
+        return;
+      }
+    }
+    assembler.finish();
+  }
+
+  /**
+   * Lists the tick files of a day folder, one per market file stem. When a file exists both as
+   * CSV and in the binary format, the binary one is returned. Files held in the folder's compacted
+   * segment are listed under their original name (they do not exist on disk, but
+   * {@link #forEachSnapshot(Path, SnapshotConsumer)} reads them from the segment); a loose file
+   * with the same stem takes precedence.
+   */
+  static List<Path> listTickFiles(Path dayDir) throws IOException {
+    Map<String, Path> byStem = new LinkedHashMap<>();
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(dayDir, "*{" + CSV_EXTENSION + "," + TickBinaryFormat.EXTENSION + "}")) {
+      for (Path file : stream) {
+        String stem = stem(file.getFileName().toString());
+        Path existing = byStem.get(stem);
+        if (existing == null || TickBinaryFormat.isBinary(file)) {
+          byStem.put(stem, file);
+        }
+      }
+    }
+    for (TickDaySegment.Entry entry : TickDaySegment.entries(dayDir)) {
+      byStem.putIfAbsent(stem(entry.fileName()), dayDir.resolve(entry.fileName()));
+    }
+    return new ArrayList<>(byStem.values());
+  }
+
+  /** File name without its {@code .txt} or binary tick extension. */
+  static String stem(String fileName) {
+    if (fileName.endsWith(TickBinaryFormat.EXTENSION)) {
+      return fileName.substring(0, fileName.length() - TickBinaryFormat.EXTENSION.length());
+    }
+    if (fileName.endsWith(CSV_EXTENSION)) {
+      return fileName.substring(0, fileName.length() - CSV_EXTENSION.length());
+    }
+    return fileName;
+  }
+
+  static double parseOdds(String value) {
+    if (value == null || value.isBlank()) {
+      return Double.NaN;
+    }
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException ex) {
+      return Double.NaN;
+    }
+  }
+
+  /** Epoch millis of an ISO-8601 capture time, or {@code Long.MIN_VALUE} when unparseable. */
+  static long epochMillis(String timestamp) {
+    try {
+      return Instant.parse(timestamp).toEpochMilli();
+    } catch (RuntimeException ex) {
+      return Long.MIN_VALUE;
+    }
+  }
+
+  private static long parseMinute(String value) {
+    try {
+      return Long.parseLong(value == null ? "0" : value.trim());
+    } catch (NumberFormatException ex) {
+      return 0L;
+    }
+  }
+
+  /**
+   * Classifies CSV lines the way the reader does, one at a time, so {@link TickFileIndex} can find
+   * snapshot boundaries and keyframes without assembling snapshots.
+   */
+  static final class CsvLineProbe {
+    static final int SKIP = 0;
+    static final int HEADER = 1;
+    static final int ROW = 2;
+
+    private final CsvFields parts = new CsvFields();
+    private Columns columns = Columns.DEFAULT;
+    private String timestamp = "";
+    private long gameMinute;
+    private boolean keyframe;
+
+    /** Returns {@link #HEADER}, {@link #ROW} (see the accessors) or {@link #SKIP}. */
+    int probe(String line) {
+      if (line.isBlank()) {
+        return SKIP;
+      }
+      if (line.startsWith("timestamp")) {
+        columns = Columns.fromHeader(line);
+        return HEADER;
+      }
+      parts.parse(line);
+      Columns row =
+          columns.marketStatus < 0 && parts.size() > columns.size ? Columns.DEFAULT : columns;
+      if (parts.size() <= row.required) {
+        return SKIP;
+      }
+      timestamp = parts.get(row.timestamp);
+      gameMinute = parseMinute(parts.get(row.gameMinute));
+      keyframe = row.rowKind >= parts.size() || !DELTA.equals(parts.get(row.rowKind));
+      return ROW;
+    }
+
+    String timestamp() {
+      return timestamp;
+    }
+
+    long gameMinute() {
+      return gameMinute;
+    }
+
+    boolean keyframe() {
+      return keyframe;
+    }
+  }
+
+  /**
+   * Field boundaries of one CSV line, reused from line to line so rows are cut without a split
+   * array; only the fields a row actually uses become strings.
+   */
+  private static final class CsvFields {
+    private String line = "";
+    private int[] ends = new int[16];
+    private int size;
+
+    private void parse(String value) {
+      line = value;
+      size = 0;
+      int from = 0;
+      while (true) {
+        int comma = value.indexOf(',', from);
+        if (size == ends.length) {
+          ends = Arrays.copyOf(ends, size * 2);
+        }
+        ends[size++] = comma < 0 ? value.length() : comma;
+        if (comma < 0) {
+          return;
+        }
+        from = comma + 1;
+      }
+    }
+
+    private int size() {
+      return size;
+    }
+
+    /** Field {@code index}, trimmed. */
+    private String get(int index) {
+      int start = index == 0 ? 0 : ends[index - 1] + 1;
+      int end = ends[index];
+      while (start < end && line.charAt(start) <= ' ') {
+        start++;
+      }
+      while (end > start && line.charAt(end - 1) <= ' ') {
+        end--;
+      }
+      return line.substring(start, end);
+    }
+  }
+
+  private static final class Columns {
+    private static final Columns DEFAULT = fromHeader(HEADER);
+
+    private final int timestamp;
+    private final int gameMinute;
+    private final int marketId;
+    private final int marketType;
+    private final int marketStatus;
+    private final int runnerId;
+    private final int runnerName;
+    private final int backOdds;
+    private final int layOdds;
+    private final int rowKind;
+    private final int required;
+    private final int size;
+
+    private Columns(List<String> names) {
+      this.size = names.size();
+      this.timestamp = Math.max(0, names.indexOf("timestamp"));
+      this.gameMinute = indexOr(names, "game_minute", 1);
+      this.marketId = indexOr(names, "market_id", 2);
+      this.marketType = indexOr(names, "market_type", 3);
+      this.marketStatus = names.indexOf("market_status");
+      this.runnerId = indexOr(names, "runner_id", 5);
+      this.runnerName = indexOr(names, "runner_name", 6);
+      this.backOdds = indexOr(names, "back_odds", 7);
+      this.layOdds = indexOr(names, "lay_odds", 8);
+      // Delta rows appended to a file created with the plain header carry the kind past its end.
+      this.rowKind = names.contains("row_kind") ? names.indexOf("row_kind") : names.size();
+      int required = backOdds;
+      for (int index : new int[] {timestamp, gameMinute, marketId, marketType, runnerId, runnerName}) {
+        required = Math.max(required, index);
+      }
+      this.required = required;
+    }
+
+    private static Columns fromHeader(String header) {
+      List<String> names = new ArrayList<>();
+      for (String name : header.split(",")) {
+        names.add(name.trim().toLowerCase());
+      }
+      return new Columns(names);
+    }
+
+    private static int indexOr(List<String> names, String name, int fallback) {
+      int index = names.indexOf(name);
+      return index < 0 ? fallback : index;
+    }
+  }
+
+  /**
+   * Groups consecutive rows sharing a timestamp into snapshots. A keyframe row makes its group
+   * replace the previous runners; delta rows are laid over them. A marker (no runner) records a
+   * capture at which nothing changed.
+   */
+  static final class SnapshotAssembler {
+    private final SnapshotConsumer consumer;
+    private final TickSnapshot snapshot = new TickSnapshot();
+    private final Map<String, TickRunner> pending = new LinkedHashMap<>();
+    private String pendingTimestamp;
+    private long pendingMinute;
+    private String pendingMarketId = "";
+    private String pendingMarketType = "";
+    private String pendingStatus = "";
+    private boolean pendingKeyframe;
+
+    SnapshotAssembler(SnapshotConsumer consumer) {
+      this.consumer = consumer;
+    }
+
+    /**
+     * Adds one row; {@code runner} may be {@code null} for a marker and {@code status} is
+     * {@code null} when the source does not record it. Returns {@code false} once the consumer
+     * asked to stop.
+     */
+    boolean row(
+        String timestamp,
+        long gameMinute,
+        String marketId,
+        String marketType,
+        String status,
+        boolean keyframe,
+        TickRunner runner) {
+      if (pendingTimestamp != null && !pendingTimestamp.equals(timestamp)) {
+        if (!emit()) {
+          return false;
+        }
+      }
+      pendingTimestamp = timestamp;
+      pendingMinute = gameMinute;
+      pendingMarketId = marketId;
+      pendingMarketType = marketType;
+      if (status != null) {
+        pendingStatus = status;
+      }
+      if (runner != null) {
+        pendingKeyframe |= keyframe;
+        pending.put(runner.runnerId() + "|" + runner.runnerName(), runner);
+      }
+      return true;
+    }
+
+    void finish() {
+      if (pendingTimestamp != null) {
+        emit();
+      }
+    }
+
+    private boolean emit() {
+      snapshot.apply(
+          pendingTimestamp,
+          pendingMinute,
+          pendingMarketId,
+          pendingMarketType,
+          pendingStatus,
+          pendingKeyframe,
+          pending);
+      pending.clear();
+      pendingKeyframe = false;
+      pendingTimestamp = null;
+      return consumer.accept(snapshot);
+    }
+  }
+
+  /** Full state of one market at one capture timestamp. */
+  static final class TickSnapshot {
+    private final Map<String, TickRunner> runners = new LinkedHashMap<>();
+    private String timestamp = "";
+    private long gameMinute;
+    private String marketId = "";
+    private String marketType = "";
+    private String marketStatus = "";
+
+    private void apply(
+        String timestamp,
+        long gameMinute,
+        String marketId,
+        String marketType,
+        String marketStatus,
+        boolean keyframe,
+        Map<String, TickRunner> rows) {
+      if (keyframe) {
+        runners.clear();
+      }
+      runners.putAll(rows);
+      this.timestamp = timestamp;
+      this.gameMinute = gameMinute;
+      this.marketId = marketId;
+      this.marketType = marketType;
+      this.marketStatus = marketStatus;
+    }
+
+    String timestamp() {
+      return timestamp;
+    }
+
+    long gameMinute() {
+      return gameMinute;
+    }
+
+    String marketId() {
+      return marketId;
+    }
+
+    String marketType() {
+      return marketType;
+    }
+
+    String marketStatus() {
+      return marketStatus;
+    }
+
+    Collection<TickRunner> runners() {
+      return Collections.unmodifiableCollection(runners.values());
+    }
+  }
+
+  static final class TickRunner {
+    private final String runnerId;
+    private final String runnerName;
+    private final double backOdds;
+    private final double layOdds;
+
+    TickRunner(String runnerId, String runnerName, double backOdds, double layOdds) {
+      this.runnerId = runnerId;
+      this.runnerName = runnerName;
+      this.backOdds = backOdds;
+      this.layOdds = layOdds;
+    }
+
+    String runnerId() {
+      return runnerId;
+    }
+
+    String runnerName() {
+      return runnerName;
+    }
+
+    /** Best back price, or {@code NaN} when none was offered. */
+    double backOdds() {
+      return backOdds;
+    }
+
+    /** Best lay price, or {@code NaN} when none was offered. */
+    double layOdds() {
+      return layOdds;
+    }
+  }
+}
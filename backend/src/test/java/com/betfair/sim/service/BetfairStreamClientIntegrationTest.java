@@ -0,0 +1,150 @@
+package com.betfair.sim.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Runs {@link BetfairStreamClient} against {@link BetfairStreamStandIn} over a local socket. */
+class BetfairStreamClientIntegrationTest {
+  private static final long SELECTION = 47972L;
+  private static final String IMAGE =
+      "{\"op\":\"mcm\",\"id\":1,\"initialClk\":\"i1\",\"clk\":\"c1\",\"pt\":1771600000000,"
+          + "\"ct\":\"SUB_IMAGE\",\"mc\":["
+          + "{\"id\":\"1.101\",\"img\":true,\"marketDefinition\":{\"status\":\"OPEN\",\"inPlay\":true},"
+          + "\"rc\":[{\"id\":47972,\"batb\":[[0,2.5,100]],\"batl\":[[0,2.52,80]]}]},"
+          + "{\"id\":\"1.102\",\"img\":true,\"marketDefinition\":{\"status\":\"OPEN\",\"inPlay\":true},"
+          + "\"rc\":[{\"id\":47972,\"batb\":[[0,1.8,50]]}]},"
+          + "{\"id\":\"1.103\",\"img\":true,\"marketDefinition\":{\"status\":\"CLOSED\",\"inPlay\":true},"
+          + "\"rc\":[]}]}";
+  private static final String DELTA =
+      "{\"op\":\"mcm\",\"id\":1,\"clk\":\"c2\",\"pt\":1771600001000,"
+          + "\"mc\":[{\"id\":\"1.101\",\"rc\":[{\"id\":47972,\"batb\":[[0,2.6,40]]}]}]}";
+
+  @TempDir Path tempDir;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private BetfairStreamStandIn standIn;
+  private BetfairStreamClient client;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    Path recording = tempDir.resolve("stream-recording.txt");
+    Files.write(recording, List.of(IMAGE, DELTA), StandardCharsets.UTF_8);
+    standIn = new BetfairStreamStandIn(objectMapper, 0, recording, 10L);
+    standIn.start();
+    client =
+        new BetfairStreamClient(
+            objectMapper,
+            new BetfairSessionStore(),
+            new SharedHttpTransport(2000L, 5000L, true, 8),
+            true,
+            "localhost",
+            standIn.port(),
+            false,
+            500,
+            100L,
+            200,
+            600_000L,
+            "",
+            "app-key",
+            "session-token");
+  }
+
+  @AfterEach
+  void tearDown() {
+    client.stop();
+    standIn.stop();
+  }
+
+  @Test
+  void servesSubscribedMarketsFromImageAndDeltas() {
+    client.subscribe(List.of("1.101"));
+
+    awaitTrue(() -> backPrice("1.101") == 2.6);
+    MarketStreamCache.Snapshot snapshot = client.snapshot("1.101");
+    assertNotNull(snapshot);
+    assertEquals("OPEN", snapshot.status());
+    assertTrue(snapshot.inPlay());
+    assertEquals(2.52, snapshot.prices().lay(SELECTION));
+    assertNull(client.snapshot("1.102"));
+  }
+
+  @Test
+  void keepsImagesOfRetainedMarketsWhenTheSubscriptionGrows() {
+    client.subscribe(List.of("1.101"));
+    awaitTrue(() -> backPrice("1.101") == 2.6);
+
+    client.subscribe(List.of("1.101", "1.102"));
+
+    assertNotNull(client.snapshot("1.101"));
+    awaitTrue(() -> backPrice("1.102") == 1.8);
+    assertEquals(Set.of("1.101", "1.102"), lastSubscribedMarketIds());
+  }
+
+  @Test
+  void dropsClosedMarketsAndDoesNotSubscribeThemAgain() {
+    client.subscribe(List.of("1.101", "1.103"));
+    awaitTrue(
+        () -> {
+          MarketStreamCache.Snapshot closed = client.snapshot("1.103");
+          return closed != null && "CLOSED".equals(closed.status());
+        });
+
+    client.subscribe(List.of("1.102"));
+    client.subscribe(List.of("1.103"));
+
+    assertEquals(2, client.stats().get("subscribedMarkets"));
+    assertEquals(1L, client.stats().get("unsubscribedMarkets"));
+    awaitTrue(() -> lastSubscribedMarketIds().equals(Set.of("1.101", "1.102")));
+    assertFalse(lastSubscribedMarketIds().contains("1.103"));
+  }
+
+  private double backPrice(String marketId) {
+    MarketStreamCache.Snapshot snapshot = client.snapshot(marketId);
+    return snapshot == null ? Double.NaN : snapshot.prices().back(SELECTION);
+  }
+
+  private Set<String> lastSubscribedMarketIds() {
+    List<JsonNode> subscriptions = standIn.subscriptions();
+    Set<String> marketIds = new HashSet<>();
+    if (subscriptions.isEmpty()) {
+      return marketIds;
+    }
+    for (JsonNode marketId :
+        subscriptions.get(subscriptions.size() - 1).path("marketFilter").path("marketIds")) {
+      marketIds.add(marketId.asText());
+    }
+    return marketIds;
+  }
+
+  private static void awaitTrue(BooleanSupplier condition) {
+    long deadline = System.currentTimeMillis() + 10_000L;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Condition not met within 10 s");
+      }
+      try {
+        Thread.sleep(20L);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new AssertionError("Interrupted while waiting", ex);
+      }
+    }
+  }
+}
@@ -0,0 +1,267 @@
+package com.betfair.sim.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local stand-in for the Exchange Stream API, used by the stream client tests. It accepts any
+ * authentication, then replays market change messages recorded by {@link BetfairStreamClient}
+ * ({@code betfair.stream.record-path}) to each subscriber, followed by heartbeats. A subscription
+ * carrying a {@code clk} resumes after the recorded message with that clock. Point the client at
+ * it with host {@code localhost}, {@link #port()} and TLS off.
+ */
+final class BetfairStreamStandIn {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BetfairStreamStandIn.class);
+
+  private final ObjectMapper objectMapper;
+  private final int port;
+  private final Path replayPath;
+  private final long replayIntervalMs;
+  private final List<JsonNode> subscriptions = new CopyOnWriteArrayList<>();
+  private volatile ServerSocket serverSocket;
+
+  /** A {@code port} of 0 listens on any free port; see {@link #port()}. */
+  BetfairStreamStandIn(ObjectMapper objectMapper, int port, Path replayPath, long replayIntervalMs) {
+    this.objectMapper = objectMapper;
+    this.port = port;
+    this.replayPath = replayPath;
+    this.replayIntervalMs = Math.max(0L, replayIntervalMs);
+  }
+
+  void start() throws IOException {
+    serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    Thread acceptor = new Thread(this::acceptLoop, "betfair-stream-stand-in");
+    acceptor.setDaemon(true);
+    acceptor.start();
+    LOGGER.info("Betfair stream stand-in listening on port {} replaying {}", port(), replayPath);
+  }
+
+  int port() {
+    return serverSocket.getLocalPort();
+  }
+
+  /** Every marketSubscription request received so far, in arrival order. */
+  List<JsonNode> subscriptions() {
+    return List.copyOf(subscriptions);
+  }
+
+  void stop() {
+    try {
+      ServerSocket current = serverSocket;
+      if (current != null) {
+        current.close();
+      }
+    } catch (IOException ignored) {
+      // shutting down
+    }
+  }
+
+  private void acceptLoop() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket client = serverSocket.accept();
+        Thread session = new Thread(() -> serve(client), "betfair-stream-stand-in-session");
+        session.setDaemon(true);
+        session.start();
+      } catch (IOException ex) {
+        if (!serverSocket.isClosed()) {
+          LOGGER.warn("Betfair stream stand-in accept failed", ex);
+        }
+      }
+    }
+  }
+
+  private void serve(Socket client) {
+    Session session = null;
+    try (Socket socket = client;
+        BufferedReader reader =
+            new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+      session =
+          new Session(
+              new BufferedWriter(
+                  new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+      ObjectNode connection = objectMapper.createObjectNode();
+      connection.put("op", "connection");
+      connection.put("connectionId", "stand-in-" + System.nanoTime());
+      session.send(connection);
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank()) {
+          continue;
+        }
+        JsonNode request = objectMapper.readTree(line);
+        int id = request.path("id").asInt(0);
+        String op = request.path("op").asText("");
+        session.send(status(id));
+        if ("marketSubscription".equals(op)) {
+          subscriptions.add(request);
+          session.replay(request, id);
+        }
+      }
+    } catch (IOException ex) {
+      LOGGER.debug("Betfair stream stand-in session ended: {}", ex.getMessage());
+    } finally {
+      if (session != null) {
+        session.stopReplay();
+      }
+    }
+  }
+
+  private ObjectNode status(int id) {
+    ObjectNode status = objectMapper.createObjectNode();
+    status.put("op", "status");
+    status.put("id", id);
+    status.put("statusCode", "SUCCESS");
+    status.put("connectionClosed", false);
+    return status;
+  }
+
+  private List<JsonNode> loadRecording() throws IOException {
+    List<JsonNode> messages = new ArrayList<>();
+    if (!Files.exists(replayPath)) {
+      LOGGER.warn(
+          "Betfair stream stand-in recording {} not found; sending heartbeats only", replayPath);
+      return messages;
+    }
+    for (String line : Files.readAllLines(replayPath, StandardCharsets.UTF_8)) {
+      if (!line.isBlank()) {
+        messages.add(objectMapper.readTree(line));
+      }
+    }
+    return messages;
+  }
+
+  private final class Session {
+    private final BufferedWriter writer;
+    private Thread replayThread;
+
+    private Session(BufferedWriter writer) {
+      this.writer = writer;
+    }
+
+    private synchronized void send(JsonNode message) throws IOException {
+      writer.write(objectMapper.writeValueAsString(message));
+      writer.write("\r\n");
+      writer.flush();
+    }
+
+    /** Replaces any running replay with one for the new subscription. */
+    private synchronized void replay(JsonNode subscription, int id) throws IOException {
+      stopReplay();
+      List<JsonNode> recording = loadRecording();
+      Set<String> marketIds = new HashSet<>();
+      for (JsonNode marketId : subscription.path("marketFilter").path("marketIds")) {
+        marketIds.add(marketId.asText());
+      }
+      int heartbeatMs = Math.max(500, subscription.path("heartbeatMs").asInt(5000));
+      int startIndex = resumeIndex(recording, subscription.path("clk").asText(""));
+      replayThread =
+          new Thread(
+              () -> runReplay(recording, startIndex, marketIds, id, heartbeatMs),
+              "betfair-stream-stand-in-replay");
+      replayThread.setDaemon(true);
+      replayThread.start();
+    }
+
+    private synchronized void stopReplay() {
+      if (replayThread != null) {
+        replayThread.interrupt();
+        replayThread = null;
+      }
+    }
+
+    private void runReplay(
+        List<JsonNode> recording, int startIndex, Set<String> marketIds, int id, int heartbeatMs) {
+      String lastClk = startIndex > 0 ? recording.get(startIndex - 1).path("clk").asText("") : "";
+      String initialClk = "";
+      boolean first = true;
+      try {
+        for (int i = startIndex; i < recording.size(); i++) {
+          ObjectNode message = filterMarkets(recording.get(i), marketIds);
+          if (message == null) {
+            continue;
+          }
+          message.put("id", id);
+          if (first) {
+            message.put("ct", startIndex == 0 ? "SUB_IMAGE" : "RESUB_DELTA");
+            first = false;
+          }
+          lastClk = message.path("clk").asText(lastClk);
+          initialClk = message.path("initialClk").asText(initialClk);
+          send(message);
+          Thread.sleep(replayIntervalMs);
+        }
+        while (!Thread.currentThread().isInterrupted()) {
+          Thread.sleep(heartbeatMs);
+          ObjectNode heartbeat = objectMapper.createObjectNode();
+          heartbeat.put("op", "mcm");
+          heartbeat.put("id", id);
+          heartbeat.put("ct", "HEARTBEAT");
+          heartbeat.put("clk", lastClk);
+          if (!initialClk.isBlank()) {
+            heartbeat.put("initialClk", initialClk);
+          }
+          heartbeat.put("pt", System.currentTimeMillis());
+          send(heartbeat);
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } catch (IOException ex) {
+        LOGGER.debug("Betfair stream stand-in replay stopped: {}", ex.getMessage());
+      }
+    }
+  }
+
+  /** Index of the first message after the one carrying {@code clk}, or 0 for a full replay. */
+  private static int resumeIndex(List<JsonNode> recording, String clk) {
+    if (clk.isBlank()) {
+      return 0;
+    }
+    for (int i = 0; i < recording.size(); i++) {
+      if (clk.equals(recording.get(i).path("clk").asText(""))) {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+  private static ObjectNode filterMarkets(JsonNode message, Set<String> marketIds) {
+    ObjectNode copy = ((ObjectNode) message).deepCopy();
+    if (marketIds.isEmpty() || !copy.path("mc").isArray()) {
+      return copy;
+    }
+    ArrayNode kept = copy.arrayNode();
+    for (JsonNode marketChange : copy.path("mc")) {
+      if (marketIds.contains(marketChange.path("id").asText(""))) {
+        kept.add(marketChange);
+      }
+    }
+    if (kept.isEmpty()) {
+      return null;
+    }
+    copy.set("mc", kept);
+    return copy;
+  }
+}
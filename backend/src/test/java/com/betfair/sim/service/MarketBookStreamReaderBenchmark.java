@@ -0,0 +1,141 @@
+package com.betfair.sim.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares decoding a listMarketBook envelope with {@link MarketBookStreamReader} against the
+ * previous path, which buffered the body into a String and walked a JsonNode tree into boxed
+ * per-runner maps. Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Djmh.args="MarketBookStreamReader -prof gc"} and compare {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarketBookStreamReaderBenchmark {
+  @Param({"40", "200"})
+  public int markets;
+
+  @Param({"3", "19"})
+  public int runnersPerMarket;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private MarketBookStreamReader reader;
+  private byte[] envelope;
+
+  @Setup
+  public void setUp() {
+    reader = new MarketBookStreamReader(objectMapper);
+    envelope = buildEnvelope(markets, runnersPerMarket).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public Map<String, Double> streamingReader() throws Exception {
+    List<Map<String, Double>> results =
+        reader.read(
+            new ByteArrayInputStream(envelope),
+            1,
+            HashMap::new,
+            (result, market) -> {
+              double sum = 0.0;
+              for (int i = 0; i < market.runnerCount(); i++) {
+                double back = market.bestBack(i);
+                if (!Double.isNaN(back)) {
+                  sum += back;
+                }
+              }
+              result.put(market.marketId(), sum);
+            },
+            index -> {});
+    return results.get(0);
+  }
+
+  @Benchmark
+  public Map<String, Map<Long, Double>> treeParse() throws Exception {
+    String response =
+        new String(new ByteArrayInputStream(envelope).readAllBytes(), StandardCharsets.UTF_8);
+    JsonNode root = objectMapper.readTree(response);
+    Map<String, Map<Long, Double>> backOddsByMarket = new HashMap<>();
+    for (JsonNode market : root.get(0).path("result")) {
+      Map<Long, Double> backOdds = new HashMap<>();
+      Map<Long, Double> layOdds = new HashMap<>();
+      for (JsonNode runner : market.path("runners")) {
+        long selectionId = runner.path("selectionId").asLong();
+        JsonNode availableToBack = runner.path("ex").path("availableToBack");
+        if (availableToBack.isArray() && availableToBack.size() > 0) {
+          backOdds.put(selectionId, availableToBack.get(0).path("price").asDouble());
+        }
+        JsonNode availableToLay = runner.path("ex").path("availableToLay");
+        if (availableToLay.isArray() && availableToLay.size() > 0) {
+          layOdds.put(selectionId, availableToLay.get(0).path("price").asDouble());
+        }
+      }
+      backOddsByMarket.put(market.path("marketId").asText(), backOdds);
+    }
+    return backOddsByMarket;
+  }
+
+  private static String buildEnvelope(int markets, int runnersPerMarket) {
+    StringBuilder json = new StringBuilder("[{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":[");
+    for (int m = 0; m < markets; m++) {
+      if (m > 0) {
+        json.append(',');
+      }
+      json.append("{\"marketId\":\"1.2")
+          .append(10_000_000 + m)
+          .append("\",\"isMarketDataDelayed\":false,\"status\":\"OPEN\",\"betDelay\":5,")
+          .append("\"inplay\":true,\"lastMatchTime\":\"2026-02-20T18:31:07.123Z\",")
+          .append("\"totalMatched\":18234.55,\"runners\":[");
+      for (int r = 0; r < runnersPerMarket; r++) {
+        if (r > 0) {
+          json.append(',');
+        }
+        double price = 1.5 + r * 0.75;
+        json.append("{\"selectionId\":")
+            .append(47_000 + r)
+            .append(",\"handicap\":0.0,\"status\":\"ACTIVE\",\"lastPriceTraded\":")
+            .append(price)
+            .append(",\"ex\":{\"availableToBack\":[");
+        appendLadder(json, price, -0.01);
+        json.append("],\"availableToLay\":[");
+        appendLadder(json, price + 0.02, 0.01);
+        json.append("],\"tradedVolume\":[]}}");
+      }
+      json.append("]}");
+    }
+    return json.append("]}]").toString();
+  }
+
+  private static void appendLadder(StringBuilder json, double best, double step) {
+    for (int level = 0; level < 3; level++) {
+      if (level > 0) {
+        json.append(',');
+      }
+      json.append("{\"price\":")
+          .append(Math.round((best + level * step) * 100.0) / 100.0)
+          .append(",\"size\":")
+          .append(25.5 + level * 10)
+          .append('}');
+    }
+  }
+}
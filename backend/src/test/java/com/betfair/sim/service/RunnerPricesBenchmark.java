@@ -0,0 +1,83 @@
+package com.betfair.sim.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares building one market's best prices and looking every runner up again with
+ * {@link RunnerPrices} against the two boxed {@code HashMap<Long, Double>} it replaced. Runners
+ * come in sort-priority order, which is rarely ascending by selection id, so {@code sorted=false}
+ * is the common case. Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Djmh.args="RunnerPrices -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RunnerPricesBenchmark {
+  @Param({"3", "19"})
+  public int runners;
+
+  @Param({"true", "false"})
+  public boolean sorted;
+
+  private long[] selectionIds;
+  private double[] backPrices;
+  private double[] layPrices;
+
+  @Setup
+  public void setUp() {
+    selectionIds = new long[runners];
+    backPrices = new double[runners];
+    layPrices = new double[runners];
+    for (int i = 0; i < runners; i++) {
+      // Unsorted runners look like Betfair's: home, away, then the draw with the lowest id.
+      selectionIds[i] = sorted ? 47_000L + i * 13L : 9_000_000L - i * 7_919L;
+      backPrices[i] = 1.5 + i * 0.25;
+      layPrices[i] = 1.52 + i * 0.25;
+    }
+  }
+
+  @Benchmark
+  public double runnerPrices() {
+    RunnerPrices.Builder builder = new RunnerPrices.Builder(runners);
+    for (int i = 0; i < runners; i++) {
+      builder.back(selectionIds[i], backPrices[i]).lay(selectionIds[i], layPrices[i]);
+    }
+    RunnerPrices prices = builder.build();
+    double sum = 0.0;
+    for (long selectionId : selectionIds) {
+      sum += prices.back(selectionId) + prices.lay(selectionId);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double boxedMaps() {
+    Map<Long, Double> back = new HashMap<>();
+    Map<Long, Double> lay = new HashMap<>();
+    for (int i = 0; i < runners; i++) {
+      back.put(selectionIds[i], backPrices[i]);
+      lay.put(selectionIds[i], layPrices[i]);
+    }
+    double sum = 0.0;
+    for (long selectionId : selectionIds) {
+      sum += back.get(selectionId) + lay.get(selectionId);
+    }
+    return sum;
+  }
+}
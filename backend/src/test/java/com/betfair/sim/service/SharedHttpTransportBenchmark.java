@@ -0,0 +1,138 @@
+package com.betfair.sim.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Compares requests sent over {@link SharedHttpTransport} against a RestTemplate with the default
+ * request factory, as the clients were built before the transport was shared. Both call a local
+ * stand-in server that answers with a listMarketBook-sized JSON body, gzipped when the request asks
+ * for it. Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Djmh.args="SharedHttpTransport"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class SharedHttpTransportBenchmark {
+  @Param({"16", "256"})
+  public int responseKb;
+
+  private HttpServer server;
+  private ExecutorService serverExecutor;
+  private String url;
+  private RestTemplate sharedTransport;
+  private RestTemplate defaultFactory;
+
+  @Setup
+  public void setUp() throws IOException {
+    byte[] plain = responseBody(responseKb * 1024).getBytes(StandardCharsets.UTF_8);
+    byte[] gzipped = gzip(plain);
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 64);
+    serverExecutor = Executors.newFixedThreadPool(8);
+    server.setExecutor(serverExecutor);
+    server.createContext(
+        "/json-rpc",
+        exchange -> {
+          exchange.getRequestBody().readAllBytes();
+          String encoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+          boolean gzip = encoding != null && encoding.contains("gzip");
+          respond(exchange, gzip ? gzipped : plain, gzip);
+        });
+    server.start();
+    url = "http://localhost:" + server.getAddress().getPort() + "/json-rpc";
+
+    sharedTransport =
+        new SharedHttpTransport(5000L, 20000L, true, 8).newRestTemplate(new RestTemplateBuilder());
+    defaultFactory = new RestTemplateBuilder().build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    server.stop(0);
+    serverExecutor.shutdownNow();
+  }
+
+  @Benchmark
+  public String sharedTransport() {
+    return sharedTransport.postForObject(url, "[]", String.class);
+  }
+
+  @Benchmark
+  public String defaultRequestFactory() {
+    return defaultFactory.postForObject(url, "[]", String.class);
+  }
+
+  private static void respond(HttpExchange exchange, byte[] body, boolean gzip) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    if (gzip) {
+      exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+    }
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private static String responseBody(int targetBytes) {
+    StringBuilder json = new StringBuilder("[{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":[");
+    for (int m = 0; json.length() < targetBytes; m++) {
+      if (m > 0) {
+        json.append(',');
+      }
+      json.append("{\"marketId\":\"1.2")
+          .append(10_000_000 + m)
+          .append("\",\"status\":\"OPEN\",\"inplay\":true,\"runners\":[");
+      for (int r = 0; r < 3; r++) {
+        if (r > 0) {
+          json.append(',');
+        }
+        json.append("{\"selectionId\":")
+            .append(47_000 + r)
+            .append(",\"status\":\"ACTIVE\",\"ex\":{\"availableToBack\":[{\"price\":2.5")
+            .append(r)
+            .append(",\"size\":120.5}],\"availableToLay\":[{\"price\":2.5")
+            .append(r + 2)
+            .append(",\"size\":80.25}]}}");
+      }
+      json.append("]}");
+    }
+    return json.append("]}]").toString();
+  }
+
+  private static byte[] gzip(byte[] plain) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(plain);
+    }
+    return bytes.toByteArray();
+  }
+}
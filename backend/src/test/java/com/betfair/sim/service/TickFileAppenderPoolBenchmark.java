@@ -0,0 +1,83 @@
+package com.betfair.sim.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares appending capture cycles through pooled, buffered channels ({@code pooled}) against
+ * opening, writing and closing the file on every append ({@code direct}). Each operation appends
+ * one cycle of runner rows to the next of {@code files} tick files, as a capture run over that many
+ * markets does. Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Djmh.args="TickFileAppenderPool"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickFileAppenderPoolBenchmark {
+  private static final String HEADER = "timestamp,selectionId,back,lay,status";
+
+  @Param({"pooled", "direct"})
+  public String mode;
+
+  @Param({"200"})
+  public int files;
+
+  private Path directory;
+  private Path[] paths;
+  private TickFileAppenderPool pool;
+  private List<String> cycle;
+  private int next;
+
+  @Setup(Level.Iteration)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("tick-appender-bench");
+    paths = new Path[files];
+    for (int i = 0; i < files; i++) {
+      paths[i] = directory.resolve("Home_Away_20260220_MARKET_" + i + ".txt");
+    }
+    pool = new TickFileAppenderPool(mode, 65536, 5000L, 300000L, false, 512);
+    cycle =
+        List.of(
+            "2026-02-20T18:31:07Z,47972,2.54,2.56,OPEN",
+            "2026-02-20T18:31:07Z,47973,3.10,3.15,OPEN",
+            "2026-02-20T18:31:07Z,58805,3.45,3.50,OPEN");
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() throws IOException {
+    pool.closeAll();
+    try (Stream<Path> walk = Files.walk(directory)) {
+      for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(path);
+      }
+    }
+  }
+
+  @Benchmark
+  public void appendCycle() throws IOException {
+    Path file = paths[next];
+    next = next + 1 == files ? 0 : next + 1;
+    pool.append(file, HEADER, cycle);
+  }
+}